@@ -0,0 +1,152 @@
+package javafx_demo.utils.cache;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Get, put and mixed throughput of the caches against a plain {@link ConcurrentHashMap}, the
+ * floor any bounded, ordered cache is paying on top of. Keys are drawn from twice the
+ * capacity, uniformly or Zipf-distributed, and precomputed (already boxed) so neither key
+ * generation nor boxing is measured.
+ * <p>
+ * Run with {@code ./gradlew jmh}; {@code -Pjmh.threads=N} sets the thread count. To compare
+ * 1, 4, 16 and 64 threads in one report, run {@code ./gradlew jmhThreadSweep}, which drives
+ * {@link CacheBenchmarkSweep}. The gc profiler is enabled in both, and
+ * {@code gc.alloc.rate.norm} is the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheBenchmark {
+    private static final int SEQUENCE = 1 << 20;
+    private static final int MASK = SEQUENCE - 1;
+
+    @Param({"lru", "lru-concurrent", "long-lru", "chm"})
+    public String impl;
+
+    @Param({"1024", "65536", "1048576"})
+    public int capacity;
+
+    @Param({"uniform", "zipf"})
+    public String distribution;
+
+    private Long[] keys;
+    private Target target;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index = ThreadLocalRandom.current().nextInt(SEQUENCE);
+
+        int next() {
+            return index++ & MASK;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long keySpace = 2L * capacity;
+        Random random = new Random(42);
+        ZipfianGenerator zipf = "zipf".equals(distribution) ? new ZipfianGenerator(keySpace) : null;
+        keys = new Long[SEQUENCE];
+        for (int i = 0; i < SEQUENCE; i++) {
+            keys[i] = zipf != null ? zipf.next(random) : (long) random.nextInt((int) keySpace);
+        }
+        target = switch (impl) {
+            case "lru" -> new LruTarget(LRUCache.<Long, Long>newBuilder().capacity(capacity).build());
+            case "lru-concurrent" -> new LruTarget(LRUCache.<Long, Long>newBuilder().capacity(capacity).concurrent().build());
+            case "long-lru" -> new LongLruTarget(new LongLRUCache<>(capacity));
+            case "chm" -> new MapTarget(new ConcurrentHashMap<>(capacity));
+            default -> throw new IllegalArgumentException(impl);
+        };
+        for (long key = 0; key < capacity; key++) {
+            target.put(key, key);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        target.shutdown();
+    }
+
+    @Benchmark
+    public Long get(Cursor cursor) {
+        return target.get(keys[cursor.next()]);
+    }
+
+    @Benchmark
+    public Long put(Cursor cursor) {
+        Long key = keys[cursor.next()];
+        target.put(key, key);
+        return key;
+    }
+
+    /** 75% reads, 25% writes. */
+    @Benchmark
+    public Long mixed(Cursor cursor) {
+        int i = cursor.next();
+        Long key = keys[i];
+        if ((i & 3) == 0) {
+            target.put(key, key);
+            return key;
+        }
+        return target.get(key);
+    }
+
+    private interface Target {
+        Long get(Long key);
+
+        void put(Long key, Long value);
+
+        void shutdown();
+    }
+
+    private record LruTarget(LRUCache<Long, Long> cache) implements Target {
+        public Long get(Long key) {
+            return cache.get(key);
+        }
+
+        public void put(Long key, Long value) {
+            cache.put(key, value);
+        }
+
+        public void shutdown() {
+            cache.shutdown();
+        }
+    }
+
+    private record LongLruTarget(LongLRUCache<Long> cache) implements Target {
+        public Long get(Long key) {
+            return cache.get(key.longValue());
+        }
+
+        public void put(Long key, Long value) {
+            cache.put(key.longValue(), value);
+        }
+
+        public void shutdown() {
+            cache.shutdown();
+        }
+    }
+
+    // unbounded, but the key space is only twice the capacity
+    private record MapTarget(ConcurrentHashMap<Long, Long> map) implements Target {
+        public Long get(Long key) {
+            return map.get(key);
+        }
+
+        public void put(Long key, Long value) {
+            map.put(key, value);
+        }
+
+        public void shutdown() {
+            map.clear();
+        }
+    }
+}
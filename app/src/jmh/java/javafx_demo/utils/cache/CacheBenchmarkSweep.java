@@ -0,0 +1,61 @@
+package javafx_demo.utils.cache;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs {@link CacheBenchmark} once per thread count and reports every result together, so one
+ * run shows how each cache scales from a single thread to contended access. JMH fixes the
+ * thread count per run, which is why this is a driver around it rather than a {@code @Param}.
+ * <p>
+ * Run with {@code ./gradlew jmhThreadSweep}. Arguments: benchmark include pattern, thread
+ * counts (default {@code 1,4,16,64}), and the path of the combined JSON report.
+ */
+public final class CacheBenchmarkSweep {
+
+    private CacheBenchmarkSweep() {}
+
+    public static void main(String[] args) throws RunnerException {
+        String includes = args.length > 0 ? args[0] : CacheBenchmark.class.getSimpleName();
+        int[] threadCounts = args.length > 1
+                ? Arrays.stream(args[1].split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1, 4, 16, 64};
+        String report = args.length > 2 ? args[2] : "jmh-threads.json";
+
+        List<RunResult> results = new ArrayList<>();
+        for (int threads : threadCounts) {
+            Options options = new OptionsBuilder()
+                    .include(includes)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            results.addAll(new Runner(options).run());
+        }
+
+        ResultFormatFactory.getInstance(ResultFormatType.JSON, report).writeOut(results);
+        // JMH's own summary has no thread column, so print one that does
+        System.out.println();
+        System.out.printf("%-22s %-16s %9s %-8s %7s %14s %12s%n",
+                "Benchmark", "impl", "capacity", "dist", "threads", "ops/us", "error");
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            String benchmark = params.getBenchmark();
+            System.out.printf("%-22s %-16s %9s %-8s %7d %14.3f %12.3f%n",
+                    benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1),
+                    params.getParam("impl"), params.getParam("capacity"), params.getParam("distribution"),
+                    params.getThreads(),
+                    result.getPrimaryResult().getScore(), result.getPrimaryResult().getScoreError());
+        }
+    }
+}
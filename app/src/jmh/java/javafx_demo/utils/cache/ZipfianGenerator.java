@@ -0,0 +1,62 @@
+package javafx_demo.utils.cache;
+
+import java.util.Random;
+
+/**
+ * Zipf-distributed ranks in {@code [0, items)} after Gray et al., "Quickly Generating
+ * Billion-Record Synthetic Databases" (the generator YCSB uses). Ranks are scrambled so the
+ * hot keys are spread over the key space instead of being the smallest numbers.
+ */
+final class ZipfianGenerator {
+    static final double DEFAULT_THETA = 0.99;
+
+    private final long items;
+    private final double theta;
+    private final double zetan;
+    private final double alpha;
+    private final double eta;
+
+    ZipfianGenerator(long items) {
+        this(items, DEFAULT_THETA);
+    }
+
+    ZipfianGenerator(long items, double theta) {
+        this.items = items;
+        this.theta = theta;
+        this.zetan = zeta(items, theta);
+        this.alpha = 1.0 / (1.0 - theta);
+        this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta(2, theta) / zetan);
+    }
+
+    long next(Random random) {
+        double u = random.nextDouble();
+        double uz = u * zetan;
+        long rank;
+        if (uz < 1.0) {
+            rank = 0;
+        } else if (uz < 1.0 + Math.pow(0.5, theta)) {
+            rank = 1;
+        } else {
+            rank = (long) (items * Math.pow(eta * u - eta + 1, alpha));
+        }
+        return Math.floorMod(scramble(rank), items);
+    }
+
+    private static double zeta(long n, double theta) {
+        double sum = 0;
+        for (long i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+
+    // murmur3 fmix64
+    private static long scramble(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+}
@@ -4,26 +4,30 @@ import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.stage.FileChooser;
 import javafx_demo.entity.Order;
 import javafx_demo.service.ApiService;
+import javafx_demo.service.OrderUpdateBatcher;
 import javafx_demo.service.SseClient;
+import javafx_demo.utils.CacheContext;
 import javafx_demo.utils.ConfigManager;
+import javafx_demo.utils.FutureUtil;
+import javafx_demo.utils.ImageCache;
 import javafx_demo.utils.SceneManager;
 import javafx_demo.utils.SessionContext;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -83,6 +87,8 @@ public class MainController {
 
     private List<Button> menuButtons;
     private ObservableList<Order> ordersList = FXCollections.observableArrayList();
+    /** SSE 更新事件按窗口合并拉取，结果在同一次 runLater 中应用 */
+    private final OrderUpdateBatcher orderUpdates = new OrderUpdateBatcher(this::patchOrders, Platform::runLater);
 
     @FXML
     public void initialize() {
@@ -127,9 +133,11 @@ public class MainController {
     /** 超时强制登出 */
     private void forceLogout() {
         if (idleTimer != null) { idleTimer.cancel(); idleTimer = null; }
+        orderUpdates.clear();
         // 先通知后端
         try { ApiService.logout(); } catch (Exception ignored) {}
         SseClient.getInstance().disconnect();
+        CacheContext.getInstance().shutdown();
         SessionContext.getInstance().clear();
         SceneManager.getInstance().switchToLogin();
     }
@@ -140,35 +148,29 @@ public class MainController {
         // 监听订单事件 — 按 resourceId 增量更新
         sse.on("ORDER", (domain, action, resourceId) -> {
             switch (action) {
-                case "UPDATE" -> patchOrder(resourceId);
+                case "UPDATE" -> {
+                    // 不在列表中的工单无需拉取
+                    if (ordersList.stream().anyMatch(o -> resourceId.equals(o.getOrderId()))) {
+                        orderUpdates.submit(resourceId);
+                    }
+                }
                 case "DELETE" -> ordersList.removeIf(o -> resourceId.equals(o.getOrderId()));
                 case "CREATE" -> loadOrders(); // 新建需要重新拉列表
             }
         });
+        // 连上时缓存已整体失效，重新拉取，替换启动时从磁盘缓存读到或断线期间过时的列表
+        sse.onConnected(this::loadOrders);
         sse.connect(java.util.List.of("ORDER"));
     }
 
-    /** 增量更新单条订单 */
-    private void patchOrder(String orderId) {
-        Task<Map<String, Object>> task = new Task<>() {
-            @Override
-            protected Map<String, Object> call() throws Exception {
-                return ApiService.getOrderDetail(orderId);
+    /** 增量更新一批订单，期间被删除或已不在列表中的跳过 */
+    private void patchOrders(Map<String, Map<String, Object>> details) {
+        for (int i = 0; i < ordersList.size(); i++) {
+            Map<String, Object> detail = details.get(ordersList.get(i).getOrderId());
+            if (detail != null) {
+                ordersList.set(i, Order.fromMap(detail));
             }
-        };
-        task.setOnSucceeded(e -> {
-            Map<String, Object> detail = task.getValue();
-            if (detail == null) return;
-            Order updated = Order.fromMap(detail);
-            for (int i = 0; i < ordersList.size(); i++) {
-                if (orderId.equals(ordersList.get(i).getOrderId())) {
-                    ordersList.set(i, updated);
-                    return;
-                }
-            }
-        });
-        task.setOnFailed(e -> System.err.println("增量更新失败: " + task.getException().getMessage()));
-        runAsync(task);
+        }
     }
 
     // ====================== 视图切换 (StackPane) ======================
@@ -262,48 +264,57 @@ public class MainController {
 
     private void loadOrders() {
         statusLabel.setText("加载中...");
+        // 整表重新加载，尚未拉取的增量更新不再需要
+        orderUpdates.clear();
         SessionContext ctx = SessionContext.getInstance();
-        Task<List<Map<String, Object>>> task = new Task<>() {
-            @Override
-            protected List<Map<String, Object>> call() throws Exception {
-                return ApiService.getTodayOrders(ctx.getUserId());
-            }
-        };
-        task.setOnSucceeded(e -> {
-            List<Order> orders = task.getValue().stream()
+        onFx(ApiService.getTodayOrdersAsync(ctx.getUserId()), list -> {
+            List<Order> orders = list.stream()
                     .map(Order::fromMap).collect(Collectors.toList());
             ordersList.setAll(orders);
             statusLabel.setText("共 " + orders.size() + " 条工单");
-        });
-        task.setOnFailed(e -> {
+        }, error -> {
             statusLabel.setText("加载失败");
-            showError("加载工单失败: " + task.getException().getMessage());
-            task.getException().printStackTrace();
+            showError("加载工单失败: " + error.getMessage());
+            error.printStackTrace();
         });
-        runAsync(task);
     }
 
     private void loadStatistics() {
-        totalOrdersLabel.setText("...");
-        totalIncomeLabel.setText("...");
         SessionContext ctx = SessionContext.getInstance();
-        Task<Map<String, Object>> task = new Task<>() {
-            @Override
-            protected Map<String, Object> call() throws Exception {
-                return ApiService.getUserSummary(ctx.getUserId());
+        // 有缓存先直接展示，切换视图不等网络；过期的摘要由缓存在后台刷新
+        Map<String, Object> cached = ApiService.peekUserSummary(ctx.getUserId());
+        if (cached != null) {
+            renderStatistics(cached);
+        } else {
+            totalOrdersLabel.setText("...");
+            totalIncomeLabel.setText("...");
+        }
+        onFx(ApiService.getUserSummaryAsync(ctx.getUserId()), this::renderStatistics, error -> {
+            if (cached != null) {
+                // 已展示缓存值，刷新失败不打扰用户
+                System.err.println("刷新统计失败: " + error.getMessage());
+                return;
             }
-        };
-        task.setOnSucceeded(e -> {
-            Map<String, Object> d = task.getValue();
-            totalOrdersLabel.setText(String.valueOf(((Number) d.get("totalOrders")).intValue()));
-            totalIncomeLabel.setText(String.format("%.2f", ((Number) d.get("totalIncome")).doubleValue()));
-        });
-        task.setOnFailed(e -> {
             totalOrdersLabel.setText("--");
             totalIncomeLabel.setText("--");
-            showError("加载统计失败: " + task.getException().getMessage());
+            showError("加载统计失败: " + error.getMessage());
         });
-        runAsync(task);
+        if (cached != null) {
+            // 上面拿到的可能是过了软过期的旧值，后台刷新完成后若仍停留在统计页再渲染一次
+            CompletableFuture<Map<String, Object>> refresh = ApiService.getUserSummaryRefresh(ctx.getUserId());
+            if (refresh != null) {
+                onFx(refresh, fresh -> {
+                    if (fresh != null && statsPane.isVisible()) {
+                        renderStatistics(fresh);
+                    }
+                }, error -> {}); // 刷新失败缓存已记录，继续展示旧值
+            }
+        }
+    }
+
+    private void renderStatistics(Map<String, Object> d) {
+        totalOrdersLabel.setText(String.valueOf(((Number) d.get("totalOrders")).intValue()));
+        totalIncomeLabel.setText(String.format("%.2f", ((Number) d.get("totalIncome")).doubleValue()));
     }
 
     // ====================== 顶部按钮操作 ======================
@@ -317,19 +328,10 @@ public class MainController {
         confirm.showAndWait().ifPresent(bt -> {
             if (bt != ButtonType.OK) return;
             SessionContext ctx = SessionContext.getInstance();
-            Task<Void> task = new Task<>() {
-                @Override
-                protected Void call() throws Exception {
-                    ApiService.changeStatus(ctx.getUserId(), "ACTIVE");
-                    return null;
-                }
-            };
-            task.setOnSucceeded(e -> {
+            onFx(ApiService.changeStatusAsync(ctx.getUserId(), "ACTIVE"), v -> {
                 showInfo("已就绪");
                 statusLabel.setText("就绪");
-            });
-            task.setOnFailed(e -> showError("操作失败: " + task.getException().getMessage()));
-            runAsync(task);
+            }, error -> showError("操作失败: " + error.getMessage()));
         });
     }
 
@@ -353,7 +355,16 @@ public class MainController {
         Label fileLabel = new Label("未选择文件");
         fileLabel.setStyle("-fx-text-fill: #7f8c8d;");
 
-        final File[] selectedFile = {null};
+        ProgressIndicator loading = new ProgressIndicator();
+        loading.setPrefSize(24, 24);
+        loading.setVisible(false);
+        Label loadingLabel = new Label("上传中...");
+        loadingLabel.setVisible(false);
+        HBox loadingBox = new HBox(8, loading, loadingLabel);
+        loadingBox.setAlignment(Pos.CENTER);
+
+        SpeculativeUpload upload = speculativeUpload(loadingLabel);
+        dialog.setOnHidden(e -> upload.cancel());
         Button pickBtn = new Button("选择图片");
         pickBtn.setStyle("-fx-background-color: #3498db; -fx-text-fill: white; -fx-cursor: hand; -fx-padding: 6 15;");
         pickBtn.setOnAction(e -> {
@@ -362,20 +373,12 @@ public class MainController {
             fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("图片", "*.png", "*.jpg", "*.jpeg", "*.webp"));
             File f = fc.showOpenDialog(dialog.getDialogPane().getScene().getWindow());
             if (f != null) {
-                selectedFile[0] = f;
                 fileLabel.setText(f.getName());
-                preview.setImage(new Image(f.toURI().toString(), 300, 200, true, true));
+                preview.setImage(ImageCache.getInstance().getPreview(f, 300, 200));
+                upload.start(f);
             }
         });
 
-        ProgressIndicator loading = new ProgressIndicator();
-        loading.setPrefSize(24, 24);
-        loading.setVisible(false);
-        Label loadingLabel = new Label("上传中...");
-        loadingLabel.setVisible(false);
-        HBox loadingBox = new HBox(8, loading, loadingLabel);
-        loadingBox.setAlignment(Pos.CENTER);
-
         VBox vb = new VBox(10, new HBox(10, pickBtn, fileLabel), preview, loadingBox);
         vb.setPadding(new Insets(15));
         vb.setAlignment(Pos.CENTER);
@@ -387,40 +390,29 @@ public class MainController {
         dialog.setResultConverter(bt -> null); // 手动控制关闭时机
 
         Button submitBtn = (Button) dialog.getDialogPane().lookupButton(submitType);
+        Button cancelBtn = submitGuardedCancelButton(dialog);
         submitBtn.addEventFilter(ActionEvent.ACTION, evt -> {
             evt.consume();
             SessionContext ctx = SessionContext.getInstance();
             statusLabel.setText("接单中...");
             submitBtn.setDisable(true);
+            cancelBtn.setDisable(true);
             pickBtn.setDisable(true);
             loading.setVisible(true);
-            loadingLabel.setVisible(true);
-
-            File file = selectedFile[0];
-            Task<Void> task = new Task<>() {
-                @Override
-                protected Void call() throws Exception {
-                    String picStart = "";
-                    if (file != null) {
-                        picStart = ApiService.uploadImage(file);
-                    }
-                    ApiService.acceptOrder(ctx.getUserId(), orderId, picStart);
-                    return null;
-                }
-            };
-            task.setOnSucceeded(e -> {
+
+            // 截图在选择时已开始上传，这里通常只剩接单请求本身
+            onFx(upload.fileId("").thenCompose(picStart -> ApiService.acceptOrderAsync(ctx.getUserId(), orderId, picStart)), v -> {
+                cancelBtn.setDisable(false);
                 dialog.close();
                 showInfo("接单成功: " + orderId);
                 loadOrders();
-            });
-            task.setOnFailed(e -> {
+            }, error -> {
                 submitBtn.setDisable(false);
+                cancelBtn.setDisable(false);
                 pickBtn.setDisable(false);
                 loading.setVisible(false);
-                loadingLabel.setVisible(false);
-                showError("接单失败: " + task.getException().getMessage());
+                showError("接单失败: " + error.getMessage());
             });
-            runAsync(task);
         });
 
         dialog.showAndWait();
@@ -435,19 +427,10 @@ public class MainController {
         confirm.showAndWait().ifPresent(bt -> {
             if (bt != ButtonType.OK) return;
             SessionContext ctx = SessionContext.getInstance();
-            Task<Void> task = new Task<>() {
-                @Override
-                protected Void call() throws Exception {
-                    ApiService.changeStatus(ctx.getUserId(), "OFFLINE");
-                    return null;
-                }
-            };
-            task.setOnSucceeded(e -> {
+            onFx(ApiService.changeStatusAsync(ctx.getUserId(), "OFFLINE"), v -> {
                 showInfo("已设为离线");
                 statusLabel.setText("离线");
-            });
-            task.setOnFailed(e -> showError("操作失败: " + task.getException().getMessage()));
-            runAsync(task);
+            }, error -> showError("操作失败: " + error.getMessage()));
         });
     }
 
@@ -460,19 +443,10 @@ public class MainController {
         confirm.showAndWait().ifPresent(bt -> {
             if (bt != ButtonType.OK) return;
             SessionContext ctx = SessionContext.getInstance();
-            Task<Void> task = new Task<>() {
-                @Override
-                protected Void call() throws Exception {
-                    ApiService.changeStatus(ctx.getUserId(), "HANGING");
-                    return null;
-                }
-            };
-            task.setOnSucceeded(e -> {
+            onFx(ApiService.changeStatusAsync(ctx.getUserId(), "HANGING"), v -> {
                 showInfo("已挂起");
                 statusLabel.setText("挂起");
-            });
-            task.setOnFailed(e -> showError("操作失败: " + task.getException().getMessage()));
-            runAsync(task);
+            }, error -> showError("操作失败: " + error.getMessage()));
         });
     }
 
@@ -514,15 +488,9 @@ public class MainController {
             SessionContext ctx = SessionContext.getInstance();
             boolean man = (boolean) data.get("man");
             String desc = (String) data.get("description");
-            Task<Void> task = new Task<>() {
-                @Override protected Void call() throws Exception {
-                    ApiService.submitFindingRequest(ctx.getUserId(), man, desc);
-                    return null;
-                }
-            };
-            task.setOnSucceeded(e -> showInfo("找单请求已提交"));
-            task.setOnFailed(e -> showError("提交失败: " + task.getException().getMessage()));
-            runAsync(task);
+            onFx(ApiService.submitFindingRequestAsync(ctx.getUserId(), man, desc),
+                    v -> showInfo("找单请求已提交"),
+                    error -> showError("提交失败: " + error.getMessage()));
         });
     }
 
@@ -547,8 +515,17 @@ public class MainController {
                 new Label("数量:"), amountField,
                 new Label("单位:"), unitBox);
 
+        ProgressIndicator loading = new ProgressIndicator();
+        loading.setPrefSize(24, 24);
+        loading.setVisible(false);
+        Label loadingLabel = new Label("上传中...");
+        loadingLabel.setVisible(false);
+        HBox loadingBox = new HBox(8, loading, loadingLabel);
+        loadingBox.setAlignment(Pos.CENTER);
+
         // 二手单需要上传附加截图
-        final File[] attachedFile = {null};
+        SpeculativeUpload upload = speculativeUpload(loadingLabel);
+        dialog.setOnHidden(e -> upload.cancel());
         final Button[] pickBtnRef = {null};
         if (order.isSecondHand()) {
             ImageView preview = new ImageView();
@@ -568,9 +545,9 @@ public class MainController {
                 fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("图片", "*.png", "*.jpg", "*.jpeg", "*.webp"));
                 File f = fc.showOpenDialog(dialog.getDialogPane().getScene().getWindow());
                 if (f != null) {
-                    attachedFile[0] = f;
                     fileLabel.setText(f.getName());
-                    preview.setImage(new Image(f.toURI().toString(), 250, 160, true, true));
+                    preview.setImage(ImageCache.getInstance().getPreview(f, 250, 160));
+                    upload.start(f);
                 }
             });
             vb.getChildren().addAll(
@@ -579,14 +556,6 @@ public class MainController {
                     new HBox(10, pickBtn, fileLabel),
                     preview);
         }
-        ProgressIndicator loading = new ProgressIndicator();
-        loading.setPrefSize(24, 24);
-        loading.setVisible(false);
-        Label loadingLabel = new Label("上传中...");
-        loadingLabel.setVisible(false);
-        HBox loadingBox = new HBox(8, loading, loadingLabel);
-        loadingBox.setAlignment(Pos.CENTER);
-
         vb.getChildren().add(loadingBox);
         vb.setPadding(new Insets(10));
         dialog.getDialogPane().setContent(vb);
@@ -597,6 +566,7 @@ public class MainController {
         dialog.setResultConverter(bt -> null); // 手动控制关闭时机
 
         Button submitBtn = (Button) dialog.getDialogPane().lookupButton(submitType);
+        Button cancelBtn = submitGuardedCancelButton(dialog);
         submitBtn.addEventFilter(ActionEvent.ACTION, evt -> {
             evt.consume();
             double price, amount;
@@ -608,51 +578,43 @@ public class MainController {
                 return;
             }
             String unitType = unitBox.getValue();
-            File fileToUpload = attachedFile[0];
-
             // 二手单必须上传图片
-            if (order.isSecondHand() && fileToUpload == null) {
+            if (order.isSecondHand() && !upload.hasFile()) {
                 showError("二手单续单必须上传附加截图");
                 return;
             }
 
             statusLabel.setText("续单中...");
             submitBtn.setDisable(true);
+            cancelBtn.setDisable(true);
             if (pickBtnRef[0] != null) {
                 pickBtnRef[0].setDisable(true);
             }
             loading.setVisible(true);
-            loadingLabel.setVisible(true);
 
-            Task<Void> task = new Task<>() {
-                @Override protected Void call() throws Exception {
-                    String additionalPic = null;
-                    if (fileToUpload != null) {
-                        additionalPic = ApiService.uploadImage(fileToUpload);
-                    }
-                    ApiService.continueOrder(order.getOrderId(), price, amount, unitType, additionalPic);
-                    // 二手单上传图片后更新状态为 THIRD_PARTY_TAKEN_PROCESS_DONE
-                    if (order.isSecondHand() && additionalPic != null) {
-                        ApiService.updateSecondHandStatus(order.getOrderId(), "THIRD_PARTY_TAKEN_PROCESS_DONE");
-                    }
-                    return null;
-                }
-            };
-            task.setOnSucceeded(e -> {
+            CompletableFuture<Void> submit = upload.fileId(null).thenCompose(additionalPic ->
+                    ApiService.continueOrderAsync(order.getOrderId(), price, amount, unitType, additionalPic)
+                            .thenCompose(v -> {
+                                // 二手单上传图片后更新状态为 THIRD_PARTY_TAKEN_PROCESS_DONE
+                                if (order.isSecondHand() && additionalPic != null) {
+                                    return ApiService.updateSecondHandStatusAsync(order.getOrderId(), "THIRD_PARTY_TAKEN_PROCESS_DONE");
+                                }
+                                return CompletableFuture.completedFuture(null);
+                            }));
+            onFx(submit, v -> {
+                cancelBtn.setDisable(false);
                 dialog.close();
                 showInfo("续单成功");
                 loadOrders();
-            });
-            task.setOnFailed(e -> {
+            }, error -> {
                 submitBtn.setDisable(false);
+                cancelBtn.setDisable(false);
                 if (pickBtnRef[0] != null) {
                     pickBtnRef[0].setDisable(false);
                 }
                 loading.setVisible(false);
-                loadingLabel.setVisible(false);
-                showError("续单失败: " + task.getException().getMessage());
+                showError("续单失败: " + error.getMessage());
             });
-            runAsync(task);
         });
 
         dialog.showAndWait();
@@ -672,7 +634,16 @@ public class MainController {
         Label fileLabel = new Label("未选择");
         fileLabel.setStyle("-fx-text-fill: #7f8c8d;");
 
-        final File[] selected = {null};
+        ProgressIndicator loading = new ProgressIndicator();
+        loading.setPrefSize(24, 24);
+        loading.setVisible(false);
+        Label loadingLabel = new Label("上传中...");
+        loadingLabel.setVisible(false);
+        HBox loadingBox = new HBox(8, loading, loadingLabel);
+        loadingBox.setAlignment(Pos.CENTER);
+
+        SpeculativeUpload upload = speculativeUpload(loadingLabel);
+        dialog.setOnHidden(e -> upload.cancel());
         Button pickBtn = new Button("选择截图");
         pickBtn.setStyle("-fx-background-color: #3498db; -fx-text-fill: white; -fx-cursor: hand; -fx-padding: 6 12;");
         pickBtn.setOnAction(e -> {
@@ -681,20 +652,12 @@ public class MainController {
             fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("图片", "*.png", "*.jpg", "*.jpeg", "*.webp"));
             File f = fc.showOpenDialog(dialog.getDialogPane().getScene().getWindow());
             if (f != null) {
-                selected[0] = f;
                 fileLabel.setText(f.getName());
-                preview.setImage(new Image(f.toURI().toString(), 300, 200, true, true));
+                preview.setImage(ImageCache.getInstance().getPreview(f, 300, 200));
+                upload.start(f);
             }
         });
 
-        ProgressIndicator loading = new ProgressIndicator();
-        loading.setPrefSize(24, 24);
-        loading.setVisible(false);
-        Label loadingLabel = new Label("上传中...");
-        loadingLabel.setVisible(false);
-        HBox loadingBox = new HBox(8, loading, loadingLabel);
-        loadingBox.setAlignment(Pos.CENTER);
-
         VBox vb = new VBox(10,
             new HBox(10, pickBtn, fileLabel),
             preview,
@@ -708,39 +671,35 @@ public class MainController {
         dialog.setResultConverter(bt -> null); // 手动控制关闭时机
 
         Button submitBtn = (Button) dialog.getDialogPane().lookupButton(submitType);
+        Button cancelBtn = submitGuardedCancelButton(dialog);
         submitBtn.addEventFilter(ActionEvent.ACTION, evt -> {
             evt.consume();
-            File file = selected[0];
-            if (file == null) {
+            if (!upload.hasFile()) {
                 showError("结束工单需要上传截图");
                 return;
             }
             statusLabel.setText("结束工单中...");
             submitBtn.setDisable(true);
+            cancelBtn.setDisable(true);
             pickBtn.setDisable(true);
             loading.setVisible(true);
-            loadingLabel.setVisible(true);
 
-            Task<Void> task = new Task<>() {
-                @Override protected Void call() throws Exception {
-                    String picId = ApiService.uploadImage(file);
-                    ApiService.closeOrder(order.getOrderId(), picId);
-                    return null;
-                }
-            };
-            task.setOnSucceeded(e -> {
+            CompletableFuture<Void> submit = upload.fileId(null)
+                    .thenCompose(picId -> ApiService.closeOrderAsync(order.getOrderId(), picId));
+            onFx(submit, v -> {
+                cancelBtn.setDisable(false);
                 dialog.close();
                 showInfo("工单已完成: " + order.getOrderId());
                 loadOrders();
-            });
-            task.setOnFailed(e -> {
+            }, error -> {
                 submitBtn.setDisable(false);
+                cancelBtn.setDisable(false);
                 pickBtn.setDisable(false);
                 loading.setVisible(false);
-                loadingLabel.setVisible(false);
-                showError("关闭工单失败: " + task.getException().getMessage());
+                String hint = ApiService.hasPartialUpload(upload.file())
+                        ? "\n已上传的部分已保留，重新提交会从断点继续" : "";
+                showError("关闭工单失败: " + error.getMessage() + hint);
             });
-            runAsync(task);
         });
 
         dialog.showAndWait();
@@ -756,8 +715,10 @@ public class MainController {
         alert.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
                 if (idleTimer != null) { idleTimer.cancel(); idleTimer = null; }
+                orderUpdates.clear();
                 try { ApiService.logout(); } catch (Exception ignored) {}
                 SseClient.getInstance().disconnect();
+                CacheContext.getInstance().shutdown();
                 SessionContext.getInstance().clear();
                 SceneManager.getInstance().switchToLogin();
             }
@@ -780,10 +741,35 @@ public class MainController {
         }
     }
 
-    private void runAsync(Task<?> task) {
-        Thread t = new Thread(task);
-        t.setDaemon(true);
-        t.start();
+    /**
+     * 对话框的取消按钮。提交期间禁用它，窗口关闭也随之被拦下：关闭会取消进行中的上传，
+     * 失败回调却还要操作已关闭的对话框。成功后先启用再 close()
+     */
+    private static Button submitGuardedCancelButton(Dialog<?> dialog) {
+        Button cancelBtn = (Button) dialog.getDialogPane().lookupButton(ButtonType.CANCEL);
+        dialog.setOnCloseRequest(e -> {
+            if (cancelBtn.isDisable()) e.consume();
+        });
+        return cancelBtn;
+    }
+
+    /** 进度显示在 label 上、回调回到 FX 线程的 {@link SpeculativeUpload} */
+    private static SpeculativeUpload speculativeUpload(Label label) {
+        return new SpeculativeUpload(ApiService::uploadImageAsync, Platform::runLater, text -> {
+            label.setVisible(text != null);
+            if (text != null) label.setText(text);
+        });
+    }
+
+    /** 请求完成后在 FX 线程回调，失败时传入去掉包装的原始异常 */
+    private <T> void onFx(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        future.whenComplete((value, error) -> Platform.runLater(() -> {
+            if (error == null) {
+                onSuccess.accept(value);
+            } else {
+                onFailure.accept(FutureUtil.unwrap(error));
+            }
+        }));
     }
 
     private void showInfo(String msg) {
@@ -0,0 +1,88 @@
+package javafx_demo.controller;
+
+import javafx_demo.service.HttpService;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * 选好截图就在后台开始上传，确认时只需等待文件 ID。
+ * 重新选图或关闭对话框时取消进行中的上传；只在 UI 线程调用。
+ * <p>
+ * 不直接依赖 JavaFX：上传方式、回到 UI 线程的方式和状态文字的显示由构造方传入，
+ * 对话框中分别是 ApiService.uploadImageAsync、Platform::runLater 和一个 Label。
+ */
+final class SpeculativeUpload {
+
+    @FunctionalInterface
+    interface Uploader {
+        CompletableFuture<String> upload(File file, HttpService.ProgressListener progress);
+    }
+
+    private final Uploader uploader;
+    private final Executor uiThread;
+    /** 显示状态文字，null 表示隐藏 */
+    private final Consumer<String> status;
+    private File file;
+    private CompletableFuture<String> pending;
+    private int generation;
+
+    SpeculativeUpload(Uploader uploader, Executor uiThread, Consumer<String> status) {
+        this.uploader = uploader;
+        this.uiThread = uiThread;
+        this.status = status;
+    }
+
+    void start(File f) {
+        cancel();
+        file = f;
+        int current = ++generation;
+        status.accept("上传中...");
+        // 回调来自 HttpClient 线程，已被新上传取代的不再更新界面
+        CompletableFuture<String> started = uploader.upload(f, (sent, total) -> {
+            if (total <= 0) return;
+            long percent = sent * 100 / total;
+            uiThread.execute(() -> {
+                if (current == generation) status.accept("上传中 " + percent + "%");
+            });
+        });
+        pending = started;
+        started.whenComplete((id, error) -> uiThread.execute(() -> {
+            if (current != generation || started.isCancelled()) return;
+            status.accept(error == null ? "截图已上传" : "截图上传失败，提交时将重试");
+        }));
+    }
+
+    boolean hasFile() {
+        return file != null;
+    }
+
+    File file() {
+        return file;
+    }
+
+    /**
+     * 上传得到的文件 ID；上次上传失败或已取消时重新上传（分片上传会从断点继续）
+     * @param none 没有选择文件时的结果
+     */
+    CompletableFuture<String> fileId(String none) {
+        if (file == null) {
+            return CompletableFuture.completedFuture(none);
+        }
+        if (pending == null || pending.isCompletedExceptionally()) {
+            start(file);
+        }
+        return pending;
+    }
+
+    void cancel() {
+        if (pending != null && !pending.isDone()) {
+            pending.cancel(true);
+            status.accept(null);
+        }
+        pending = null;
+        generation++;
+    }
+}
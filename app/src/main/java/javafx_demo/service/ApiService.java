@@ -4,19 +4,91 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import javafx_demo.utils.CacheContext;
 import javafx_demo.utils.ConfigManager;
+import javafx_demo.utils.ImageCompressor;
 import javafx_demo.utils.SessionContext;
+import javafx_demo.utils.cache.LRUCache;
+import javafx_demo.utils.cache.RemovalCause;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static javafx_demo.utils.FutureUtil.Stage;
+import static javafx_demo.utils.FutureUtil.await;
+import static javafx_demo.utils.FutureUtil.composeCancellable;
+import static javafx_demo.utils.FutureUtil.propagateCancel;
+import static javafx_demo.utils.FutureUtil.stage;
 
 /**
  * API 服务 — 封装所有后端接口调用
+ * <p>
+ * 工单列表、工单详情和统计摘要走读穿透缓存（key 为接口路径 + 请求体），
+ * 由 SSE 的 ORDER 事件和本地写操作精确失效，重复查询不再经过网络和加解密。
  */
 public class ApiService {
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
+    // ==================== 响应缓存 ====================
+
+    private static final String ORDER_LIST_CACHE = "api.order-list";
+    private static final String ORDER_DETAIL_CACHE = "api.order-detail";
+    private static final String SUMMARY_CACHE = "api.user-summary";
+    /** 统计摘要：超过软过期后先返回旧值再后台刷新，抖动避免多个终端同时刷新 */
+    private static final long SUMMARY_REFRESH = 30 * 1000;
+    private static final long SUMMARY_REFRESH_JITTER = 15 * 1000;
+    /** orderId → 内容包含该工单的列表缓存 key */
+    private static final Map<String, Set<String>> LIST_KEYS_BY_ORDER = new ConcurrentHashMap<>();
+    /**
+     * 每次工单失效加一。列表请求发出时 key 还不在 LIST_KEYS_BY_ORDER 中，期间到达的 UPDATE/DELETE
+     * 找不到它，只能在响应回来后比对此计数，变了就重新请求
+     */
+    private static final AtomicLong ORDER_GENERATION = new AtomicLong();
+    /** 列表请求期间一直有工单变动时最多重发的次数，之后返回结果但不缓存 */
+    private static final int LIST_RELOADS = 2;
+
+    /** 按 SSE 的 ORDER 事件失效响应缓存；包级可见，测试可直接投递事件 */
+    static final SseClient.Interceptor CACHE_INVALIDATOR = new SseClient.Interceptor() {
+        @Override
+        public void onEvent(String domain, String action, String resourceId) {
+            if (!"ORDER".equals(domain)) return;
+            switch (action) {
+                case "UPDATE", "DELETE" -> evictOrder(resourceId);
+                case "CREATE" -> evictOrderLists();
+            }
+            staleSummary();
+        }
+
+        @Override
+        public void onConnected() {
+            evictOrderLists();
+            cache(ORDER_DETAIL_CACHE).invalidateAll();
+            staleSummary();
+        }
+    };
+
+    static {
+        // 容量与过期时间见 application.properties 的 cache.api.* 配置
+        CacheContext caches = CacheContext.getInstance();
+        // 整页结果较大，软引用持有，堆内存紧张时优先让出
+        caches.define(ORDER_LIST_CACHE, () -> LRUCache.<String, PageResult>newBuilder().softValues().recordStats()
+                .removalListener((key, page, cause) -> {
+                    // 主动失效时索引已先删；容量淘汰、过期和回收的页在这里移出索引，否则翻页越多索引越大
+                    if (cause == RemovalCause.SIZE || cause == RemovalCause.EXPIRED || cause == RemovalCause.COLLECTED) {
+                        unindexOrderList(key);
+                    }
+                }));
+        caches.define(ORDER_DETAIL_CACHE, () -> LRUCache.<String, Map<String, Object>>newBuilder().recordStats());
+        caches.define(SUMMARY_CACHE, () -> LRUCache.<String, Map<String, Object>>newBuilder()
+                .refreshAfterWrite(SUMMARY_REFRESH, SUMMARY_REFRESH_JITTER).recordStats());
+
+        SseClient.getInstance().intercept(CACHE_INVALIDATOR);
+    }
+
     private static String toJson(Map<String, ?> data) throws Exception {
         return MAPPER.writeValueAsString(data);
     }
@@ -28,19 +100,24 @@ public class ApiService {
      * @return JWT Token
      */
     public static String login(String username, String password) throws Exception {
+        return await(loginAsync(username, password));
+    }
+
+    public static CompletableFuture<String> loginAsync(String username, String password) {
         SessionContext ctx = SessionContext.getInstance();
         Map<String, String> body = new LinkedHashMap<>();
         body.put("username", username);
         body.put("password", password);
         body.put("softwareCode", ctx.getSoftwareCode());
 
-        String resp = retryOnKeyExpired(() -> HttpService.post("/user/pal/login", toJson(body)));
-        JsonNode json = MAPPER.readTree(resp);
-        if (!json.path("success").asBoolean()) {
-            String msg = json.has("data") ? json.path("data").asText() : "登录失败";
-            throw new RuntimeException(msg);
-        }
-        return json.path("data").asText(""); // JWT token
+        return post("/user/pal/login", body, resp -> {
+            JsonNode json = MAPPER.readTree(resp);
+            if (!json.path("success").asBoolean()) {
+                String msg = json.has("data") ? json.path("data").asText() : "登录失败";
+                throw new RuntimeException(msg);
+            }
+            return json.path("data").asText(""); // JWT token
+        });
     }
 
     // ==================== 工单 ====================
@@ -49,14 +126,21 @@ public class ApiService {
      * 查询今日自己的工单
      */
     public static List<Map<String, Object>> getTodayOrders(long userId) throws Exception {
-        PageResult pr = queryOrders(userId, true, 0, 100);
-        return pr.content;
+        return await(getTodayOrdersAsync(userId));
+    }
+
+    public static CompletableFuture<List<Map<String, Object>>> getTodayOrdersAsync(long userId) {
+        return queryOrdersAsync(userId, true, 0, 100).thenApply(pr -> pr.content);
     }
 
     /**
      * 查询所有自己的工单 (分页)
      */
     public static PageResult queryOrders(long userId, boolean todayOnly, int page, int size) throws Exception {
+        return await(queryOrdersAsync(userId, todayOnly, page, size));
+    }
+
+    public static CompletableFuture<PageResult> queryOrdersAsync(long userId, boolean todayOnly, int page, int size) {
         Map<String, Object> body = new LinkedHashMap<>();
         body.put("pageNumber", page);
         body.put("pageSize", size);
@@ -65,20 +149,71 @@ public class ApiService {
         if (todayOnly) filters.put("todayOnly", "true");
         body.put("filters", filters);
 
-        String resp = retryOnKeyExpired(() -> HttpService.post("/order/list", toJson(body)));
-        return parsePageResult(resp);
+        String json;
+        try {
+            json = toJson(body);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        // 并发的相同查询共用一次请求
+        return ApiService.<String, PageResult>cache(ORDER_LIST_CACHE).getAsync(cacheKey("/order/list", json),
+                key -> loadOrderList(key, json, LIST_RELOADS));
+    }
+
+    private static CompletableFuture<PageResult> loadOrderList(String key, String json, int reloads) {
+        long generation = ORDER_GENERATION.get();
+        return composeCancellable(HttpService.postAsync("/order/list", json), resp -> {
+            PageResult pr;
+            Map<String, Map<String, Object>> details = new LinkedHashMap<>();
+            try {
+                pr = parsePageResult(resp);
+                // 先建索引再比对计数：之后到达的失效事件能找到这个 key，之前到达的由计数发现
+                for (Map<String, Object> order : pr.content) {
+                    Object orderId = order.get("orderId");
+                    if (orderId != null) {
+                        LIST_KEYS_BY_ORDER.compute(orderId.toString(), (id, keys) -> {
+                            Set<String> set = keys != null ? keys : ConcurrentHashMap.<String>newKeySet();
+                            set.add(key);
+                            return set;
+                        });
+                        details.put(cacheKey("/order/list", orderDetailBody(orderId.toString())), order);
+                    }
+                }
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            if (ORDER_GENERATION.get() != generation) {
+                if (reloads > 0) {
+                    return loadOrderList(key, json, reloads - 1);
+                }
+                // 结果可能已过时：照常返回给调用方，但让缓存丢弃它
+                cache(ORDER_LIST_CACHE).invalidate(key);
+                return CompletableFuture.completedFuture(pr);
+            }
+            // 列表项与单条查询返回的是同一结构，顺便整页写入详情缓存
+            ApiService.<String, Map<String, Object>>cache(ORDER_DETAIL_CACHE).putAll(details);
+            return CompletableFuture.completedFuture(pr);
+        });
     }
 
     /**
      * 接单开工
      */
     public static void acceptOrder(long palId, String orderId, String picStart) throws Exception {
+        await(acceptOrderAsync(palId, orderId, picStart));
+    }
+
+    public static CompletableFuture<Void> acceptOrderAsync(long palId, String orderId, String picStart) {
         Map<String, Object> body = new LinkedHashMap<>();
         body.put("palId", palId);
         body.put("orderId", orderId);
         if (picStart != null && !picStart.isEmpty()) body.put("picStart", picStart);
-        String resp = retryOnKeyExpired(() -> HttpService.post("/order/work", toJson(body)));
-        checkSuccess(resp);
+        return post("/order/work", body, ApiService::checkSuccess).whenComplete((v, e) -> {
+            // 接单后工单会进入自己的列表，列表全部失效
+            evictOrder(orderId);
+            evictOrderLists();
+            staleSummary();
+        });
     }
 
     /**
@@ -86,14 +221,21 @@ public class ApiService {
      */
     public static void continueOrder(String orderId, double price, double amount,
                                      String unitType, String additionalPic) throws Exception {
+        await(continueOrderAsync(orderId, price, amount, unitType, additionalPic));
+    }
+
+    public static CompletableFuture<Void> continueOrderAsync(String orderId, double price, double amount,
+                                                             String unitType, String additionalPic) {
         Map<String, String> body = new LinkedHashMap<>();
         body.put("orderId", orderId);
         body.put("price", String.valueOf(price));
         body.put("amount", String.valueOf(amount));
         body.put("unitType", unitType);
         if (additionalPic != null && !additionalPic.isEmpty()) body.put("additionalPic", additionalPic);
-        String resp = retryOnKeyExpired(() -> HttpService.post("/order/continue", toJson(body)));
-        checkSuccess(resp);
+        return post("/order/continue", body, ApiService::checkSuccess).whenComplete((v, e) -> {
+            evictOrder(orderId);
+            staleSummary();
+        });
     }
 
     /**
@@ -101,11 +243,17 @@ public class ApiService {
      * @param picEnd oss 返回的文件 ID
      */
     public static void closeOrder(String orderId, String picEnd) throws Exception {
+        await(closeOrderAsync(orderId, picEnd));
+    }
+
+    public static CompletableFuture<Void> closeOrderAsync(String orderId, String picEnd) {
         Map<String, String> body = new LinkedHashMap<>();
         body.put("orderId", orderId);
         body.put("picEnd", picEnd);
-        String resp = retryOnKeyExpired(() -> HttpService.post("/order/close", toJson(body)));
-        checkSuccess(resp);
+        return post("/order/close", body, ApiService::checkSuccess).whenComplete((v, e) -> {
+            evictOrder(orderId);
+            staleSummary();
+        });
     }
 
     // ==================== 状态变更 ====================
@@ -115,11 +263,14 @@ public class ApiService {
      * @param status ACTIVE / HANGING / OFFLINE
      */
     public static void changeStatus(long userId, String status) throws Exception {
+        await(changeStatusAsync(userId, status));
+    }
+
+    public static CompletableFuture<Void> changeStatusAsync(long userId, String status) {
         Map<String, String> body = new LinkedHashMap<>();
         body.put("userId", String.valueOf(userId));
         body.put("status", status);
-        String resp = retryOnKeyExpired(() -> HttpService.post("/user/status", toJson(body)));
-        checkSuccess(resp);
+        return post("/user/status", body, ApiService::checkSuccess);
     }
 
     // ==================== 找单请求 ====================
@@ -128,6 +279,10 @@ public class ApiService {
      * 提交找单请求
      */
     public static void submitFindingRequest(long palId, boolean man, String description) throws Exception {
+        await(submitFindingRequestAsync(palId, man, description));
+    }
+
+    public static CompletableFuture<Void> submitFindingRequestAsync(long palId, boolean man, String description) {
         // 构建 FindingRequest JSON
         ObjectNode body = JsonNodeFactory.instance.objectNode();
         body.put("man", man);
@@ -136,8 +291,13 @@ public class ApiService {
         palObj.put("id", palId);
         body.set("palworld", palObj);
 
-        String resp = retryOnKeyExpired(() -> HttpService.post("/finding/submit", MAPPER.writeValueAsString(body)));
-        checkSuccess(resp);
+        String json;
+        try {
+            json = MAPPER.writeValueAsString(body);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return parse(HttpService.postAsync("/finding/submit", json), ApiService::checkSuccess);
     }
 
     // ==================== 文件上传 ====================
@@ -147,13 +307,44 @@ public class ApiService {
      * @return 文件 ID 字符串
      */
     public static String uploadImage(File file) throws Exception {
-        String resp = HttpService.uploadFile(file);
-        JsonNode json = MAPPER.readTree(resp);
-        if (!json.path("success").asBoolean()) {
-            throw new RuntimeException("上传失败");
-        }
-        // data 是 FileLog 对象，取 id
-        return json.path("data").path("id").asText("");
+        return await(uploadImageAsync(file));
+    }
+
+    public static CompletableFuture<String> uploadImageAsync(File file) {
+        return uploadImageAsync(file, null);
+    }
+
+    /**
+     * @param progress 上传进度回调，可为 null
+     */
+    public static CompletableFuture<String> uploadImageAsync(File file, HttpService.ProgressListener progress) {
+        // 先在后台缩小并转为 JPEG，再上传压缩后的文件
+        return composeCancellable(ImageCompressor.getInstance().compressAsync(file), compressed -> {
+            File target = compressed.file();
+            if (compressed.compressed()) {
+                System.out.println("[上传] 图片压缩 " + file.getName() + ": " + compressed.originalBytes() / 1024
+                        + " KB -> " + compressed.compressedBytes() / 1024 + " KB，节省 " + compressed.savedBytes() / 1024 + " KB");
+            }
+            // 大文件分片上传，失败后再次上传同一文件会从断点继续
+            CompletableFuture<String> upload = target.length() > ConfigManager.getInstance().getUploadChunkThreshold()
+                    ? ChunkedUploader.getInstance().upload(target, progress)
+                    : HttpService.uploadFileAsync(target, progress);
+            return parse(upload, resp -> {
+                JsonNode json = MAPPER.readTree(resp);
+                if (!json.path("success").asBoolean()) {
+                    throw new RuntimeException("上传失败");
+                }
+                // 上传成功才删除压缩文件，失败时保留供重试续传
+                compressed.discard();
+                // data 是 FileLog 对象，取 id
+                return json.path("data").path("id").asText("");
+            });
+        });
+    }
+
+    /** 该图片上次上传是否中断且可续传 */
+    public static boolean hasPartialUpload(File file) {
+        return ChunkedUploader.getInstance().hasPartial(ImageCompressor.getInstance().cachedOutput(file));
     }
 
     // ==================== 二手单状态更新 ====================
@@ -164,11 +355,14 @@ public class ApiService {
      * @param secondHandStatus 如 THIRD_PARTY_TAKEN_PROCESS_DONE
      */
     public static void updateSecondHandStatus(String orderId, String secondHandStatus) throws Exception {
+        await(updateSecondHandStatusAsync(orderId, secondHandStatus));
+    }
+
+    public static CompletableFuture<Void> updateSecondHandStatusAsync(String orderId, String secondHandStatus) {
         Map<String, String> body = new LinkedHashMap<>();
         body.put("orderId", orderId);
         body.put("secondHandStatus", secondHandStatus);
-        String resp = retryOnKeyExpired(() -> HttpService.post("/order/secondHandStatus", toJson(body)));
-        checkSuccess(resp);
+        return post("/order/secondHandStatus", body, ApiService::checkSuccess);
     }
 
     // ==================== 图片预览 ====================
@@ -187,20 +381,52 @@ public class ApiService {
      * @return {totalOrders: int, totalIncome: double}
      */
     public static Map<String, Object> getUserSummary(long userId) throws Exception {
-        String resp = retryOnKeyExpired(
-                () -> HttpService.get("/statistic/user-summary?userId=" + userId));
-        JsonNode json = MAPPER.readTree(resp);
-        if (!json.path("success").asBoolean()) {
-            throw new RuntimeException("获取统计失败");
-        }
-        JsonNode data = json.path("data");
-        if (data.isMissingNode()) {
-            return new LinkedHashMap<>();
-        }
-        Map<String, Object> result = new LinkedHashMap<>();
-        result.put("totalOrders", data.path("totalOrders").asInt());
-        result.put("totalIncome", data.path("totalIncome").asDouble());
-        return result;
+        return await(getUserSummaryAsync(userId));
+    }
+
+    public static CompletableFuture<Map<String, Object>> getUserSummaryAsync(long userId) {
+        String path = summaryPath(userId);
+        return ApiService.<String, Map<String, Object>>cache(SUMMARY_CACHE).getAsync(cacheKey(path, ""),
+                key -> loadUserSummary(path));
+    }
+
+    /**
+     * 只读缓存中的统计摘要（可能已过软过期），不发请求
+     * @return 没有缓存时返回 null
+     */
+    public static Map<String, Object> peekUserSummary(long userId) {
+        LRUCache<String, Map<String, Object>> cache = cache(SUMMARY_CACHE);
+        return cache.peek(cacheKey(summaryPath(userId), ""));
+    }
+
+    /**
+     * 进行中的统计摘要刷新，完成时给出新值；没有刷新在进行时返回 null。
+     * {@link #getUserSummaryAsync} 返回过了软过期的旧值时，用它等待新值
+     */
+    public static CompletableFuture<Map<String, Object>> getUserSummaryRefresh(long userId) {
+        LRUCache<String, Map<String, Object>> cache = cache(SUMMARY_CACHE);
+        return cache.pendingLoad(cacheKey(summaryPath(userId), ""));
+    }
+
+    private static String summaryPath(long userId) {
+        return "/statistic/user-summary?userId=" + userId;
+    }
+
+    private static CompletableFuture<Map<String, Object>> loadUserSummary(String path) {
+        return parse(HttpService.getAsync(path), resp -> {
+            JsonNode json = MAPPER.readTree(resp);
+            if (!json.path("success").asBoolean()) {
+                throw new RuntimeException("获取统计失败");
+            }
+            JsonNode data = json.path("data");
+            if (data.isMissingNode()) {
+                return Collections.emptyMap();
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("totalOrders", data.path("totalOrders").asInt());
+            result.put("totalIncome", data.path("totalIncome").asDouble());
+            return Collections.unmodifiableMap(result);
+        });
     }
 
     // ==================== 登出 ====================
@@ -209,7 +435,13 @@ public class ApiService {
      * 通知后端登出（设置用户状态 OFFLINE）
      */
     public static void logout() throws Exception {
-        retryOnKeyExpired(() -> HttpService.post("/user/logout", "{}"));
+        await(logoutAsync());
+    }
+
+    public static CompletableFuture<Void> logoutAsync() {
+        return HttpService.postAsync("/user/logout", "{}")
+                .whenComplete((resp, e) -> clearResponseCache())
+                .thenApply(resp -> null);
     }
 
     // ==================== 单条订单查询 ======================================
@@ -218,21 +450,166 @@ public class ApiService {
      * 通过 /order/list 按 orderId 过滤获取单条订单（不含 sections）
      */
     public static Map<String, Object> getOrderDetail(String orderId) throws Exception {
+        return await(getOrderDetailAsync(orderId));
+    }
+
+    public static CompletableFuture<Map<String, Object>> getOrderDetailAsync(String orderId) {
+        String json;
+        try {
+            json = orderDetailBody(orderId);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        // 不存在的工单返回 null，不缓存
+        return ApiService.<String, Map<String, Object>>cache(ORDER_DETAIL_CACHE).getAsync(cacheKey("/order/list", json),
+                key -> parse(HttpService.postAsync("/order/list", json), resp -> {
+                    PageResult pr = parsePageResult(resp);
+                    return pr.content.isEmpty() ? null : pr.content.get(0);
+                }));
+    }
+
+    /**
+     * 批量获取多条订单（不含 sections）— 已缓存的直接返回，其余合并为一次按 orderIds 过滤的 /order/list 请求，
+     * 结果写入详情缓存，之后的 {@link #getOrderDetailAsync} 可直接命中
+     * @return orderId → 订单，按 orderIds 顺序；不存在的工单不在结果中
+     */
+    public static CompletableFuture<Map<String, Map<String, Object>>> getOrderDetailsAsync(Collection<String> orderIds) {
+        Map<String, String> keys = new LinkedHashMap<>();
+        try {
+            for (String orderId : orderIds) {
+                keys.put(cacheKey("/order/list", orderDetailBody(orderId)), orderId);
+            }
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (keys.isEmpty()) {
+            return CompletableFuture.completedFuture(new LinkedHashMap<>());
+        }
+        // 缺失的合并为一次请求，其他调用方正在加载的 key 直接等它的结果，全程不占用线程
+        return ApiService.<String, Map<String, Object>>cache(ORDER_DETAIL_CACHE)
+                .getAllAsync(keys.keySet(), missing -> loadOrderDetails(missing, keys))
+                .thenApply(found -> {
+                    Map<String, Map<String, Object>> details = new LinkedHashMap<>();
+                    found.forEach((key, detail) -> details.put(keys.get(key), detail));
+                    return details;
+                });
+    }
+
+    private static CompletableFuture<Map<String, Map<String, Object>>> loadOrderDetails(Set<? extends String> missing,
+                                                                                        Map<String, String> orderIdByKey) {
+        Map<String, String> keyByOrderId = new HashMap<>();
+        for (String key : missing) {
+            keyByOrderId.put(orderIdByKey.get(key), key);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("pageNumber", 0);
+        body.put("pageSize", keyByOrderId.size());
+        Map<String, String> filters = new LinkedHashMap<>();
+        filters.put("orderIds", String.join(",", keyByOrderId.keySet()));
+        body.put("filters", filters);
+        return post("/order/list", body, resp -> {
+            PageResult pr = parsePageResult(resp);
+            Map<String, Map<String, Object>> loaded = new HashMap<>();
+            for (Map<String, Object> order : pr.content) {
+                Object orderId = order.get("orderId");
+                String key = orderId == null ? null : keyByOrderId.get(orderId.toString());
+                if (key != null) {
+                    loaded.put(key, order);
+                }
+            }
+            return loaded;
+        });
+    }
+
+    private static String orderDetailBody(String orderId) throws Exception {
         Map<String, Object> body = new LinkedHashMap<>();
         body.put("pageNumber", 0);
         body.put("pageSize", 1);
         Map<String, String> filters = new LinkedHashMap<>();
         filters.put("orderId", orderId);
         body.put("filters", filters);
+        return toJson(body);
+    }
+
+    // ==================== 缓存失效 ====================
+
+    private static <K, V> LRUCache<K, V> cache(String name) {
+        return CacheContext.getInstance().getCache(name);
+    }
+
+    private static String cacheKey(String path, String body) {
+        return path + "\n" + body;
+    }
 
-        String resp = retryOnKeyExpired(() -> HttpService.post("/order/list", toJson(body)));
-        PageResult pr = parsePageResult(resp);
-        return pr.content.isEmpty() ? null : pr.content.get(0);
+    /** 失效单条工单的详情，以及所有包含它的列表页 */
+    private static void evictOrder(String orderId) {
+        ORDER_GENERATION.incrementAndGet();
+        try {
+            cache(ORDER_DETAIL_CACHE).invalidate(cacheKey("/order/list", orderDetailBody(orderId)));
+        } catch (Exception e) {
+            // 序列化失败则无从命中，只能整体清空
+            cache(ORDER_DETAIL_CACHE).invalidateAll();
+        }
+        Set<String> listKeys = LIST_KEYS_BY_ORDER.remove(orderId);
+        if (listKeys != null) {
+            cache(ORDER_LIST_CACHE).invalidateAll(listKeys);
+        }
+    }
+
+    /**
+     * 列表页离开缓存后从 LIST_KEYS_BY_ORDER 中移除，集合空了就删掉。
+     * 通知是异步的，同一 key 可能已重新加载并建好索引，这时保留
+     */
+    private static void unindexOrderList(String listKey) {
+        LRUCache<String, PageResult> lists = cache(ORDER_LIST_CACHE);
+        if (lists.pendingLoad(listKey) != null || lists.peek(listKey) != null) {
+            return;
+        }
+        for (String orderId : LIST_KEYS_BY_ORDER.keySet()) {
+            LIST_KEYS_BY_ORDER.computeIfPresent(orderId, (id, keys) -> {
+                keys.remove(listKey);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    /** 摘要不直接删除：继续展示旧值，下次读取时后台刷新 */
+    private static void staleSummary() {
+        cache(SUMMARY_CACHE).markAllStale();
+    }
+
+    private static void evictOrderLists() {
+        ORDER_GENERATION.incrementAndGet();
+        LIST_KEYS_BY_ORDER.clear();
+        cache(ORDER_LIST_CACHE).invalidateAll();
+    }
+
+    /** 清空全部响应缓存（登出、SSE 重连时调用） */
+    public static void clearResponseCache() {
+        evictOrderLists();
+        cache(ORDER_DETAIL_CACHE).invalidateAll();
+        cache(SUMMARY_CACHE).invalidateAll();
     }
 
     // ==================== 工具方法 ====================
 
-    private static void checkSuccess(String resp) {
+    /** 序列化 body 后加密发送，响应解密后交给 parser */
+    private static <T> CompletableFuture<T> post(String path, Map<String, ?> body, Stage<String, T> parser) {
+        String json;
+        try {
+            json = toJson(body);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return parse(HttpService.postAsync(path, json), parser);
+    }
+
+    /** 在请求之后接上解析阶段；取消返回的 future 会中止底层请求 */
+    private static <T> CompletableFuture<T> parse(CompletableFuture<String> call, Stage<String, T> parser) {
+        return propagateCancel(call.thenApply(stage(parser)), call);
+    }
+
+    private static Void checkSuccess(String resp) {
         try {
             JsonNode json = MAPPER.readTree(resp);
             if (!json.path("success").asBoolean()) {
@@ -242,33 +619,33 @@ public class ApiService {
         } catch (Exception e) {
             throw new RuntimeException("操作失败: " + e.getMessage());
         }
-    }
-
-    /** 密钥过期自动重试一次 */
-    private static String retryOnKeyExpired(ApiCall call) throws Exception {
-        try {
-            return call.execute();
-        } catch (RuntimeException e) {
-            if ("RETRY".equals(e.getMessage())) {
-                return call.execute();
-            }
-            throw e;
-        }
-    }
-
-    @FunctionalInterface
-    private interface ApiCall {
-        String execute() throws Exception;
+        return null;
     }
 
     // ==================== 分页结果解析 ====================
 
+    /**
+     * 分页结果。同一实例由列表缓存、详情缓存和所有调用方共享，因此整体只读：
+     * content 及其中的工单 Map 都不可修改
+     */
     public static class PageResult {
-        public List<Map<String, Object>> content = new ArrayList<>();
-        public int totalElements;
-        public int totalPages;
-        public int number; // current page (0-based)
-        public int size;
+        public final List<Map<String, Object>> content;
+        public final int totalElements;
+        public final int totalPages;
+        public final int number; // current page (0-based)
+        public final int size;
+
+        private PageResult() {
+            this(Collections.emptyList(), 0, 0, 0, 0);
+        }
+
+        private PageResult(List<Map<String, Object>> content, int totalElements, int totalPages, int number, int size) {
+            this.content = Collections.unmodifiableList(content);
+            this.totalElements = totalElements;
+            this.totalPages = totalPages;
+            this.number = number;
+            this.size = size;
+        }
     }
 
     private static PageResult parsePageResult(String resp) {
@@ -281,24 +658,24 @@ public class ApiService {
             if (data.isMissingNode()) {
                 return new PageResult();
             }
-            PageResult pr = new PageResult();
-            pr.totalElements = data.path("totalElements").asInt(0);
-            pr.totalPages = data.path("totalPages").asInt(0);
-            pr.number = data.path("number").asInt(0);
-            pr.size = data.path("size").asInt(0);
-
+            List<Map<String, Object>> content = new ArrayList<>();
             JsonNode arr = data.path("content");
             if (arr.isArray()) {
                 for (JsonNode el : arr) {
-                    pr.content.add(jsonNodeToMap(el));
+                    content.add(jsonNodeToMap(el));
                 }
             }
-            return pr;
+            return new PageResult(content,
+                    data.path("totalElements").asInt(0),
+                    data.path("totalPages").asInt(0),
+                    data.path("number").asInt(0),
+                    data.path("size").asInt(0));
         } catch (Exception e) {
             throw new RuntimeException("解析分页结果失败: " + e.getMessage());
         }
     }
 
+    /** 返回的 Map 及嵌套的 Map/List 均不可修改，可放心在缓存之间共享 */
     private static Map<String, Object> jsonNodeToMap(JsonNode node) {
         Map<String, Object> map = new LinkedHashMap<>();
         if (node.isObject()) {
@@ -324,7 +701,7 @@ public class ApiService {
                             list.add(item.asText());
                         }
                     }
-                    map.put(key, list);
+                    map.put(key, Collections.unmodifiableList(list));
                 } else if (val.isNumber()) {
                     map.put(key, val.asDouble());
                 } else if (val.isBoolean()) {
@@ -334,6 +711,6 @@ public class ApiService {
                 }
             });
         }
-        return map;
+        return Collections.unmodifiableMap(map);
     }
 }
@@ -0,0 +1,413 @@
+package javafx_demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import javafx_demo.utils.ConfigManager;
+import javafx_demo.utils.CryptoUtil;
+import javafx_demo.utils.SessionContext;
+
+import javax.crypto.SecretKey;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static javafx_demo.utils.FutureUtil.stage;
+import static javafx_demo.utils.FutureUtil.unwrap;
+
+/**
+ * 分片断点续传 — 大截图在弱网下不再因一次断线从头上传
+ * <p>
+ * 与 /oss/upload 并列的三个接口（SESSION_ONLY，响应为明文 JSON）：
+ * <ul>
+ *   <li>POST /oss/chunk/init — {fileKey, filename, size, chunkSize[, uploadId]}，
+ *       返回 {uploadId, received: [已确认的分片序号]}。带上次的 uploadId 即为续传</li>
+ *   <li>POST /oss/chunk/{uploadId}/{index} — 分片原始字节，X-Content-SHA256 为分片摘要，
+ *       签名 POST\npath\ntimestamp\n摘要</li>
+ *   <li>POST /oss/chunk/{uploadId}/complete — 合并分片，返回与 /oss/upload 相同的 FileLog</li>
+ * </ul>
+ * 文件按固定大小切片，最多 parallelism 个分片同时在途，单个分片失败按指数退避重试。
+ * 重试用尽时整个上传失败，但 uploadId 会保留：同一文件（路径、大小、修改时间不变）再次上传时
+ * 跳过服务端已确认的分片，从断点继续。内存占用上限为 分片大小 × parallelism。
+ * <p>
+ * uploadId 只保存在内存中，续传仅限本次运行：重启应用后同一文件会重新 init、从头上传。
+ */
+public class ChunkedUploader {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int SESSION_EXPIRED = 556;
+
+    private static volatile ChunkedUploader instance;
+
+    private final HttpClient client;
+    private final Executor executor;
+    private final String baseUrl;
+    private final int chunkSize;
+    private final int parallelism;
+    private final int maxRetries;
+    private final long retryDelayMs;
+
+    /** fileKey → 未完成的 uploadId，用于本次运行内的续传，不落盘 */
+    private final Map<String, String> partialUploads = new ConcurrentHashMap<>();
+
+    private ChunkedUploader(Builder builder) {
+        this.client = builder.transport.client();
+        this.executor = builder.transport.executor();
+        this.baseUrl = builder.baseUrl;
+        this.chunkSize = builder.chunkSize;
+        this.parallelism = builder.parallelism;
+        this.maxRetries = builder.maxRetries;
+        this.retryDelayMs = builder.retryDelayMs;
+    }
+
+    /** 按 application.properties 中 upload.chunk.* 配置的全局实例 */
+    public static ChunkedUploader getInstance() {
+        if (instance == null) {
+            synchronized (ChunkedUploader.class) {
+                if (instance == null) {
+                    ConfigManager config = ConfigManager.getInstance();
+                    instance = newBuilder(HttpTransport.getInstance(), config.getServerBaseUrl())
+                            .chunkSize(config.getUploadChunkSize())
+                            .parallelism(config.getUploadChunkParallelism())
+                            .retries(config.getUploadChunkRetries(), config.getUploadChunkRetryDelay())
+                            .build();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public static Builder newBuilder(HttpTransport transport, String baseUrl) {
+        return new Builder(transport, baseUrl);
+    }
+
+    /** 该文件是否有未完成、可续传的上传 */
+    public boolean hasPartial(File file) {
+        return partialUploads.containsKey(fileKey(file));
+    }
+
+    /**
+     * 分片上传文件
+     * @param progress 进度回调（已确认字节数 / 文件大小），可为 null
+     * @return complete 接口的响应 JSON (明文)，与 {@link HttpService#uploadFile} 相同；
+     *         取消返回的 future 会中止所有在途分片
+     */
+    public CompletableFuture<String> upload(File file, HttpService.ProgressListener progress) {
+        Upload upload = new Upload(file, progress);
+        upload.result.whenComplete((body, error) -> {
+            if (upload.result.isCancelled()) {
+                upload.inFlight.forEach(f -> f.cancel(true));
+            }
+        });
+        ensureSession()
+                .thenCompose(v -> retrying(upload, () -> init(upload)))
+                .whenComplete((v, error) -> {
+                    if (error != null) {
+                        upload.result.completeExceptionally(unwrap(error));
+                        return;
+                    }
+                    upload.report();
+                    int workers = Math.min(parallelism, upload.pending.size());
+                    if (workers == 0) {
+                        complete(upload);
+                        return;
+                    }
+                    upload.workers.set(workers);
+                    for (int i = 0; i < workers; i++) {
+                        pump(upload);
+                    }
+                });
+        return upload.result;
+    }
+
+    // ==================== 流程 ====================
+
+    private CompletableFuture<Void> ensureSession() {
+        return SessionContext.getInstance().hasSession()
+                ? CompletableFuture.completedFuture(null)
+                : HttpService.handshakeAsync();
+    }
+
+    private CompletableFuture<Void> init(Upload upload) {
+        ObjectNode body = JsonNodeFactory.instance.objectNode();
+        body.put("fileKey", upload.key);
+        body.put("filename", upload.file.getName());
+        body.put("size", upload.size);
+        body.put("chunkSize", chunkSize);
+        String previous = partialUploads.get(upload.key);
+        if (previous != null) {
+            body.put("uploadId", previous);
+        }
+        return CompletableFuture.supplyAsync(() -> body.toString(), executor)
+                .thenApply(stage(json -> signed("/oss/chunk/init", json, HttpRequest.BodyPublishers.ofString(json))))
+                .thenCompose(request -> send(upload, request))
+                .thenApply(stage(resp -> {
+                    JsonNode data = MAPPER.readTree(resp).path("data");
+                    upload.uploadId = data.path("uploadId").asText();
+                    partialUploads.put(upload.key, upload.uploadId);
+                    Set<Integer> received = ConcurrentHashMap.newKeySet();
+                    data.path("received").forEach(n -> received.add(n.asInt()));
+                    for (int index = 0; index < upload.chunkCount; index++) {
+                        if (received.contains(index)) {
+                            upload.acked.addAndGet(upload.chunkLength(index));
+                        } else {
+                            upload.pending.add(index);
+                        }
+                    }
+                    return null;
+                }));
+    }
+
+    /** 取下一个分片上传，队列空时最后一个 worker 负责合并 */
+    private void pump(Upload upload) {
+        if (upload.result.isDone()) {
+            return;
+        }
+        Integer index = upload.pending.poll();
+        if (index == null) {
+            if (upload.workers.decrementAndGet() == 0) {
+                complete(upload);
+            }
+            return;
+        }
+        retrying(upload, () -> sendChunk(upload, index)).whenComplete((v, error) -> {
+            if (error != null) {
+                upload.result.completeExceptionally(unwrap(error));
+                return;
+            }
+            upload.acked.addAndGet(upload.chunkLength(index));
+            upload.report();
+            pump(upload);
+        });
+    }
+
+    private CompletableFuture<Void> sendChunk(Upload upload, int index) {
+        String path = "/oss/chunk/" + upload.uploadId + "/" + index;
+        return CompletableFuture.supplyAsync(() -> index, executor)
+                .thenApply(stage(i -> {
+                    // 每次尝试重新读取，在途内存只有当前分片
+                    byte[] bytes = upload.read(i);
+                    String digest = CryptoUtil.sha256Hex(bytes, 0, bytes.length);
+                    return signed(path, digest, HttpRequest.BodyPublishers.ofByteArray(bytes),
+                            "X-Content-SHA256", digest, "Content-Type", "application/octet-stream");
+                }))
+                .thenCompose(request -> send(upload, request))
+                .thenApply(resp -> null);
+    }
+
+    private void complete(Upload upload) {
+        String path = "/oss/chunk/" + upload.uploadId + "/complete";
+        retrying(upload, () -> CompletableFuture.supplyAsync(() -> path, executor)
+                .thenApply(stage(p -> signed(p, "", HttpRequest.BodyPublishers.noBody())))
+                .thenCompose(request -> send(upload, request)))
+                .whenComplete((body, error) -> {
+                    if (error != null) {
+                        upload.result.completeExceptionally(unwrap(error));
+                    } else {
+                        partialUploads.remove(upload.key, upload.uploadId);
+                        upload.result.complete(body);
+                    }
+                });
+    }
+
+    // ==================== 请求 ====================
+
+    private HttpRequest signed(String path, String signedBody, HttpRequest.BodyPublisher body,
+                               String... headers) throws Exception {
+        SessionContext ctx = SessionContext.getInstance();
+        SecretKey key = ctx.getSharedKey();
+        String timestamp = String.valueOf(System.currentTimeMillis());
+        String message = "POST\n" + path + "\n" + timestamp + "\n" + signedBody;
+
+        HttpRequest.Builder rb = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + path))
+                .header("X-Session-Id", ctx.getSessionId())
+                .header("X-Timestamp", timestamp)
+                .header("X-Signature", CryptoUtil.hmacSign(key, message))
+                .POST(body);
+        if (headers.length == 0) {
+            rb.header("Content-Type", "application/json");
+        }
+        for (int i = 0; i < headers.length; i += 2) {
+            rb.header(headers[i], headers[i + 1]);
+        }
+        if (ctx.getJwtToken() != null) {
+            rb.header("Authorization", "Bearer " + ctx.getJwtToken());
+        }
+        return rb.build();
+    }
+
+    /** 发送并检查响应；会话过期时先重新握手，再交给 {@link #retrying} 重试 */
+    private CompletableFuture<String> send(Upload upload, HttpRequest request) {
+        CompletableFuture<HttpResponse<String>> exchange =
+                client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        upload.inFlight.add(exchange);
+        exchange.whenComplete((resp, error) -> upload.inFlight.remove(exchange));
+        if (upload.result.isCancelled()) {
+            exchange.cancel(true);
+        }
+        return exchange.thenCompose(resp -> {
+            if (resp.statusCode() == SESSION_EXPIRED) {
+                return HttpService.handshakeAsync().thenApply(v -> {
+                    throw new ChunkException("会话已过期");
+                });
+            }
+            if (resp.statusCode() != 200) {
+                return CompletableFuture.failedFuture(new ChunkException("HTTP " + resp.statusCode()));
+            }
+            try {
+                if (!MAPPER.readTree(resp.body()).path("success").asBoolean()) {
+                    return CompletableFuture.failedFuture(new ChunkException(resp.body()));
+                }
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            return CompletableFuture.completedFuture(resp.body());
+        });
+    }
+
+    /** 失败后按 retryDelay × 2^n 退避重试，最多 maxRetries 次 */
+    private <T> CompletableFuture<T> retrying(Upload upload, Supplier<CompletableFuture<T>> call) {
+        return retrying(upload, call, 0);
+    }
+
+    private <T> CompletableFuture<T> retrying(Upload upload, Supplier<CompletableFuture<T>> call, int attempt) {
+        return call.get().exceptionallyCompose(error -> {
+            if (attempt >= maxRetries || upload.result.isDone()) {
+                return CompletableFuture.failedFuture(unwrap(error));
+            }
+            long delay = retryDelayMs << Math.min(attempt, 10);
+            Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor);
+            return CompletableFuture.supplyAsync(() -> null, delayed)
+                    .thenCompose(v -> retrying(upload, call, attempt + 1));
+        });
+    }
+
+    private static String fileKey(File file) {
+        return file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+    }
+
+    /** 分片接口返回失败 */
+    static class ChunkException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ChunkException(String message) {
+            super("分片上传失败: " + message);
+        }
+    }
+
+    /** 一次上传的状态 */
+    private class Upload {
+        final File file;
+        final String key;
+        final long size;
+        final int chunkCount;
+        final HttpService.ProgressListener progress;
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        final Queue<Integer> pending = new ConcurrentLinkedQueue<>();
+        final Set<Future<?>> inFlight = ConcurrentHashMap.newKeySet();
+        final AtomicInteger workers = new AtomicInteger();
+        final AtomicLong acked = new AtomicLong();
+        volatile String uploadId;
+
+        Upload(File file, HttpService.ProgressListener progress) {
+            this.file = file;
+            this.key = fileKey(file);
+            this.size = file.length();
+            this.chunkCount = (int) ((size + chunkSize - 1) / chunkSize);
+            this.progress = progress;
+        }
+
+        int chunkLength(int index) {
+            return (int) Math.min(chunkSize, size - (long) index * chunkSize);
+        }
+
+        byte[] read(int index) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(chunkLength(index));
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long position = (long) index * chunkSize;
+                while (buffer.hasRemaining()) {
+                    int n = channel.read(buffer, position + buffer.position());
+                    if (n < 0) {
+                        throw new IOException("文件在上传过程中被截断: " + file);
+                    }
+                }
+            }
+            return buffer.array();
+        }
+
+        void report() {
+            if (progress != null) {
+                try {
+                    progress.onProgress(acked.get(), size);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    public static class Builder {
+        private final HttpTransport transport;
+        private final String baseUrl;
+        private int chunkSize = 1024 * 1024;
+        private int parallelism = 3;
+        private int maxRetries = 5;
+        private long retryDelayMs = 500;
+
+        private Builder(HttpTransport transport, String baseUrl) {
+            this.transport = transport;
+            this.baseUrl = baseUrl;
+        }
+
+        public Builder chunkSize(int bytes) {
+            if (bytes <= 0) {
+                throw new IllegalArgumentException("chunk size must be positive: " + bytes);
+            }
+            this.chunkSize = bytes;
+            return this;
+        }
+
+        /** 同时在途的分片数上限 */
+        public Builder parallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @param maxRetries   单个请求失败后的重试次数
+         * @param retryDelayMs 首次重试前的等待，之后每次翻倍
+         */
+        public Builder retries(int maxRetries, long retryDelayMs) {
+            this.maxRetries = maxRetries;
+            this.retryDelayMs = retryDelayMs;
+            return this;
+        }
+
+        public ChunkedUploader build() {
+            return new ChunkedUploader(this);
+        }
+    }
+}
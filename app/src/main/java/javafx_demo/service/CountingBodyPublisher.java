@@ -0,0 +1,75 @@
+package javafx_demo.service;
+
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+
+/**
+ * 包装一个 BodyPublisher，把已交给连接的字节数报告给 {@link HttpService.ProgressListener}
+ * <p>
+ * 每次订阅（包括重试时重新发送）都从 0 开始计数。回调在 HttpClient 的线程上执行，
+ * 只在整数百分比变化或发送完成时触发，不会每个数据块都调用一次。
+ */
+final class CountingBodyPublisher implements HttpRequest.BodyPublisher {
+
+    private final HttpRequest.BodyPublisher delegate;
+    private final HttpService.ProgressListener listener;
+
+    CountingBodyPublisher(HttpRequest.BodyPublisher delegate, HttpService.ProgressListener listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    @Override
+    public long contentLength() {
+        return delegate.contentLength();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        long total = delegate.contentLength();
+        delegate.subscribe(new Flow.Subscriber<>() {
+            private long sent;
+            private long lastPercent = -1;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscriber.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                // 先取长度，下游消费后 remaining 会变
+                sent += item.remaining();
+                subscriber.onNext(item);
+                long percent = total > 0 ? sent * 100 / total : -1;
+                if (percent != lastPercent) {
+                    lastPercent = percent;
+                    report(sent, total);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                subscriber.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                subscriber.onComplete();
+                if (lastPercent != 100) {
+                    report(sent, total);
+                }
+            }
+        });
+    }
+
+    private void report(long sent, long total) {
+        try {
+            listener.onProgress(sent, total);
+        } catch (Exception e) {
+            // 进度回调出错不影响上传
+            e.printStackTrace();
+        }
+    }
+}
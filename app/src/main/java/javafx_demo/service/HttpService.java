@@ -6,43 +6,94 @@ import javafx_demo.utils.SessionContext;
 
 import javax.crypto.SecretKey;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.security.KeyPair;
 import java.security.PublicKey;
-import java.time.Duration;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static javafx_demo.utils.FutureUtil.stage;
+import static javafx_demo.utils.FutureUtil.unwrap;
 
 /**
  * HTTP 通信服务，内置 ECDH 握手 + AES-GCM 加解密 + HMAC-SHA256 签名
  */
 public class HttpService {
 
-    private static final HttpClient CLIENT = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(10))
-            .build();
+    /** 上传进度回调 */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param sent  已发送字节数
+         * @param total 请求体总字节数，未知时为 -1
+         */
+        void onProgress(long sent, long total);
+    }
+
+    private static final HttpTransport TRANSPORT = HttpTransport.getInstance();
+    private static final HttpClient CLIENT = TRANSPORT.client();
 
-    private static final String BASE_URL = ConfigManager.getInstance().getServerBaseUrl();
+    private static volatile String baseUrl = ConfigManager.getInstance().getServerBaseUrl();
+
+    /** 正在进行的异步握手，并发请求共用一次 */
+    private static final AtomicReference<CompletableFuture<Void>> HANDSHAKE = new AtomicReference<>();
+
+    // 测试用：把请求指向本地服务器
+    static void setBaseUrl(String url) {
+        baseUrl = url;
+    }
 
     // ---------- ECDH 握手 ----------
 
     /** 执行 ECDH 密钥协商，成功后 SessionContext 中保存 sessionId 和 sharedKey */
     public static void handshake() throws Exception {
         KeyPair kp = CryptoUtil.generateKeyPair();
-        String clientPubKeyBase64 = CryptoUtil.encodePublicKey(kp.getPublic());
+        HttpResponse<String> resp = CLIENT.send(handshakeRequest(kp), HttpResponse.BodyHandlers.ofString());
+        completeHandshake(resp, kp);
+    }
 
-        HttpRequest req = HttpRequest.newBuilder()
-                .uri(URI.create(BASE_URL + "/crypto/handshake"))
-                .header("X-Client-Key", clientPubKeyBase64)
+    /** 异步握手；并发调用共用同一次协商 */
+    public static CompletableFuture<Void> handshakeAsync() {
+        CompletableFuture<Void> mine = new CompletableFuture<>();
+        CompletableFuture<Void> inFlight = HANDSHAKE.compareAndExchange(null, mine);
+        if (inFlight != null) {
+            return inFlight.copy();
+        }
+        CompletableFuture.completedFuture(null)
+                .thenApplyAsync(stage(v -> CryptoUtil.generateKeyPair()), TRANSPORT.executor())
+                .thenCompose(kp -> CLIENT.sendAsync(handshakeRequest(kp), HttpResponse.BodyHandlers.ofString())
+                        .thenApply(stage(resp -> {
+                            completeHandshake(resp, kp);
+                            return (Void) null;
+                        })))
+                .whenComplete((v, error) -> {
+                    HANDSHAKE.set(null);
+                    if (error != null) {
+                        mine.completeExceptionally(unwrap(error));
+                    } else {
+                        mine.complete(null);
+                    }
+                });
+        return mine.copy();
+    }
+
+    private static HttpRequest handshakeRequest(KeyPair kp) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/crypto/handshake"))
+                .header("X-Client-Key", CryptoUtil.encodePublicKey(kp.getPublic()))
                 .header("Content-Type", "application/json")
                 .POST(HttpRequest.BodyPublishers.ofString("{}"))
                 .build();
+    }
 
-        HttpResponse<String> resp = CLIENT.send(req, HttpResponse.BodyHandlers.ofString());
+    private static void completeHandshake(HttpResponse<String> resp, KeyPair kp) throws Exception {
         if (resp.statusCode() != 200) {
             throw new RuntimeException("握手失败: HTTP " + resp.statusCode());
         }
@@ -68,6 +119,12 @@ public class HttpService {
         }
     }
 
+    private static CompletableFuture<Void> ensureSessionAsync() {
+        return SessionContext.getInstance().hasSession()
+                ? CompletableFuture.completedFuture(null)
+                : handshakeAsync();
+    }
+
     // ---------- 加密 POST ----------
 
     /**
@@ -78,6 +135,20 @@ public class HttpService {
      */
     public static String post(String path, String json) throws Exception {
         ensureSession();
+        SignedRequest signed = signedPost(path, json);
+        HttpResponse<String> resp = CLIENT.send(signed.request(), HttpResponse.BodyHandlers.ofString());
+        return handleEncryptedResponse(resp, signed.key(), path);
+    }
+
+    /**
+     * {@link #post} 的异步版本：加密签名、发送、解密依次作为流水线阶段执行，等待响应期间不占用线程。
+     * 密钥过期时自动重新握手并重试一次；取消返回的 future 会中止请求。
+     */
+    public static CompletableFuture<String> postAsync(String path, String json) {
+        return sendAsync(() -> signedPost(path, json), HttpService::handleEncryptedResponseAsync, true);
+    }
+
+    private static SignedRequest signedPost(String path, String json) throws Exception {
         SessionContext ctx = SessionContext.getInstance();
         SecretKey key = ctx.getSharedKey();
 
@@ -90,7 +161,7 @@ public class HttpService {
         String signature = CryptoUtil.hmacSign(key, message);
 
         HttpRequest.Builder rb = HttpRequest.newBuilder()
-                .uri(URI.create(BASE_URL + path))
+                .uri(URI.create(baseUrl + path))
                 .header("Content-Type", "text/plain;charset=UTF-8")
                 .header("X-Session-Id", ctx.getSessionId())
                 .header("X-Timestamp", timestamp)
@@ -100,9 +171,7 @@ public class HttpService {
         if (ctx.getJwtToken() != null) {
             rb.header("Authorization", "Bearer " + ctx.getJwtToken());
         }
-
-        HttpResponse<String> resp = CLIENT.send(rb.build(), HttpResponse.BodyHandlers.ofString());
-        return handleEncryptedResponse(resp, key, path);
+        return new SignedRequest(rb.build(), key);
     }
 
     // ---------- 加密 GET ----------
@@ -114,6 +183,17 @@ public class HttpService {
      */
     public static String get(String path) throws Exception {
         ensureSession();
+        SignedRequest signed = signedGet(path);
+        HttpResponse<String> resp = CLIENT.send(signed.request(), HttpResponse.BodyHandlers.ofString());
+        return handleEncryptedResponse(resp, signed.key(), path);
+    }
+
+    /** {@link #get} 的异步版本，行为同 {@link #postAsync} */
+    public static CompletableFuture<String> getAsync(String path) {
+        return sendAsync(() -> signedGet(path), HttpService::handleEncryptedResponseAsync, true);
+    }
+
+    private static SignedRequest signedGet(String path) throws Exception {
         SessionContext ctx = SessionContext.getInstance();
         SecretKey key = ctx.getSharedKey();
 
@@ -122,7 +202,7 @@ public class HttpService {
         String signature = CryptoUtil.hmacSign(key, message);
 
         HttpRequest.Builder rb = HttpRequest.newBuilder()
-                .uri(URI.create(BASE_URL + path))
+                .uri(URI.create(baseUrl + path))
                 .header("X-Session-Id", ctx.getSessionId())
                 .header("X-Timestamp", timestamp)
                 .header("X-Signature", signature)
@@ -131,9 +211,7 @@ public class HttpService {
         if (ctx.getJwtToken() != null) {
             rb.header("Authorization", "Bearer " + ctx.getJwtToken());
         }
-
-        HttpResponse<String> resp = CLIENT.send(rb.build(), HttpResponse.BodyHandlers.ofString());
-        return handleEncryptedResponse(resp, key, path);
+        return new SignedRequest(rb.build(), key);
     }
 
     // ---------- 文件上传 (SESSION_ONLY，body 不加密) ----------
@@ -144,7 +222,30 @@ public class HttpService {
      * @return 响应 JSON (明文)
      */
     public static String uploadFile(File file) throws Exception {
+        return uploadFile(file, null);
+    }
+
+    /**
+     * @param progress 上传进度回调，在 HttpClient 线程上执行；可为 null
+     */
+    public static String uploadFile(File file, ProgressListener progress) throws Exception {
         ensureSession();
+        SignedRequest signed = signedUpload(file, progress);
+        HttpResponse<String> resp = CLIENT.send(signed.request(), HttpResponse.BodyHandlers.ofString());
+        return handleUploadResponse(resp);
+    }
+
+    /** {@link #uploadFile} 的异步版本；取消返回的 future 会中止上传 */
+    public static CompletableFuture<String> uploadFileAsync(File file) {
+        return uploadFileAsync(file, null);
+    }
+
+    public static CompletableFuture<String> uploadFileAsync(File file, ProgressListener progress) {
+        return sendAsync(() -> signedUpload(file, progress),
+                (resp, key) -> CompletableFuture.completedFuture(handleUploadResponse(resp)), false);
+    }
+
+    private static SignedRequest signedUpload(File file, ProgressListener progress) throws Exception {
         SessionContext ctx = SessionContext.getInstance();
         SecretKey key = ctx.getSharedKey();
 
@@ -156,30 +257,38 @@ public class HttpService {
         String message = "POST\n" + path + "\n" + timestamp + "\n";
         String signature = CryptoUtil.hmacSign(key, message);
 
-        // 构建 multipart body
-        byte[] fileBytes = Files.readAllBytes(file.toPath());
-        String filename = file.getName();
-        String mimeType = guessMimeType(filename);
-
-        byte[] header = ("--" + boundary + "\r\n"
-                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n"
-                + "Content-Type: " + mimeType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8);
-        byte[] footer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
-        byte[] body = new byte[header.length + fileBytes.length + footer.length];
-        System.arraycopy(header, 0, body, 0, header.length);
-        System.arraycopy(fileBytes, 0, body, header.length, fileBytes.length);
-        System.arraycopy(footer, 0, body, header.length + fileBytes.length, footer.length);
+        HttpRequest.BodyPublisher body = multipartBody(file, boundary);
+        if (progress != null) {
+            body = new CountingBodyPublisher(body, progress);
+        }
 
         HttpRequest.Builder rb = HttpRequest.newBuilder()
-                .uri(URI.create(BASE_URL + path))
+                .uri(URI.create(baseUrl + path))
                 .header("Content-Type", "multipart/form-data; boundary=" + boundary)
                 .header("X-Session-Id", ctx.getSessionId())
                 .header("X-Timestamp", timestamp)
                 .header("X-Signature", signature)
                 .header("Authorization", "Bearer " + ctx.getJwtToken())
-                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+                .POST(body);
+        return new SignedRequest(rb.build(), key);
+    }
+
+    /** multipart body：头、文件、尾三段拼接，文件发送时按块读取，不整体载入内存 */
+    static HttpRequest.BodyPublisher multipartBody(File file, String boundary) throws FileNotFoundException {
+        String filename = file.getName();
+        String mimeType = guessMimeType(filename);
 
-        HttpResponse<String> resp = CLIENT.send(rb.build(), HttpResponse.BodyHandlers.ofString());
+        byte[] header = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: " + mimeType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] footer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        return HttpRequest.BodyPublishers.concat(
+                HttpRequest.BodyPublishers.ofByteArray(header),
+                HttpRequest.BodyPublishers.ofFile(file.toPath()),
+                HttpRequest.BodyPublishers.ofByteArray(footer));
+    }
+
+    private static String handleUploadResponse(HttpResponse<String> resp) {
         if (resp.statusCode() != 200) {
             throw new RuntimeException("上传失败: HTTP " + resp.statusCode());
         }
@@ -187,9 +296,104 @@ public class HttpService {
         return resp.body();
     }
 
+    // ---------- 异步流水线 ----------
+
+    /** 已签名、待发送的请求，以及解密响应要用的密钥 */
+    private record SignedRequest(HttpRequest request, SecretKey key) {}
+
+    @FunctionalInterface
+    private interface RequestSigner {
+        SignedRequest sign() throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface ResponseHandler {
+        CompletableFuture<String> handle(HttpResponse<String> resp, SecretKey key);
+    }
+
+    /**
+     * 会话 → 签名（后台线程，含加密和读文件）→ sendAsync → 响应处理。
+     * 取消返回的 future 时中止当前这一次 HTTP 交换，包括重试中的那次。
+     */
+    private static CompletableFuture<String> sendAsync(RequestSigner signer, ResponseHandler handler,
+                                                       boolean retryOnKeyExpired) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        AtomicReference<Future<?>> exchange = new AtomicReference<>();
+        result.whenComplete((body, error) -> {
+            Future<?> current = exchange.get();
+            if (result.isCancelled() && current != null) {
+                current.cancel(true);
+            }
+        });
+        attempt(signer, handler, retryOnKeyExpired, exchange, result);
+        return result;
+    }
+
+    private static void attempt(RequestSigner signer, ResponseHandler handler, boolean retryOnKeyExpired,
+                                AtomicReference<Future<?>> exchange, CompletableFuture<String> result) {
+        ensureSessionAsync()
+                .thenApplyAsync(stage(v -> signer.sign()), TRANSPORT.executor())
+                .thenCompose(signed -> {
+                    CompletableFuture<HttpResponse<String>> send =
+                            CLIENT.sendAsync(signed.request(), HttpResponse.BodyHandlers.ofString());
+                    exchange.set(send);
+                    if (result.isCancelled()) {
+                        send.cancel(true);
+                    }
+                    return send.thenCompose(resp -> handler.handle(resp, signed.key()));
+                })
+                .whenComplete((body, error) -> {
+                    if (error == null) {
+                        result.complete(body);
+                        return;
+                    }
+                    Throwable cause = unwrap(error);
+                    if (retryOnKeyExpired && isKeyExpired(cause) && !result.isDone()) {
+                        attempt(signer, handler, false, exchange, result);
+                    } else {
+                        result.completeExceptionally(cause);
+                    }
+                });
+    }
+
+    /** 密钥过期：handleEncryptedResponse 已重新握手，调用方重试即可 */
+    private static boolean isKeyExpired(Throwable t) {
+        return t instanceof RuntimeException && "RETRY".equals(t.getMessage());
+    }
+
     // ---------- 响应处理 ----------
 
     private static String handleEncryptedResponse(HttpResponse<String> resp, SecretKey key, String path) throws Exception {
+        String decrypted = decryptResponse(resp, key);
+        if (decrypted == null) {
+            System.out.println("密钥过期，重新握手...");
+            handshake();
+            throw new RuntimeException("RETRY");
+        }
+        return decrypted;
+    }
+
+    private static CompletableFuture<String> handleEncryptedResponseAsync(HttpResponse<String> resp, SecretKey key) {
+        String decrypted;
+        try {
+            decrypted = decryptResponse(resp, key);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (decrypted != null) {
+            return CompletableFuture.completedFuture(decrypted);
+        }
+        System.out.println("密钥过期，重新握手...");
+        return handshakeAsync().thenApply(v -> {
+            throw new RuntimeException("RETRY");
+        });
+    }
+
+    /**
+     * 解密响应
+     * @return 解密后的 JSON；密钥过期 (code=556) 时返回 null
+     */
+    private static String decryptResponse(HttpResponse<String> resp, SecretKey key) {
         // 滑动续期：后端签发了新 token，更新本地存储
         resp.headers().firstValue("X-New-Token").ifPresent(newToken -> {
             SessionContext.getInstance().setJwtToken(newToken);
@@ -204,14 +408,8 @@ public class HttpService {
         try {
             String decrypted = CryptoUtil.decrypt(key, body.trim());
             // 检查是否密钥过期 (code=556)
-            if (decrypted.contains("\"code\":556")) {
-                System.out.println("密钥过期，重新握手...");
-                handshake();
-                throw new RuntimeException("RETRY");
-            }
-            return decrypted;
+            return decrypted.contains("\"code\":556") ? null : decrypted;
         } catch (RuntimeException re) {
-            if ("RETRY".equals(re.getMessage())) throw re;
             // 如果解密失败，可能是明文响应
             return body;
         } catch (Exception e) {
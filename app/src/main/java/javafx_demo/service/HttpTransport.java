@@ -0,0 +1,177 @@
+package javafx_demo.service;
+
+import javafx_demo.utils.ConfigManager;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 共享的 HTTP 传输层 — HttpService 与 SseClient 共用同一个 HttpClient
+ * <p>
+ * HttpClient 自带连接池和选择器线程，每次新建都会丢掉已建立的连接，重新走 TCP 握手。
+ * 全局只保留一个实例，按 application.properties 中的 http.* 配置：
+ * <ul>
+ *   <li>http.version — HTTP_1_1 或 HTTP_2。HTTP_2 对 https 走 ALPN 协商，
+ *       对 http 在首个请求上发 h2c Upgrade，服务端不支持时自动回落到 HTTP/1.1。
+ *       java.net.http 不支持 prior-knowledge 直连 h2c，所以只能走 Upgrade。</li>
+ *   <li>http.executor — default（HttpClient 内置线程池）、virtual（每个任务一个虚拟线程）
+ *       或 fixed（http.executor.threads 个守护线程的有界线程池）</li>
+ *   <li>http.keep-alive.timeout / http.keep-alive.pool-size — 空闲连接保留秒数与连接池上限（0 不限）。
+ *       这两项是 JDK 的系统属性，整个进程只在第一次创建 HttpClient 时读取一次，
+ *       启动参数里用 -D 显式指定的优先。</li>
+ * </ul>
+ */
+public final class HttpTransport {
+
+    private static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+    private static final String KEEP_ALIVE_H2_PROPERTY = "jdk.httpclient.keepalive.timeout.h2";
+    private static final String POOL_SIZE_PROPERTY = "jdk.httpclient.connectionPoolSize";
+
+    private static volatile HttpTransport instance;
+
+    private final HttpClient client;
+    private final ExecutorService ownedExecutor;
+
+    private HttpTransport(Builder builder) {
+        applyKeepAlive(builder.keepAliveSeconds, builder.poolSize);
+        this.ownedExecutor = switch (builder.executor) {
+            case "virtual" -> Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-", 0).factory());
+            case "fixed" -> newBoundedExecutor(builder.threads);
+            default -> null;
+        };
+        HttpClient.Builder b = HttpClient.newBuilder()
+                .version(builder.version)
+                .connectTimeout(Duration.ofMillis(builder.connectTimeoutMs));
+        if (ownedExecutor != null) {
+            b.executor(ownedExecutor);
+        }
+        this.client = b.build();
+    }
+
+    /** 按 application.properties 创建的全局实例 */
+    public static HttpTransport getInstance() {
+        if (instance == null) {
+            synchronized (HttpTransport.class) {
+                if (instance == null) {
+                    instance = fromConfig(ConfigManager.getInstance());
+                }
+            }
+        }
+        return instance;
+    }
+
+    static HttpTransport fromConfig(ConfigManager config) {
+        return newBuilder()
+                .version("HTTP_1_1".equalsIgnoreCase(config.getHttpVersion())
+                        ? HttpClient.Version.HTTP_1_1 : HttpClient.Version.HTTP_2)
+                .executor(config.getHttpExecutor(), config.getHttpExecutorThreads())
+                .keepAlive(config.getHttpKeepAliveTimeout(), config.getHttpPoolSize())
+                .connectTimeout(config.getConnectionTimeout())
+                .build();
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public HttpClient client() {
+        return client;
+    }
+
+    /** 异步流水线中非网络阶段（签名、加解密）使用的线程池 */
+    public Executor executor() {
+        return ownedExecutor != null ? ownedExecutor : ForkJoinPool.commonPool();
+    }
+
+    /** 关闭连接池和自建的线程池，之后不能再发请求 */
+    public void close() {
+        client.shutdownNow();
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdownNow();
+        }
+    }
+
+    private static void applyKeepAlive(int keepAliveSeconds, int poolSize) {
+        if (keepAliveSeconds >= 0) {
+            setIfAbsent(KEEP_ALIVE_PROPERTY, keepAliveSeconds);
+            setIfAbsent(KEEP_ALIVE_H2_PROPERTY, keepAliveSeconds);
+        }
+        if (poolSize >= 0) {
+            setIfAbsent(POOL_SIZE_PROPERTY, poolSize);
+        }
+    }
+
+    private static void setIfAbsent(String property, int value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, String.valueOf(value));
+        }
+    }
+
+    private static ExecutorService newBoundedExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "http-" + count.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    public static class Builder {
+        private HttpClient.Version version = HttpClient.Version.HTTP_2;
+        private String executor = "default";
+        private int threads = 4;
+        private int keepAliveSeconds = -1;
+        private int poolSize = -1;
+        private int connectTimeoutMs = 10_000;
+
+        private Builder() {}
+
+        public Builder version(HttpClient.Version version) {
+            this.version = version;
+            return this;
+        }
+
+        /**
+         * @param executor default / virtual / fixed
+         * @param threads  fixed 线程池的线程数
+         */
+        public Builder executor(String executor, int threads) {
+            if (threads <= 0) {
+                throw new IllegalArgumentException("threads must be positive: " + threads);
+            }
+            this.executor = executor;
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * @param timeoutSeconds 空闲连接保留秒数，负数使用 JDK 默认值
+         * @param poolSize       连接池上限，0 不限，负数使用 JDK 默认值
+         */
+        public Builder keepAlive(int timeoutSeconds, int poolSize) {
+            this.keepAliveSeconds = timeoutSeconds;
+            this.poolSize = poolSize;
+            return this;
+        }
+
+        public Builder connectTimeout(int millis) {
+            this.connectTimeoutMs = millis;
+            return this;
+        }
+
+        public HttpTransport build() {
+            return new HttpTransport(this);
+        }
+    }
+}
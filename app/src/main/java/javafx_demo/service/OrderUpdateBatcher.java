@@ -0,0 +1,90 @@
+package javafx_demo.service;
+
+import javafx_demo.utils.ConfigManager;
+import javafx_demo.utils.FutureUtil;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * SSE 订单更新合并 — 收集一个时间窗口内的 UPDATE 事件，窗口结束后用一次请求拉取全部订单，
+ * 再在 deliver 线程（界面传入 Platform::runLater）一次性应用
+ * <p>
+ * 同一窗口内重复的 orderId 只拉取一次。批次依次执行：上一批的结果应用之后才发下一批请求，
+ * 较早的响应不会覆盖较新的数据；上一批进行中到达的事件进入下一批。
+ */
+public class OrderUpdateBatcher {
+
+    private final long windowMillis;
+    private final Function<Collection<String>, CompletableFuture<Map<String, Map<String, Object>>>> fetcher;
+    private final Consumer<Map<String, Map<String, Object>>> applier;
+    private final Executor deliver;
+
+    private final Object lock = new Object();
+    private Set<String> pending = new LinkedHashSet<>();
+    private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+    /**
+     * @param windowMillis 第一个事件到达后等待多久再拉取
+     * @param fetcher      orderIds → 订单，一般为 {@link ApiService#getOrderDetailsAsync}
+     * @param applier      应用一批结果，在 deliver 上执行；不存在的工单不在结果中
+     * @param deliver      执行 applier 的线程
+     */
+    public OrderUpdateBatcher(long windowMillis,
+                              Function<Collection<String>, CompletableFuture<Map<String, Map<String, Object>>>> fetcher,
+                              Consumer<Map<String, Map<String, Object>>> applier,
+                              Executor deliver) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("windowMillis must not be negative: " + windowMillis);
+        }
+        this.windowMillis = windowMillis;
+        this.fetcher = fetcher;
+        this.applier = applier;
+        this.deliver = deliver;
+    }
+
+    /** 窗口长度取自 application.properties 的 sse.update-batch-window */
+    public OrderUpdateBatcher(Consumer<Map<String, Map<String, Object>>> applier, Executor deliver) {
+        this(ConfigManager.getInstance().getSseUpdateBatchWindow(), ApiService::getOrderDetailsAsync, applier, deliver);
+    }
+
+    /** 登记一条更新，窗口内的第一条负责安排拉取 */
+    public void submit(String orderId) {
+        synchronized (lock) {
+            if (!pending.add(orderId) || pending.size() > 1) {
+                return;
+            }
+        }
+        CompletableFuture.delayedExecutor(windowMillis, TimeUnit.MILLISECONDS).execute(this::flush);
+    }
+
+    /** 丢弃尚未拉取的更新（如 SSE 重连后整表重新加载时），已发出的请求仍会应用 */
+    public void clear() {
+        synchronized (lock) {
+            pending.clear();
+        }
+    }
+
+    private void flush() {
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            Set<String> batch = pending;
+            pending = new LinkedHashSet<>();
+            tail = tail.thenCompose(v -> fetcher.apply(batch))
+                    .thenAcceptAsync(applier, deliver)
+                    .exceptionally(e -> {
+                        System.err.println("批量更新工单失败 " + batch + ": " + FutureUtil.unwrap(e).getMessage());
+                        return null;
+                    });
+        }
+    }
+}
@@ -12,7 +12,6 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -36,7 +35,17 @@ public class SseClient {
         void onEvent(String domain, String action, String resourceId);
     }
 
+    /** 拦截器 — 在 SSE 线程上同步执行，早于 UI 回调，适合做缓存失效 */
+    public interface Interceptor {
+        void onEvent(String domain, String action, String resourceId);
+
+        /** 连接（重新）建立时调用，断线期间的事件已丢失 */
+        default void onConnected() {}
+    }
+
     private final Map<String, CopyOnWriteArrayList<EventHandler>> listeners = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<Interceptor> interceptors = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<Runnable> connectedHandlers = new CopyOnWriteArrayList<>();
     private final AtomicBoolean running = new AtomicBoolean(false);
     private volatile Thread workerThread;
     private volatile List<String> domains;
@@ -85,9 +94,25 @@ public class SseClient {
         listeners.remove(domain);
     }
 
-    /** 清除所有监听 */
+    /**
+     * 注册连接（重新）建立时的回调，在拦截器的 onConnected 之后于 JavaFX 线程执行，
+     * 适合重新拉取断线期间可能过时的界面数据
+     */
+    public void onConnected(Runnable handler) {
+        connectedHandlers.add(handler);
+    }
+
+    /** 清除所有监听（不包括拦截器） */
     public void offAll() {
         listeners.clear();
+        connectedHandlers.clear();
+    }
+
+    /**
+     * 注册拦截器，每条事件先同步经过所有拦截器，再投递到 JavaFX 线程
+     */
+    public void intercept(Interceptor interceptor) {
+        interceptors.add(interceptor);
     }
 
     // ==================== 内部实现 ====================
@@ -139,9 +164,8 @@ public class SseClient {
         String message = "GET\n" + path + "\n" + timestamp + "\n";
         String signature = CryptoUtil.hmacSign(key, message);
 
-        HttpClient client = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
+        // 与 HttpService 共用连接池，重连不再新建客户端
+        HttpClient client = HttpTransport.getInstance().client();
 
         HttpRequest.Builder reqBuilder = HttpRequest.newBuilder()
                 .uri(URI.create(BASE_URL + path))
@@ -164,6 +188,14 @@ public class SseClient {
             throw new RuntimeException("SSE 连接失败: HTTP " + resp.statusCode());
         }
         System.out.println("[SSE] 连接已建立");
+        for (Interceptor i : interceptors) {
+            try { i.onConnected(); } catch (Exception e) { e.printStackTrace(); }
+        }
+        Platform.runLater(() -> {
+            for (Runnable h : connectedHandlers) {
+                try { h.run(); } catch (Exception e) { e.printStackTrace(); }
+            }
+        });
 
         try (var is = resp.body();
              var reader = new java.io.BufferedReader(new java.io.InputStreamReader(is, java.nio.charset.StandardCharsets.UTF_8))) {
@@ -191,6 +223,10 @@ public class SseClient {
             String action = json.path("action").asText("");
             String resourceId = json.path("resourceId").asText("");
 
+            // 拦截器先执行，保证 UI 回调读到的是失效后的数据
+            for (Interceptor i : interceptors) {
+                try { i.onEvent(domain, action, resourceId); } catch (Exception e) { e.printStackTrace(); }
+            }
             // 在 JavaFX 线程上回调
             Platform.runLater(() -> dispatch(domain, action, resourceId));
         } catch (Exception e) {
@@ -1,4 +1,185 @@
 package javafx_demo.utils;
+
+import javafx_demo.utils.cache.BinaryCodec;
+import javafx_demo.utils.cache.CacheHandler;
+import javafx_demo.utils.cache.CacheStats;
+import javafx_demo.utils.cache.Codec;
+import javafx_demo.utils.cache.DiskTier;
+import javafx_demo.utils.cache.EvictionPolicy;
+import javafx_demo.utils.cache.ExpirePolicy;
+import javafx_demo.utils.cache.LRUCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * 缓存上下文 — 单例，全应用共用的命名缓存注册表
+ * <p>
+ * 缓存按名称在首次使用时创建，容量、过期时间和策略取自 application.properties：
+ * <pre>
+ * cache.&lt;name&gt;.capacity     容量，缺省为 cache.capacity
+ * cache.&lt;name&gt;.expire-time  过期时间（毫秒），缺省为 cache.expire-time
+ * cache.&lt;name&gt;.policy       after-access | after-write，缺省 after-access
+ * cache.&lt;name&gt;.eviction     lru | w-tiny-lfu，缺省 lru
+ * cache.&lt;name&gt;.persist      true 时写入 ~/.future_pal/cache/&lt;userId&gt;/&lt;name&gt;，重启后仍可命中，缺省 false
+ * </pre>
+ * 软引用、后台刷新等与配置无关的特性由调用方通过 {@link #define} 声明。
+ * 落盘的值默认用 {@link BinaryCodec} 编码，其他类型需在声明时给出 {@link Codec}。
+ * 磁盘目录打不开（如另一个终端正以同一用户运行）时退化为纯内存缓存。
+ * 关掉 persist 的缓存在下次创建时删除其旧目录。
+ * {@code cache.enabled=false} 时所有缓存容量为 0，读取全部穿透到加载函数。
+ * 登出时 {@link #shutdown()} 关闭并清空全部缓存，下个用户使用时重新创建。
+ */
 public class CacheContext {
-    
+
+    private static final CacheContext INSTANCE = new CacheContext();
+
+    private final ConfigManager config;
+    private final CacheHandler handler = new CacheHandler();
+    /** 缓存名 → 配置之外的特性，重建时复用 */
+    private final Map<String, Supplier<? extends LRUCache.Builder<?, ?>>> definitions = new ConcurrentHashMap<>();
+    /** 缓存名 → 落盘时的值编码 */
+    private final Map<String, Codec<?>> valueCodecs = new ConcurrentHashMap<>();
+
+    private CacheContext() {
+        this(ConfigManager.getInstance());
+    }
+
+    // 测试用：以给定配置建独立的注册表
+    CacheContext(ConfigManager config) {
+        this.config = config;
+    }
+
+    public static CacheContext getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return config.isCacheEnabled();
+    }
+
+    /**
+     * 声明一个命名缓存的特性；容量、过期时间和策略总是以配置为准，builder 中的设置会被覆盖。
+     * 需在第一次 {@link #getCache} 之前调用。
+     */
+    public <K, V> void define(String name, Supplier<LRUCache.Builder<K, V>> features) {
+        definitions.put(name, features);
+    }
+
+    /** 同上，并指定开启 persist 时值的编码方式 */
+    public <K, V> void define(String name, Supplier<LRUCache.Builder<K, V>> features, Codec<V> valueCodec) {
+        define(name, features);
+        valueCodecs.put(name, valueCodec);
+    }
+
+    /** 获取命名缓存，不存在时按声明和配置创建 */
+    public <K, V> LRUCache<K, V> getCache(String name) {
+        return handler.getCache(name, () -> this.<K, V>builder(name));
+    }
+
+    /** 各缓存的命中统计（仅 recordStats 的缓存有数据） */
+    public Map<String, CacheStats> stats() {
+        return handler.stats();
+    }
+
+    /** 关闭并移除全部缓存（登出时调用），之后的 getCache 会重新创建空缓存 */
+    public void shutdown() {
+        handler.shutdown();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K, V> LRUCache.Builder<K, V> builder(String name) {
+        Supplier<? extends LRUCache.Builder<?, ?>> features = definitions.get(name);
+        LRUCache.Builder<K, V> builder = features != null
+                ? (LRUCache.Builder<K, V>) features.get()
+                : LRUCache.newBuilder();
+        int capacity = isEnabled() ? config.getCacheCapacity(name) : 0;
+        builder.capacity(capacity)
+                .expireAfter(config.getCacheExpireTime(name), expirePolicy(name))
+                .evictionPolicy(evictionPolicy(name));
+        if (isEnabled() && config.isCachePersistent(name)) {
+            DiskTier<K, V> tier = openDiskTier(name);
+            if (tier != null) {
+                builder.diskTier(tier);
+            }
+        } else if (isEnabled()) {
+            deleteDiskTier(name);
+        }
+        return builder;
+    }
+
+    /** 不再落盘的缓存，删掉以前版本留下的目录，不让旧数据一直明文留在磁盘上 */
+    private void deleteDiskTier(String name) {
+        Path dir = diskTierDir(name);
+        if (dir == null || !Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            System.err.println("缓存 " + name + " 的旧磁盘目录删除失败: " + e.getMessage());
+        }
+    }
+
+    private static Path diskTierDir(String name) {
+        long userId = SessionContext.getInstance().getUserId();
+        return userId == 0 ? null
+                : SessionContext.getDataDir().resolve("cache").resolve(String.valueOf(userId)).resolve(name);
+    }
+
+    /** 按用户分目录，避免切换账号后读到上一个用户的数据；未登录时不落盘 */
+    @SuppressWarnings("unchecked")
+    private <K, V> DiskTier<K, V> openDiskTier(String name) {
+        Path dir = diskTierDir(name);
+        if (dir == null) {
+            return null;
+        }
+        Codec<V> valueCodec = (Codec<V>) valueCodecs.getOrDefault(name, new BinaryCodec<>(1024));
+        try {
+            return DiskTier.open(dir, new BinaryCodec<>(), valueCodec);
+        } catch (IOException e) {
+            System.err.println("缓存 " + name + " 无法落盘，仅使用内存: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private ExpirePolicy expirePolicy(String name) {
+        String value = config.getCachePolicy(name);
+        if (value == null) {
+            return ExpirePolicy.AFTER_ACCESS;
+        }
+        try {
+            return ExpirePolicy.valueOf(constantName(value));
+        } catch (IllegalArgumentException e) {
+            System.err.println("未知的过期策略 cache." + name + ".policy=" + value + "，使用 after-access");
+            return ExpirePolicy.AFTER_ACCESS;
+        }
+    }
+
+    private EvictionPolicy evictionPolicy(String name) {
+        String value = config.getCacheEviction(name);
+        if (value == null) {
+            return EvictionPolicy.LRU;
+        }
+        try {
+            return EvictionPolicy.valueOf(constantName(value));
+        } catch (IllegalArgumentException e) {
+            System.err.println("未知的淘汰策略 cache." + name + ".eviction=" + value + "，使用 lru");
+            return EvictionPolicy.LRU;
+        }
+    }
+
+    /** after-write → AFTER_WRITE，w-tiny-lfu → W_TINY_LFU */
+    private static String constantName(String value) {
+        return value.trim().replace('-', '_').toUpperCase(Locale.ROOT);
+    }
 }
@@ -18,6 +18,12 @@ public class ConfigManager {
         loadProperties();
     }
 
+    // 测试用：直接给定配置，不读 application.properties
+    ConfigManager(Properties properties) {
+        this.properties = properties;
+        resolvePropertyReferences();
+    }
+
     public static ConfigManager getInstance() {
         if (instance == null) {
             synchronized (ConfigManager.class) {
@@ -153,6 +159,78 @@ public class ConfigManager {
         return getIntProperty("connection.read-timeout", 10000);
     }
 
+    // HTTP transport settings getters
+    public String getHttpVersion() {
+        return getProperty("http.version", "HTTP_2");
+    }
+
+    public String getHttpExecutor() {
+        return getProperty("http.executor", "default");
+    }
+
+    public int getHttpExecutorThreads() {
+        return getIntProperty("http.executor.threads", 4);
+    }
+
+    /** -1 keeps the JDK default */
+    public int getHttpKeepAliveTimeout() {
+        return getIntProperty("http.keep-alive.timeout", -1);
+    }
+
+    /** -1 keeps the JDK default, 0 is unbounded */
+    public int getHttpPoolSize() {
+        return getIntProperty("http.keep-alive.pool-size", -1);
+    }
+
+    // Upload settings getters
+    /** files larger than this many bytes are uploaded in chunks */
+    public long getUploadChunkThreshold() {
+        return getLongProperty("upload.chunk.threshold", 4L * 1024 * 1024);
+    }
+
+    public int getUploadChunkSize() {
+        return getIntProperty("upload.chunk.size", 1024 * 1024);
+    }
+
+    public int getUploadChunkParallelism() {
+        return getIntProperty("upload.chunk.parallelism", 3);
+    }
+
+    public int getUploadChunkRetries() {
+        return getIntProperty("upload.chunk.retries", 5);
+    }
+
+    public long getUploadChunkRetryDelay() {
+        return getLongProperty("upload.chunk.retry-delay", 500);
+    }
+
+    public boolean isUploadImageCompressEnabled() {
+        return getBooleanProperty("upload.image.compress", true);
+    }
+
+    /** longest side in pixels after downscaling */
+    public int getUploadImageMaxDimension() {
+        return getIntProperty("upload.image.max-dimension", 1920);
+    }
+
+    public float getUploadImageJpegQuality() {
+        String value = getProperty("upload.image.jpeg-quality");
+        if (value == null) {
+            return 0.8f;
+        }
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            return 0.8f;
+        }
+    }
+
+    // SSE settings getters
+    /** ORDER UPDATE events arriving within this many ms are fetched with one request */
+    public long getSseUpdateBatchWindow() {
+        return getLongProperty("sse.update-batch-window", 100);
+    }
+
     // Cache settings getters
     public boolean isCacheEnabled() {
         return getBooleanProperty("cache.enabled", true);
@@ -166,6 +244,27 @@ public class ConfigManager {
         return getLongProperty("cache.expire-time", 300000);
     }
 
+    // Named cache settings (cache.<name>.*), falling back to the global values
+    public int getCacheCapacity(String name) {
+        return getIntProperty("cache." + name + ".capacity", getCacheCapacity());
+    }
+
+    public long getCacheExpireTime(String name) {
+        return getLongProperty("cache." + name + ".expire-time", getCacheExpireTime());
+    }
+
+    public String getCachePolicy(String name) {
+        return getProperty("cache." + name + ".policy");
+    }
+
+    public String getCacheEviction(String name) {
+        return getProperty("cache." + name + ".eviction");
+    }
+
+    public boolean isCachePersistent(String name) {
+        return getBooleanProperty("cache." + name + ".persist", false);
+    }
+
     // App settings getters
     public String getAppTitle() {
         return getProperty("app.title", "JavaFX Application");
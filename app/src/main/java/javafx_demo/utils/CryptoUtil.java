@@ -84,8 +84,19 @@ public class CryptoUtil {
         Mac mac = Mac.getInstance("HmacSHA256");
         mac.init(new SecretKeySpec(key.getEncoded(), "HmacSHA256"));
         byte[] result = mac.doFinal(message.getBytes(StandardCharsets.UTF_8));
-        StringBuilder sb = new StringBuilder(result.length * 2);
-        for (byte b : result) sb.append(String.format("%02x", b & 0xff));
+        return toHex(result);
+    }
+
+    /** SHA-256 摘要 → hex 字符串（分片上传的内容校验） */
+    public static String sha256Hex(byte[] data, int offset, int length) throws Exception {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        sha256.update(data, offset, length);
+        return toHex(sha256.digest());
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) sb.append(String.format("%02x", b & 0xff));
         return sb.toString();
     }
 }
@@ -0,0 +1,98 @@
+package javafx_demo.utils;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * CompletableFuture 工具 — 异步请求流水线的公共部分
+ */
+public final class FutureUtil {
+
+    private FutureUtil() {}
+
+    /** 可抛出受检异常的流水线阶段 */
+    @FunctionalInterface
+    public interface Stage<T, R> {
+        R apply(T input) throws Exception;
+    }
+
+    /** 包装成 thenApply 可用的函数，受检异常转为 CompletionException，取出时由 {@link #unwrap} 还原 */
+    public static <T, R> Function<T, R> stage(Stage<T, R> stage) {
+        return input -> {
+            try {
+                return stage.apply(input);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        };
+    }
+
+    /**
+     * 取消 downstream 时一并取消 upstream。thenApply 等派生出的 future 被取消时不会影响上游，
+     * 网络请求需要这样显式传递才能真正中止。
+     * @return downstream
+     */
+    public static <T> CompletableFuture<T> propagateCancel(CompletableFuture<T> downstream, Future<?> upstream) {
+        downstream.whenComplete((value, error) -> {
+            if (downstream.isCancelled()) {
+                upstream.cancel(true);
+            }
+        });
+        return downstream;
+    }
+
+    /**
+     * 同 {@code first.thenCompose(next)}，但取消返回的 future 时，会取消当时正在进行的那一段：
+     * first 或 next 返回的 future。first 完成前被取消则 next 不会执行。
+     */
+    public static <T, R> CompletableFuture<R> composeCancellable(CompletableFuture<T> first,
+                                                              Function<? super T, ? extends CompletableFuture<R>> next) {
+        AtomicReference<Future<?>> current = new AtomicReference<>(first);
+        AtomicReference<CompletableFuture<R>> result = new AtomicReference<>();
+        CompletableFuture<R> composed = first.thenCompose(value -> {
+            CompletableFuture<R> second = next.apply(value);
+            current.set(second);
+            CompletableFuture<R> r = result.get();
+            if (r != null && r.isCancelled()) {
+                second.cancel(true);
+            }
+            return second;
+        });
+        result.set(composed);
+        composed.whenComplete((value, error) -> {
+            if (composed.isCancelled()) {
+                current.get().cancel(true);
+            }
+        });
+        return composed;
+    }
+
+    /** 去掉 CompletionException / ExecutionException 外壳，得到真正的失败原因 */
+    public static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    /** 阻塞等待结果，失败时抛出原始异常（同步 API 的包装） */
+    public static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CancellationException e) {
+            throw e;
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package javafx_demo.utils;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+
+import java.io.File;
+
+/**
+ * 截图预览缓存 — 按 路径 + 修改时间 + 文件大小 + 预览尺寸 缓存解码后的预览图
+ * <p>
+ * 图片以预览分辨率在后台解码，选择大图时对话框不再卡顿；同一文件再次选择
+ * （包括接单后在结束工单对话框中选择）直接复用已解码的图片。
+ * 内存按预览尺寸估算（宽 × 高 × 4 字节），总量受 {@link #MAX_BYTES} 限制；
+ * 图片以软引用持有，堆内存紧张时可被回收，缓存也会主动淘汰一半。
+ * 键、淘汰和失效逻辑在 {@link PreviewCache} 中，这里只做 JavaFX {@link Image} 的适配。
+ */
+public class ImageCache {
+
+    /** 预览图内存上限 */
+    private static final long MAX_BYTES = 64L * 1024 * 1024;
+    private static final int CAPACITY = 512;
+    private static final long EXPIRE_TIME = 30 * 60 * 1000;
+
+    // ---- 单例 ----
+    private static final ImageCache INSTANCE = new ImageCache();
+    public static ImageCache getInstance() { return INSTANCE; }
+
+    private final PreviewCache<Image> cache = new PreviewCache<>(new PreviewCache.Decoder<Image>() {
+        @Override
+        public Image load(File file, double width, double height) {
+            return new Image(file.toURI().toString(), width, height, true, true, true);
+        }
+
+        @Override
+        public long weight(Image image) {
+            return (long) (image.getRequestedWidth() * image.getRequestedHeight() * 4);
+        }
+
+        @Override
+        public boolean isLoading(Image image) {
+            return image.getProgress() < 1;
+        }
+
+        @Override
+        public boolean isError(Image image) {
+            return image.isError();
+        }
+
+        @Override
+        public void onError(Image image, Runnable callback) {
+            image.errorProperty().addListener((obs, wasError, isError) -> {
+                if (isError) callback.run();
+            });
+        }
+
+        @Override
+        public void cancel(Image image) {
+            Platform.runLater(image::cancel);
+        }
+    }, CAPACITY, EXPIRE_TIME, MAX_BYTES);
+
+    private ImageCache() {}
+
+    /**
+     * 获取预览图（在 FX 线程调用）。未缓存时立即返回一个后台解码中的 Image，
+     * 设置到 ImageView 后解码完成会自动显示。
+     */
+    public Image getPreview(File file, double width, double height) {
+        return cache.get(file, width, height);
+    }
+}
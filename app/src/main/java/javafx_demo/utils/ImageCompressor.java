@@ -0,0 +1,292 @@
+package javafx_demo.utils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 截图上传前压缩 — 缩到最长边不超过 upload.image.max-dimension，再以 upload.image.jpeg-quality 编码为 JPEG
+ * <p>
+ * 解码时按整数倍降采样读取到目标尺寸的约两倍，原图不会以全分辨率进入内存；
+ * 剩余的缩放用双线性插值分步完成，比直接跳读到目标尺寸少锯齿。
+ * 透明区域填充白色。以下情况直接上传原文件：ImageIO 不支持的格式（如 webp）、
+ * 尺寸已达标的 JPEG、压缩后反而更大。
+ * <p>
+ * 压缩结果按 原文件路径 + 大小 + 修改时间 + 参数 缓存在 ~/.future_pal/upload/ 下，同一截图重试上传时
+ * 不再重新编码，分片上传也能按同一文件续传；上传成功后由调用方 {@link Result#discard()} 删除。
+ * 上传失败后遗留的文件在超过 {@link #STALE_AGE_MS} 未使用后，于下次压缩时清理。
+ */
+public class ImageCompressor {
+
+    /** 压缩结果保留一天，足够覆盖同一截图的重试和续传 */
+    static final long STALE_AGE_MS = 24 * 60 * 60 * 1000L;
+
+    private static volatile ImageCompressor instance;
+
+    private final Path outputDir;
+    private final boolean enabled;
+    private final int maxDimension;
+    private final float quality;
+    private final AtomicBoolean pruned = new AtomicBoolean();
+
+    public ImageCompressor(int maxDimension, float quality) {
+        this(true, maxDimension, quality);
+    }
+
+    public ImageCompressor(boolean enabled, int maxDimension, float quality) {
+        this(SessionContext.getDataDir().resolve("upload"), enabled, maxDimension, quality);
+    }
+
+    // 测试用：输出到指定目录
+    ImageCompressor(Path outputDir, boolean enabled, int maxDimension, float quality) {
+        if (maxDimension <= 0) {
+            throw new IllegalArgumentException("maxDimension must be positive: " + maxDimension);
+        }
+        if (quality <= 0 || quality > 1) {
+            throw new IllegalArgumentException("quality must be in (0, 1]: " + quality);
+        }
+        this.outputDir = outputDir;
+        this.enabled = enabled;
+        this.maxDimension = maxDimension;
+        this.quality = quality;
+    }
+
+    /** 按 application.properties 中 upload.image.* 配置的全局实例 */
+    public static ImageCompressor getInstance() {
+        if (instance == null) {
+            synchronized (ImageCompressor.class) {
+                if (instance == null) {
+                    ConfigManager config = ConfigManager.getInstance();
+                    instance = new ImageCompressor(config.isUploadImageCompressEnabled(),
+                            config.getUploadImageMaxDimension(), config.getUploadImageJpegQuality());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 压缩结果
+     * @param file            要上传的文件，未压缩时即原文件
+     * @param originalBytes   原文件大小
+     * @param compressedBytes 上传文件大小
+     * @param compressed      file 是否为压缩产生的新文件
+     */
+    public record Result(File file, long originalBytes, long compressedBytes, boolean compressed) {
+        public long savedBytes() {
+            return originalBytes - compressedBytes;
+        }
+
+        /** 删除压缩产生的文件，原文件不受影响 */
+        public void discard() {
+            if (compressed) {
+                try {
+                    Files.deleteIfExists(file.toPath());
+                } catch (IOException e) {
+                    System.err.println("删除压缩文件失败: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /** 在后台线程压缩，失败时回退为原文件 */
+    public CompletableFuture<Result> compressAsync(File source) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return compress(source);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }).exceptionally(e -> {
+            System.err.println("图片压缩失败，上传原图: " + FutureUtil.unwrap(e).getMessage());
+            return unchanged(source);
+        });
+    }
+
+    /** 已有的压缩结果文件，没有时返回原文件 */
+    public File cachedOutput(File source) {
+        try {
+            File output = outputDir.resolve(outputName(source)).toFile();
+            return output.exists() ? output : source;
+        } catch (IOException e) {
+            return source;
+        }
+    }
+
+    public Result compress(File source) throws IOException {
+        if (pruned.compareAndSet(false, true)) {
+            pruneStale();
+        }
+        if (!enabled) {
+            return unchanged(source);
+        }
+        Path output = outputDir.resolve(outputName(source));
+        if (Files.exists(output)) {
+            // 重用即续期，清理只看最后一次使用
+            Files.setLastModifiedTime(output, FileTime.fromMillis(System.currentTimeMillis()));
+            return result(source, output.toFile());
+        }
+
+        BufferedImage image;
+        try (ImageInputStream in = ImageIO.createImageInputStream(source)) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return unchanged(source);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int longest = Math.max(width, height);
+                boolean jpeg = reader.getFormatName().toLowerCase(Locale.ROOT).contains("jp");
+                if (jpeg && longest <= maxDimension) {
+                    return unchanged(source);
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                // 只跳读到目标的约两倍，余下交给双线性缩放，否则跳读丢掉的细线和文字边缘无从插值
+                int step = longest / maxDimension / 2;
+                if (step >= 2) {
+                    // 解码阶段就按整数倍跳读像素，内存与耗时随之下降
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                image = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        BufferedImage scaled = toRgb(scale(image));
+        Files.createDirectories(outputDir);
+        Path temp = Files.createTempFile(outputDir, "encode-", ".tmp");
+        try {
+            writeJpeg(scaled, temp.toFile());
+            if (Files.size(temp) >= source.length()) {
+                return unchanged(source);
+            }
+            Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return result(source, output.toFile());
+    }
+
+    /** 删除久未使用的压缩结果和中断编码留下的临时文件 */
+    private void pruneStale() {
+        if (!Files.isDirectory(outputDir)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - STALE_AGE_MS;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(outputDir)) {
+            for (Path file : files) {
+                try {
+                    if (Files.isRegularFile(file) && Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (IOException e) {
+                    System.err.println("清理压缩文件失败: " + file.getFileName() + " " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("清理压缩文件失败: " + e.getMessage());
+        }
+    }
+
+    // 每步最多缩小一半，避免一次大比例双线性缩放产生锯齿
+    private BufferedImage scale(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double ratio = (double) maxDimension / Math.max(width, height);
+        if (ratio >= 1) {
+            return image;
+        }
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = image;
+        while (width != targetWidth || height != targetHeight) {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, width, height, null);
+            g.dispose();
+            current = next;
+        }
+        return current;
+    }
+
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, rgb.getWidth(), rgb.getHeight());
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return rgb;
+    }
+
+    private void writeJpeg(BufferedImage image, File target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // 保留原文件名，服务端记录的文件名仍可辨认
+    private String outputName(File source) throws IOException {
+        String key = source.getAbsolutePath() + "|" + source.length() + "|" + source.lastModified()
+                + "|" + maxDimension + "|" + quality;
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        String hash;
+        try {
+            hash = CryptoUtil.sha256Hex(bytes, 0, bytes.length).substring(0, 16);
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        String name = source.getName();
+        int dot = name.lastIndexOf('.');
+        return hash + "-" + (dot > 0 ? name.substring(0, dot) : name) + ".jpg";
+    }
+
+    private static Result result(File source, File output) {
+        return new Result(output, source.length(), output.length(), true);
+    }
+
+    private static Result unchanged(File source) {
+        return new Result(source, source.length(), source.length(), false);
+    }
+}
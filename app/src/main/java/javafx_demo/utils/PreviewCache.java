@@ -0,0 +1,76 @@
+package javafx_demo.utils;
+
+import javafx_demo.utils.cache.LRUCache;
+
+import java.io.File;
+
+/**
+ * {@link ImageCache} 中与 JavaFX 无关的部分：缓存键、按内存淘汰、解码失败失效、淘汰时取消解码。
+ * 图片类型经 {@link Decoder} 适配，测试可换成假图片，不需要启动 FX。
+ */
+final class PreviewCache<I> {
+
+    /** 图片类型的适配 */
+    interface Decoder<I> {
+        /** 开始后台解码，立即返回 */
+        I load(File file, double width, double height);
+
+        /** 按预览尺寸估算的内存字节数 */
+        long weight(I image);
+
+        boolean isLoading(I image);
+
+        boolean isError(I image);
+
+        /** 解码失败时执行 callback */
+        void onError(I image, Runnable callback);
+
+        /** 取消后台解码；在淘汰通知线程上调用 */
+        void cancel(I image);
+    }
+
+    private final Decoder<I> decoder;
+    private final LRUCache<String, I> cache;
+
+    PreviewCache(Decoder<I> decoder, int capacity, long expireTime, long maxBytes) {
+        this.decoder = decoder;
+        this.cache = LRUCache.<String, I>newBuilder()
+                .capacity(capacity)
+                .expireAfterAccess(expireTime)
+                .weigher((key, image) -> (int) Math.min(Integer.MAX_VALUE, decoder.weight(image)))
+                .maximumWeight(maxBytes)
+                .softValues()
+                .removalListener((key, image, cause) -> {
+                    // 淘汰时仍在解码的图片，取消其后台任务
+                    if (image != null && decoder.isLoading(image)) {
+                        decoder.cancel(image);
+                    }
+                })
+                .build();
+    }
+
+    /** 路径 + 修改时间 + 文件大小 + 预览尺寸，文件被改写后不会命中旧图 */
+    static String key(File file, double width, double height) {
+        return file.getAbsolutePath() + "|" + file.lastModified() + "|" + file.length()
+                + "|" + width + "x" + height;
+    }
+
+    I get(File file, double width, double height) {
+        String key = key(file, width, height);
+        I image = cache.get(key);
+        if (image != null) {
+            return image;
+        }
+        image = decoder.load(file, width, height);
+        // 解码失败的不缓存，下次重新尝试
+        decoder.onError(image, () -> cache.invalidate(key));
+        if (!decoder.isError(image)) {
+            cache.put(key, image);
+        }
+        return image;
+    }
+
+    void shutdown() {
+        cache.shutdown();
+    }
+}
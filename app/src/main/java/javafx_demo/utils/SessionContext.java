@@ -12,8 +12,8 @@ import java.util.UUID;
  */
 public class SessionContext {
 
-    private static final Path CLIENT_ID_FILE = Paths.get(
-            System.getProperty("user.home"), ".future_pal", "client.id");
+    private static final Path DATA_DIR = Paths.get(System.getProperty("user.home"), ".future_pal");
+    private static final Path CLIENT_ID_FILE = DATA_DIR.resolve("client.id");
     private static final SessionContext INSTANCE = new SessionContext();
 
     private String sessionId;      // ECDH 会话 ID
@@ -32,6 +32,11 @@ public class SessionContext {
         return INSTANCE;
     }
 
+    /** 本地数据目录 ~/.future_pal (客户端码、磁盘缓存) */
+    public static Path getDataDir() {
+        return DATA_DIR;
+    }
+
     // ---------- ECDH 会话 ----------
 
     public String getSessionId() { return sessionId; }
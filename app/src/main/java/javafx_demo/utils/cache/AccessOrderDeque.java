@@ -0,0 +1,120 @@
+package javafx_demo.utils.cache;
+
+/**
+ * Intrusive doubly-linked list ordered from least to most recently used. Every operation
+ * is O(1); callers are responsible for guarding it with the owning cache's lock. As an
+ * {@link EvictionOrder} it is plain LRU; {@link TinyLfuOrder} uses several as its regions.
+ */
+class AccessOrderDeque<K, V> implements EvictionOrder<K, V> {
+    private CacheEntry<K, V> first;
+    private CacheEntry<K, V> last;
+    private int size;
+
+    boolean isEmpty() {
+        return first == null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    CacheEntry<K, V> peekFirst() {
+        return first;
+    }
+
+    CacheEntry<K, V> peekLast() {
+        return last;
+    }
+
+    @Override
+    public boolean contains(CacheEntry<K, V> e) {
+        return e.prev != null || e.next != null || first == e;
+    }
+
+    void addLast(CacheEntry<K, V> e) {
+        e.prev = last;
+        e.next = null;
+        if (last == null) {
+            first = e;
+        } else {
+            last.next = e;
+        }
+        last = e;
+        size++;
+    }
+
+    CacheEntry<K, V> pollFirst() {
+        CacheEntry<K, V> e = first;
+        if (e != null) {
+            unlink(e);
+        }
+        return e;
+    }
+
+    @Override
+    public void remove(CacheEntry<K, V> e) {
+        if (contains(e)) {
+            unlink(e);
+        }
+    }
+
+    @Override
+    public void add(CacheEntry<K, V> e) {
+        addLast(e);
+    }
+
+    @Override
+    public void onAccess(CacheEntry<K, V> e) {
+        moveToBack(e);
+    }
+
+    @Override
+    public CacheEntry<K, V> victim() {
+        return first;
+    }
+
+    @Override
+    public CacheEntry<K, V> eldest() {
+        return first;
+    }
+
+    void moveToBack(CacheEntry<K, V> e) {
+        if (e == last) {
+            return;
+        }
+        unlink(e);
+        addLast(e);
+    }
+
+    @Override
+    public void clear() {
+        CacheEntry<K, V> e = first;
+        while (e != null) {
+            CacheEntry<K, V> next = e.next;
+            e.prev = null;
+            e.next = null;
+            e = next;
+        }
+        first = last = null;
+        size = 0;
+    }
+
+    private void unlink(CacheEntry<K, V> e) {
+        CacheEntry<K, V> prev = e.prev;
+        CacheEntry<K, V> next = e.next;
+        if (prev == null) {
+            first = next;
+        } else {
+            prev.next = next;
+        }
+        if (next == null) {
+            last = prev;
+        } else {
+            next.prev = prev;
+        }
+        e.prev = null;
+        e.next = null;
+        size--;
+    }
+}
@@ -0,0 +1,17 @@
+package javafx_demo.utils.cache;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes the values for several missing keys at once, e.g. one request with an id filter
+ * instead of one request per id. Like {@link CacheLoader} it may throw; the failure is handed
+ * to every caller waiting on any of the keys.
+ */
+@FunctionalInterface
+public interface BatchLoader<K, V> {
+    /**
+     * @return the values by key; keys left out or mapped to {@code null} are treated as absent
+     */
+    Map<K, V> loadAll(Set<? extends K> keys) throws Exception;
+}
@@ -0,0 +1,242 @@
+package javafx_demo.utils.cache;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact tagged binary format for the value shapes the API layer caches: {@code null},
+ * Boolean, Integer, Long, Double, String, byte[], List and Map (as produced by
+ * {@code ApiService.jsonNodeToMap}). Integers use zig-zag varints and strings are length-prefixed
+ * UTF-8. Payloads above the compression threshold are deflated; a leading flag byte tells
+ * which form follows. Decoded lists and maps are unmodifiable, since a value read back from
+ * disk is shared by every caller of the cache it is promoted into.
+ */
+public final class BinaryCodec<T> implements Codec<T> {
+    private static final int T_NULL = 0;
+    private static final int T_FALSE = 1;
+    private static final int T_TRUE = 2;
+    private static final int T_INT = 3;
+    private static final int T_LONG = 4;
+    private static final int T_DOUBLE = 5;
+    private static final int T_STRING = 6;
+    private static final int T_BYTES = 7;
+    private static final int T_LIST = 8;
+    private static final int T_MAP = 9;
+
+    private static final int RAW = 0;
+    private static final int DEFLATED = 1;
+
+    private final int compressThreshold;
+
+    /** Never compresses. */
+    public BinaryCodec() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param compressThreshold encoded size in bytes above which payloads are deflated
+     */
+    public BinaryCodec(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] encode(T value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        bytes.write(RAW);
+        DataOutputStream out = new DataOutputStream(bytes);
+        write(out, value);
+        out.flush();
+        byte[] raw = bytes.toByteArray();
+        if (raw.length - 1 <= compressThreshold) {
+            return raw;
+        }
+        return deflate(raw);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T decode(byte[] bytes) throws IOException {
+        if (bytes.length == 0) {
+            throw new IOException("empty payload");
+        }
+        byte[] raw = bytes[0] == DEFLATED ? inflate(bytes) : bytes;
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw, 1, raw.length - 1));
+        return (T) read(in);
+    }
+
+    private static void write(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.write(T_NULL);
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? T_TRUE : T_FALSE);
+        } else if (value instanceof Integer) {
+            out.write(T_INT);
+            writeVarLong(out, zigZag((Integer) value));
+        } else if (value instanceof Long) {
+            out.write(T_LONG);
+            writeVarLong(out, zigZag((Long) value));
+        } else if (value instanceof Double) {
+            out.write(T_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof String) {
+            byte[] utf8 = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.write(T_STRING);
+            writeVarLong(out, utf8.length);
+            out.write(utf8);
+        } else if (value instanceof byte[]) {
+            byte[] data = (byte[]) value;
+            out.write(T_BYTES);
+            writeVarLong(out, data.length);
+            out.write(data);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.write(T_LIST);
+            writeVarLong(out, list.size());
+            for (Object item : list) {
+                write(out, item);
+            }
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.write(T_MAP);
+            writeVarLong(out, map.size());
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                write(out, e.getKey());
+                write(out, e.getValue());
+            }
+        } else {
+            throw new IOException("unsupported type " + value.getClass().getName());
+        }
+    }
+
+    private static Object read(DataInputStream in) throws IOException {
+        int tag = in.read();
+        switch (tag) {
+            case T_NULL: return null;
+            case T_FALSE: return Boolean.FALSE;
+            case T_TRUE: return Boolean.TRUE;
+            case T_INT: return (int) unZigZag(readVarLong(in));
+            case T_LONG: return unZigZag(readVarLong(in));
+            case T_DOUBLE: return in.readDouble();
+            case T_STRING: return new String(readBytes(in), StandardCharsets.UTF_8);
+            case T_BYTES: return readBytes(in);
+            case T_LIST: {
+                int size = readLength(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(read(in));
+                }
+                return Collections.unmodifiableList(list);
+            }
+            case T_MAP: {
+                int size = readLength(in);
+                Map<Object, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(read(in), read(in));
+                }
+                return Collections.unmodifiableMap(map);
+            }
+            default:
+                throw new IOException("unknown tag " + tag);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] data = new byte[readLength(in)];
+        in.readFully(data);
+        return data;
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        long length = readVarLong(in);
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new IOException("bad length " + length);
+        }
+        return (int) length;
+    }
+
+    private static long zigZag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unZigZag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("varint too long");
+    }
+
+    // keeps the raw length up front so inflate can size its buffer exactly
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw, 1, raw.length - 1);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            out.write(DEFLATED);
+            int len = raw.length - 1;
+            out.write(len >>> 24);
+            out.write(len >>> 16);
+            out.write(len >>> 8);
+            out.write(len);
+            byte[] buf = new byte[4096];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buf);
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes) throws IOException {
+        if (bytes.length < 5) {
+            throw new IOException("truncated deflated payload");
+        }
+        int len = ((bytes[1] & 0xFF) << 24) | ((bytes[2] & 0xFF) << 16) | ((bytes[3] & 0xFF) << 8) | (bytes[4] & 0xFF);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, 5, bytes.length - 5);
+            byte[] raw = new byte[len + 1];
+            raw[0] = RAW;
+            int off = 1;
+            while (off < raw.length && !inflater.finished()) {
+                int n = inflater.inflate(raw, off, raw.length - off);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("truncated deflated payload");
+                }
+                off += n;
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt deflated payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package javafx_demo.utils.cache;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+
+/**
+ * A cache node that is also its own link in the access-order list and in its timer wheel
+ * bucket, so promoting, rescheduling or unlinking an entry never has to search for it.
+ */
+class CacheEntry<K, V> {
+    final K key;
+    V value; // null when the value is held through valueRef
+    Reference<V> valueRef;
+    volatile long expireTime;
+    volatile long refreshAt = Long.MAX_VALUE; // soft deadline after which a read reloads in the background
+    final long ttl;
+    int weight = 1;
+    long accessTime;
+    byte region; // TinyLfuOrder segment, 0 when unlinked
+
+    // access-order links
+    CacheEntry<K, V> prev;
+    CacheEntry<K, V> next;
+
+    // timer wheel bucket links
+    CacheEntry<K, V> timerPrev;
+    CacheEntry<K, V> timerNext;
+
+    CacheEntry(K key, V value, long ttl) {
+        this.key = key;
+        this.value = value;
+        this.ttl = ttl;
+    }
+
+    /** The value, or {@code null} once a soft or weak value has been collected. */
+    V getValue() {
+        Reference<V> ref = valueRef;
+        return ref == null ? value : ref.get();
+    }
+
+    /** A value reference that remembers its entry, so the cache can drop it once collected. */
+    interface ValueReference<K, V> {
+        CacheEntry<K, V> entry();
+    }
+
+    static final class SoftValue<K, V> extends SoftReference<V> implements ValueReference<K, V> {
+        private final CacheEntry<K, V> entry;
+
+        SoftValue(V value, ReferenceQueue<? super V> queue, CacheEntry<K, V> entry) {
+            super(value, queue);
+            this.entry = entry;
+        }
+
+        @Override
+        public CacheEntry<K, V> entry() {
+            return entry;
+        }
+    }
+
+    static final class WeakValue<K, V> extends WeakReference<V> implements ValueReference<K, V> {
+        private final CacheEntry<K, V> entry;
+
+        WeakValue(V value, ReferenceQueue<? super V> queue, CacheEntry<K, V> entry) {
+            super(value, queue);
+            this.entry = entry;
+        }
+
+        @Override
+        public CacheEntry<K, V> entry() {
+            return entry;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Entry{" +
+                "key=" + key +
+                ", value=" + getValue() +
+                ", expireTime=" + expireTime +
+                '}';
+    }
+}
@@ -1,47 +1,137 @@
 package javafx_demo.utils.cache;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 
 public class CacheHandler {
     private final ConcurrentMap<String, LRUCache<?, ?>> caches = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongLRUCache<?>> longCaches = new ConcurrentHashMap<>();
+    private final ReentrantLock budgetLock = new ReentrantLock();
+    private volatile long memoryBudget; // summed weight of all caches, 0 means unlimited
 
     @SuppressWarnings("unchecked")
     public <K,V> LRUCache<K, V> getCache(String name) {
-        return (LRUCache<K,V>)caches.computeIfAbsent(name, k -> new LRUCache<>());
+        return (LRUCache<K,V>)caches.computeIfAbsent(name, k -> register(new LRUCache<>()));
     }
 
     @SuppressWarnings("unchecked")
     public<K,V> LRUCache<K, V> getCache(String name, int capacity) {
-        return (LRUCache<K,V>)caches.computeIfAbsent(name, k -> new LRUCache<>(capacity));
+        return (LRUCache<K,V>)caches.computeIfAbsent(name, k -> register(new LRUCache<>(capacity)));
     }
 
     @SuppressWarnings("unchecked")
     public<K,V> LRUCache<K, V> getCache(String name, long expireTime) {
-        return (LRUCache<K,V>)caches.computeIfAbsent(name, k -> new LRUCache<>(expireTime));
+        return (LRUCache<K,V>)caches.computeIfAbsent(name, k -> register(new LRUCache<>(expireTime)));
     }
 
     
     @SuppressWarnings("unchecked")
     public<K,V> LRUCache<K, V> getCache(String name, int capacity, long expireTime) {
-        return (LRUCache<K,V>)caches.computeIfAbsent(name, k -> new LRUCache<>(capacity, expireTime));
+        return (LRUCache<K,V>)caches.computeIfAbsent(name, k -> register(new LRUCache<>(capacity, expireTime)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public<K,V> LRUCache<K, V> getCache(String name, int capacity, long expireTime, ExpirePolicy expirePolicy) {
+        return (LRUCache<K,V>)caches.computeIfAbsent(name, k -> register(new LRUCache<>(capacity, expireTime, expirePolicy)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public<K,V> LRUCache<K, V> getCache(String name, int capacity, long expireTime, ExpirePolicy expirePolicy,
+                                        EvictionPolicy evictionPolicy) {
+        return (LRUCache<K,V>)caches.computeIfAbsent(name,
+                k -> register(new LRUCache<>(capacity, expireTime, expirePolicy, evictionPolicy)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public<K,V> LRUCache<K, V> getCache(String name, LRUCache.Builder<K, V> builder) {
+        return (LRUCache<K,V>)caches.computeIfAbsent(name, k -> register(builder.build()));
+    }
+
+    /**
+     * Returns the named cache, configuring and building it with {@code builder} only on first
+     * use, so a hot caller does not pay for a builder per lookup.
+     */
+    @SuppressWarnings("unchecked")
+    public<K,V> LRUCache<K, V> getCache(String name, Supplier<LRUCache.Builder<K, V>> builder) {
+        LRUCache<K, V> cache = (LRUCache<K, V>) caches.get(name);
+        return cache != null ? cache : (LRUCache<K,V>)caches.computeIfAbsent(name, k -> register(builder.get().build()));
+    }
+
+    // ====================== long-keyed caches ======================
+    // kept in their own map; a name identifies either an LRUCache or a LongLRUCache, never both
+
+    @SuppressWarnings("unchecked")
+    public <V> LongLRUCache<V> getLongCache(String name) {
+        return (LongLRUCache<V>) longCaches.computeIfAbsent(checkLongName(name), k -> register(new LongLRUCache<>()));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> LongLRUCache<V> getLongCache(String name, int capacity) {
+        return (LongLRUCache<V>) longCaches.computeIfAbsent(checkLongName(name), k -> register(new LongLRUCache<>(capacity)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> LongLRUCache<V> getLongCache(String name, int capacity, long expireTime) {
+        return (LongLRUCache<V>) longCaches.computeIfAbsent(checkLongName(name),
+                k -> register(new LongLRUCache<>(capacity, expireTime)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> LongLRUCache<V> getLongCache(String name, int capacity, long expireTime, ExpirePolicy expirePolicy) {
+        return (LongLRUCache<V>) longCaches.computeIfAbsent(checkLongName(name),
+                k -> register(new LongLRUCache<>(capacity, expireTime, expirePolicy)));
+    }
+
+    public <V> void addLongCache(String name, LongLRUCache<V> cache) {
+        longCaches.put(checkLongName(name), register(cache));
+    }
+
+    private String checkLongName(String name) {
+        if (caches.containsKey(name)) {
+            throw new IllegalArgumentException("cache " + name + " already exists with object keys");
+        }
+        return name;
     }
 
     public boolean isEmptyWithinKey(String name){
         LRUCache<?, ?> cache = caches.get(name);
-        return null == cache || cache.isEmpty();
+        if (cache != null) {
+            return cache.isEmpty();
+        }
+        LongLRUCache<?> longCache = longCaches.get(name);
+        return null == longCache || longCache.isEmpty();
     }
 
     public void removeCache(String name) {
         LRUCache<?,?>cache=caches.remove(name);
         if(null!=cache){
-            cache.shutdown();;
+            cache.setWeightListener(null);
+            cache.shutdown();
+        }
+        LongLRUCache<?> longCache = longCaches.remove(name);
+        if (longCache != null) {
+            longCache.setWeightListener(null);
+            longCache.shutdown();
         }
     }
 
+    /** Shuts down and removes every cache; the handler stays usable and recreates caches on demand. */
+    public void shutdown() {
+        caches.keySet().forEach(this::removeCache);
+        longCaches.keySet().forEach(this::removeCache);
+    }
+
     public <K,V> void addCache(String name, LRUCache<K, V> cache) {
-        caches.put(name, cache);
+        caches.put(name, register(cache));
     }
 
     public<K,V> void setCertainValueToCache(String name, K key, V value) {
@@ -49,8 +139,179 @@ public class CacheHandler {
         if(null==cache)throw new IllegalArgumentException("cache with name "+name+" not found");
         cache.put(key, value);
     }
+
+    /**
+     * Reads through the named cache, loading a missing key once for all concurrent callers.
+     * @see LRUCache#get(Object, CacheLoader)
+     */
+    public <K,V> V get(String name, K key, CacheLoader<? super K, ? extends V> loader) throws Exception {
+        LRUCache<K, V> cache = getCache(name);
+        return cache.get(key, loader);
+    }
+
+    /**
+     * @see LRUCache#getAsync(Object, Function)
+     */
+    public <K,V> CompletableFuture<V> getAsync(String name, K key,
+                                               Function<? super K, ? extends CompletableFuture<? extends V>> asyncLoader) {
+        LRUCache<K, V> cache = getCache(name);
+        return cache.getAsync(key, asyncLoader);
+    }
+
+    /**
+     * @see LRUCache#putAll(Map)
+     */
+    public <K,V> void putAll(String name, Map<? extends K, ? extends V> entries) {
+        LRUCache<K, V> cache = getCache(name);
+        cache.putAll(entries);
+    }
+
+    /**
+     * @see LRUCache#getAll(Collection)
+     */
+    public <K,V> Map<K, V> getAll(String name, Collection<? extends K> keys) {
+        LRUCache<K, V> cache = getCache(name);
+        return cache.getAll(keys);
+    }
+
+    /**
+     * Reads a batch through the named cache, loading all missing keys with one loader call.
+     * @see LRUCache#getAll(Collection, BatchLoader)
+     */
+    public <K,V> Map<K, V> getAll(String name, Collection<? extends K> keys,
+                                  BatchLoader<? super K, ? extends V> loader) throws Exception {
+        LRUCache<K, V> cache = getCache(name);
+        return cache.getAll(keys, loader);
+    }
+
+    /**
+     * Discards {@code key} from the named cache; does nothing if the cache does not exist.
+     * @see LRUCache#invalidate(Object)
+     */
+    @SuppressWarnings("unchecked")
+    public <K> void invalidate(String name, K key) {
+        LRUCache<K, ?> cache = (LRUCache<K, ?>) caches.get(name);
+        if (cache != null) {
+            cache.invalidate(key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <K> void invalidateAll(String name, Collection<? extends K> keys) {
+        LRUCache<K, ?> cache = (LRUCache<K, ?>) caches.get(name);
+        if (cache != null) {
+            cache.invalidateAll(keys);
+        }
+    }
+
+    public void invalidateAll(String name) {
+        LRUCache<?, ?> cache = caches.get(name);
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    // ====================== statistics ======================
+
+    /**
+     * Stats of one named cache; {@link CacheStats#EMPTY} if it does not exist or was not
+     * built with {@link LRUCache.Builder#recordStats()}.
+     */
+    public CacheStats stats(String name) {
+        LRUCache<?, ?> cache = caches.get(name);
+        if (cache != null) {
+            return cache.stats();
+        }
+        LongLRUCache<?> longCache = longCaches.get(name);
+        return longCache == null ? CacheStats.EMPTY : longCache.stats();
+    }
+
+    /** Stats of every cache by name, sorted so two snapshots line up when diffed. */
+    public Map<String, CacheStats> stats() {
+        Map<String, CacheStats> sorted = new TreeMap<>();
+        caches.forEach((name, cache) -> sorted.put(name, cache.stats()));
+        longCaches.forEach((name, cache) -> sorted.put(name, cache.stats()));
+        return new LinkedHashMap<>(sorted);
+    }
+
+    // ====================== global memory budget ======================
+
+    /**
+     * Caps the summed {@link LRUCache#weightedSize()} of every cache in this handler. Caches
+     * without a {@link Weigher} count one per entry, so the budget is effectively spent by the
+     * weighed ones (e.g. bytes of decoded images).
+     * @param budget total weight allowed, or 0 to disable
+     */
+    public void setMemoryBudget(long budget) {
+        this.memoryBudget = budget;
+        enforceBudget();
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public long totalWeight() {
+        long total = 0;
+        for (LRUCache<?, ?> cache : caches.values()) {
+            total += cache.weightedSize();
+        }
+        for (LongLRUCache<?> cache : longCaches.values()) {
+            total += cache.weightedSize();
+        }
+        return total;
+    }
+
+    /**
+     * Evicts the least recently used entry across all caches until the budget is met. Called
+     * after every write; if another thread is already enforcing, this one returns immediately.
+     */
+    void enforceBudget() {
+        long budget = memoryBudget;
+        if (budget <= 0 || !budgetLock.tryLock()) {
+            return;
+        }
+        try {
+            while (totalWeight() > budget) {
+                LRUCache<?, ?> victim = null;
+                LongLRUCache<?> longVictim = null;
+                long oldest = Long.MAX_VALUE;
+                for (LRUCache<?, ?> cache : caches.values()) {
+                    long accessTime = cache.eldestAccessTime();
+                    if (accessTime < oldest) {
+                        oldest = accessTime;
+                        victim = cache;
+                    }
+                }
+                for (LongLRUCache<?> cache : longCaches.values()) {
+                    long accessTime = cache.eldestAccessTime();
+                    if (accessTime < oldest) {
+                        oldest = accessTime;
+                        longVictim = cache;
+                    }
+                }
+                boolean evicted = longVictim != null ? longVictim.evictEldest()
+                        : victim != null && victim.evictEldest();
+                if (!evicted) {
+                    break;
+                }
+            }
+        } finally {
+            budgetLock.unlock();
+        }
+    }
+
+    private <K, V> LRUCache<K, V> register(LRUCache<K, V> cache) {
+        cache.setWeightListener(this::enforceBudget);
+        return cache;
+    }
+
+    private <V> LongLRUCache<V> register(LongLRUCache<V> cache) {
+        cache.setWeightListener(this::enforceBudget);
+        return cache;
+    }
     
     public String toString() {
-        return caches.toString();
+        return caches + " " + longCaches.keySet();
     }
 }
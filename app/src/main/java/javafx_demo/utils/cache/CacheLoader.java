@@ -0,0 +1,10 @@
+package javafx_demo.utils.cache;
+
+/**
+ * Computes the value for a missing key. May throw, e.g. when the backend call fails; the
+ * failure is handed to every caller waiting on the same key and nothing is cached.
+ */
+@FunctionalInterface
+public interface CacheLoader<K, V> {
+    V load(K key) throws Exception;
+}
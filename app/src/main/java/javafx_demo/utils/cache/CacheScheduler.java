@@ -0,0 +1,62 @@
+package javafx_demo.utils.cache;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide maintenance thread shared by every cache, instead of one scheduler per cache,
+ * plus small pools for background refreshes and removal notifications, which may block on I/O
+ * and so must not run on the maintenance thread.
+ */
+final class CacheScheduler {
+    static final long TICK_MS = 1000;
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cache-maintenance");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final ThreadPoolExecutor REFRESH_EXECUTOR = newPool("cache-refresh-", 4);
+    private static final ThreadPoolExecutor LISTENER_EXECUTOR = newPool("cache-listener-", 2);
+
+    private static ThreadPoolExecutor newPool(String prefix, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, prefix + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private CacheScheduler() {
+    }
+
+    static ScheduledFuture<?> schedulePeriodic(Runnable task) {
+        return EXECUTOR.scheduleAtFixedRate(() -> {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                // a failing cache must not cancel its own maintenance or starve the others
+                System.err.println("cache maintenance failed: " + t);
+            }
+        }, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    static Executor refreshExecutor() {
+        return REFRESH_EXECUTOR;
+    }
+
+    static Executor listenerExecutor() {
+        return LISTENER_EXECUTOR;
+    }
+}
@@ -0,0 +1,100 @@
+package javafx_demo.utils.cache;
+
+/**
+ * Immutable snapshot of a cache's counters. Counters only grow, so the activity between two
+ * points in time is {@code later.minus(earlier)}.
+ */
+public final class CacheStats {
+    public static final CacheStats EMPTY = new CacheStats(0, 0, 0, 0, 0, new long[RemovalCause.values().length]);
+
+    private final long hitCount;
+    private final long missCount;
+    private final long loadSuccessCount;
+    private final long loadFailureCount;
+    private final long totalLoadTime;
+    private final long[] removalCounts;
+
+    CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount,
+               long totalLoadTime, long[] removalCounts) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTime = totalLoadTime;
+        this.removalCounts = removalCounts;
+    }
+
+    public long hitCount() { return hitCount; }
+    public long missCount() { return missCount; }
+    public long requestCount() { return hitCount + missCount; }
+    public long loadSuccessCount() { return loadSuccessCount; }
+    public long loadFailureCount() { return loadFailureCount; }
+    public long loadCount() { return loadSuccessCount + loadFailureCount; }
+    /** total nanoseconds spent in loaders, successful or not */
+    public long totalLoadTime() { return totalLoadTime; }
+
+    public long removalCount(RemovalCause cause) {
+        return removalCounts[cause.ordinal()];
+    }
+
+    /** entries dropped to respect a size, weight or budget bound */
+    public long evictionCount() {
+        return removalCount(RemovalCause.SIZE);
+    }
+
+    public long expirationCount() {
+        return removalCount(RemovalCause.EXPIRED);
+    }
+
+    /** soft or weak values reclaimed by the garbage collector */
+    public long collectionCount() {
+        return removalCount(RemovalCause.COLLECTED);
+    }
+
+    public double hitRate() {
+        long requests = requestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    /** average nanoseconds per load */
+    public double averageLoadPenalty() {
+        long loads = loadCount();
+        return loads == 0 ? 0.0 : (double) totalLoadTime / loads;
+    }
+
+    public CacheStats minus(CacheStats other) {
+        long[] removals = new long[removalCounts.length];
+        for (int i = 0; i < removals.length; i++) {
+            removals[i] = Math.max(0, removalCounts[i] - other.removalCounts[i]);
+        }
+        return new CacheStats(
+                Math.max(0, hitCount - other.hitCount),
+                Math.max(0, missCount - other.missCount),
+                Math.max(0, loadSuccessCount - other.loadSuccessCount),
+                Math.max(0, loadFailureCount - other.loadFailureCount),
+                Math.max(0, totalLoadTime - other.totalLoadTime),
+                removals);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", hitRate=" + String.format("%.3f", hitRate()) +
+                ", loadSuccessCount=" + loadSuccessCount +
+                ", loadFailureCount=" + loadFailureCount +
+                ", totalLoadTime=" + totalLoadTime +
+                ", removals=" + removalsToString() +
+                '}';
+    }
+
+    private String removalsToString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (RemovalCause cause : RemovalCause.values()) {
+            if (sb.length() > 1) sb.append(", ");
+            sb.append(cause).append('=').append(removalCounts[cause.ordinal()]);
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,12 @@
+package javafx_demo.utils.cache;
+
+import java.io.IOException;
+
+/**
+ * Turns keys or values into bytes for the {@link DiskTier}.
+ */
+public interface Codec<T> {
+    byte[] encode(T value) throws IOException;
+
+    T decode(byte[] bytes) throws IOException;
+}
@@ -0,0 +1,603 @@
+package javafx_demo.utils.cache;
+
+import javafx_demo.utils.SessionContext;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent second tier for an {@link LRUCache}, so a restarted terminal starts warm.
+ * <p>
+ * Data lives in an append-only log split into fixed-size, memory-mapped segment files. Each
+ * record is {@code crc | type | expireAt | keyLen | valueLen | key | value}; the CRC covers
+ * everything after itself, so a record torn by a crash is detected and the log is cut there
+ * on the next start. Deletes are written as tombstones. When a segment fills up it is sealed
+ * and a hint file (key to offset, itself CRC-protected) is written next to it, which lets
+ * startup rebuild the index without reading the values. Sealed segments that are mostly dead
+ * are compacted by copying their live records into the active segment.
+ * <p>
+ * Writes go to the mapped buffer and reach the disk when the OS flushes it or on
+ * {@link #flush()}, which the owning cache calls on every maintenance tick. Compaction forces
+ * the records it copied before deleting the segments they came from, so a crash can lose
+ * recent writes but never resurrects a value whose tombstone was moved.
+ */
+public class DiskTier<K, V> implements Closeable {
+    private static final int DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+    private static final int HEADER = 4 + 1 + 8 + 4 + 4;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int HINT_MAGIC = 0x48494E54;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String HINT_SUFFIX = ".hint";
+    private static final String DEAD_SUFFIX = ".dead";
+
+    private final Path dir;
+    private final int segmentSize;
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<K, Location> index = new HashMap<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final FileChannel lockChannel;
+    private final FileLock fileLock;
+    private Segment active;
+    private boolean dirty;
+    private boolean compacting;
+    private boolean closed;
+
+    /** A value read back from disk with its absolute expiry (epoch millis, 0 = never). */
+    public static final class Hit<V> {
+        public final V value;
+        public final long expireAt;
+
+        Hit(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private static final class Location {
+        final int segment;
+        final int offset;
+        final int length;
+        final long expireAt;
+
+        Location(int segment, int offset, int length, long expireAt) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private static final class Segment {
+        final int id;
+        final Path file;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int writePos;
+        int durablePos; // everything before it has been forced to disk
+        long liveBytes;
+
+        Segment(int id, Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Opens (or creates) the tier for a named cache under {@code ~/.future_pal/cache/<name>},
+     * using {@link BinaryCodec} for keys and values and deflating values above 1 KB.
+     */
+    public static <K, V> DiskTier<K, V> open(String name) throws IOException {
+        return open(SessionContext.getDataDir().resolve("cache").resolve(name),
+                new BinaryCodec<>(), new BinaryCodec<>(1024));
+    }
+
+    public static <K, V> DiskTier<K, V> open(Path dir, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+        return new DiskTier<>(dir, keyCodec, valueCodec, DEFAULT_SEGMENT_SIZE);
+    }
+
+    // small segments let tests roll and compact without writing megabytes
+    static <K, V> DiskTier<K, V> open(Path dir, Codec<K> keyCodec, Codec<V> valueCodec, int segmentSize)
+            throws IOException {
+        return new DiskTier<>(dir, keyCodec, valueCodec, segmentSize);
+    }
+
+    private DiskTier(Path dir, Codec<K> keyCodec, Codec<V> valueCodec, int segmentSize) throws IOException {
+        if (segmentSize < HEADER + 1) {
+            throw new IllegalArgumentException("segment size too small: " + segmentSize);
+        }
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        Files.createDirectories(dir);
+        this.lockChannel = FileChannel.open(dir.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null; // already open in this JVM
+        }
+        this.fileLock = acquired;
+        if (fileLock == null) {
+            lockChannel.close();
+            throw new IOException("disk cache " + dir + " is in use by another process");
+        }
+        try {
+            recover();
+        } catch (IOException | RuntimeException e) {
+            closeQuietly();
+            throw e;
+        }
+    }
+
+    // ====================== public API ======================
+
+    public Hit<V> get(K key) throws IOException {
+        lock.lock();
+        try {
+            ensureOpen();
+            Location loc = index.get(key);
+            if (loc == null) {
+                return null;
+            }
+            if (isExpired(loc.expireAt, System.currentTimeMillis())) {
+                removeLocked(key);
+                return null;
+            }
+            ByteBuffer record = segments.get(loc.segment).buffer.duplicate();
+            record.position(loc.offset + 4 + 1 + 8);
+            int keyLen = record.getInt();
+            int valueLen = record.getInt();
+            record.position(record.position() + keyLen);
+            byte[] value = new byte[valueLen];
+            record.get(value);
+            return new Hit<>(valueCodec.decode(value), loc.expireAt);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param expireAt absolute expiry in epoch millis, or 0 to keep until removed
+     */
+    public void put(K key, V value, long expireAt) throws IOException {
+        byte[] k = keyCodec.encode(key);
+        byte[] v = valueCodec.encode(value);
+        lock.lock();
+        try {
+            ensureOpen();
+            int length = HEADER + k.length + v.length;
+            if (length > segmentSize) {
+                // too large to be worth persisting; make sure no older copy survives
+                removeLocked(key);
+                return;
+            }
+            Location loc = append(PUT, expireAt, k, v);
+            track(key, loc);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(K key) throws IOException {
+        lock.lock();
+        try {
+            ensureOpen();
+            removeLocked(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Removes every key; the tombstones are reclaimed by later compactions. */
+    public void clear() throws IOException {
+        lock.lock();
+        try {
+            ensureOpen();
+            for (K key : new ArrayList<>(index.keySet())) {
+                removeLocked(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Forces pending writes of the active segment to disk. */
+    public void flush() {
+        lock.lock();
+        try {
+            if (dirty && !closed) {
+                force(active);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes without flushing and throws away whatever the active segment received since it
+     * was last forced, as a power loss would. Tests only.
+     */
+    void crash() {
+        lock.lock();
+        try {
+            ByteBuffer buf = active.buffer.duplicate();
+            for (int i = active.durablePos; i < active.writePos; i++) {
+                buf.put(i, (byte) 0);
+            }
+            active.buffer.force();
+            closeQuietly();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            flush();
+            closeQuietly();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ====================== log ======================
+
+    private Location append(byte type, long expireAt, byte[] key, byte[] value) throws IOException {
+        int length = HEADER + key.length + value.length;
+        if (active.writePos + length > segmentSize) {
+            roll();
+        }
+        int offset = active.writePos;
+        ByteBuffer buf = active.buffer.duplicate();
+        buf.position(offset + 4);
+        buf.put(type).putLong(expireAt).putInt(key.length).putInt(value.length).put(key).put(value);
+        buf.putInt(offset, crc(active.buffer, offset + 4, length - 4));
+        active.writePos += length;
+        dirty = true;
+        return new Location(active.id, offset, length, expireAt);
+    }
+
+    private void removeLocked(K key) throws IOException {
+        Location old = index.remove(key);
+        if (old != null) {
+            segments.get(old.segment).liveBytes -= old.length;
+            append(DELETE, 0, keyCodec.encode(key), new byte[0]);
+        }
+    }
+
+    private void track(K key, Location loc) {
+        Location old = index.put(key, loc);
+        if (old != null) {
+            segments.get(old.segment).liveBytes -= old.length;
+        }
+        segments.get(loc.segment).liveBytes += loc.length;
+    }
+
+    private void force(Segment s) {
+        s.buffer.force();
+        s.durablePos = s.writePos;
+        if (s == active) {
+            dirty = false;
+        }
+    }
+
+    private void roll() throws IOException {
+        Segment sealed = active;
+        force(sealed);
+        writeHint(sealed);
+        active = createSegment(sealed.id + 1);
+        if (!compacting) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites every sealed segment that is less than half live into the active segment. The
+     * copies are forced before any source segment is deleted: until then the sources still
+     * hold the only durable copy of those records, tombstones included.
+     */
+    private void compact() throws IOException {
+        compacting = true;
+        try {
+            List<Segment> candidates = new ArrayList<>();
+            for (Segment s : segments.values()) {
+                if (s != active && s.liveBytes * 2 < s.writePos) {
+                    candidates.add(s);
+                }
+            }
+            if (candidates.isEmpty()) {
+                return;
+            }
+            Set<Integer> dropped = new HashSet<>();
+            for (Segment s : candidates) {
+                // a tombstone only matters while a segment older than its own survives
+                boolean oldest = dropped.containsAll(segments.headMap(s.id).keySet());
+                ByteBuffer buf = s.buffer.duplicate();
+                int pos = 0;
+                while (pos < s.writePos) {
+                    buf.position(pos + 4);
+                    byte type = buf.get();
+                    long expireAt = buf.getLong();
+                    int keyLen = buf.getInt();
+                    int valueLen = buf.getInt();
+                    int length = HEADER + keyLen + valueLen;
+                    byte[] k = new byte[keyLen];
+                    buf.get(k);
+                    K key = keyCodec.decode(k);
+                    Location loc = index.get(key);
+                    if (type == PUT && loc != null && loc.segment == s.id && loc.offset == pos) {
+                        byte[] v = new byte[valueLen];
+                        buf.get(v);
+                        track(key, append(PUT, expireAt, k, v));
+                    } else if (type == DELETE && loc == null && !oldest) {
+                        // an older segment may still hold a value this tombstone hides
+                        append(DELETE, 0, k, new byte[0]);
+                    }
+                    pos += length;
+                }
+                dropped.add(s.id);
+            }
+            // segments sealed while copying were forced by roll(); the rest sits in the active one
+            force(active);
+            for (Segment s : candidates) {
+                dropSegment(s);
+            }
+        } finally {
+            compacting = false;
+        }
+    }
+
+    // ====================== startup ======================
+
+    private void recover() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int id = Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                if (Files.exists(file(id, DEAD_SUFFIX))) {
+                    // compacted last run but still mapped, so it could not be deleted then
+                    Files.deleteIfExists(file);
+                    Files.deleteIfExists(file(id, HINT_SUFFIX));
+                    Files.deleteIfExists(file(id, DEAD_SUFFIX));
+                    continue;
+                }
+                ids.add(id);
+            }
+        }
+        Collections.sort(ids);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < ids.size(); i++) {
+            Segment s = mapSegment(ids.get(i));
+            segments.put(s.id, s);
+            boolean last = i == ids.size() - 1;
+            if (last || !loadHint(s, now)) {
+                scan(s, now);
+            }
+        }
+        if (segments.isEmpty()) {
+            active = createSegment(1);
+        } else {
+            active = segments.lastEntry().getValue();
+        }
+    }
+
+    private void scan(Segment s, long now) throws IOException {
+        ByteBuffer buf = s.buffer.duplicate();
+        int pos = 0;
+        while (pos + HEADER <= segmentSize) {
+            buf.position(pos);
+            int crc = buf.getInt();
+            byte type = buf.get();
+            long expireAt = buf.getLong();
+            int keyLen = buf.getInt();
+            int valueLen = buf.getInt();
+            if (type != PUT && type != DELETE) {
+                break;
+            }
+            long length = (long) HEADER + keyLen + valueLen;
+            if (keyLen < 0 || valueLen < 0 || pos + length > segmentSize
+                    || crc != crc(s.buffer, pos + 4, (int) length - 4)) {
+                break;
+            }
+            byte[] k = new byte[keyLen];
+            buf.get(k);
+            apply(s, type, keyCodec.decode(k), pos, (int) length, expireAt, now);
+            pos += (int) length;
+        }
+        s.writePos = pos;
+        s.durablePos = pos;
+        // pages of a mapped file may reach the disk out of order, so valid-looking records can
+        // sit beyond a torn one; wipe them before new appends land in front of them
+        ByteBuffer tail = s.buffer.duplicate();
+        int dirtyEnd = segmentSize;
+        while (dirtyEnd > pos && tail.get(dirtyEnd - 1) == 0) {
+            dirtyEnd--;
+        }
+        for (int i = pos; i < dirtyEnd; i++) {
+            tail.put(i, (byte) 0);
+        }
+    }
+
+    private void apply(Segment s, byte type, K key, int offset, int length, long expireAt, long now) {
+        if (type == PUT && !isExpired(expireAt, now)) {
+            track(key, new Location(s.id, offset, length, expireAt));
+        } else {
+            Location old = index.remove(key);
+            if (old != null) {
+                segments.get(old.segment).liveBytes -= old.length;
+            }
+        }
+    }
+
+    private void writeHint(Segment s) throws IOException {
+        Path tmp = file(s.id, HINT_SUFFIX + ".tmp");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(HINT_MAGIC);
+        out.writeInt(s.writePos);
+        ByteBuffer buf = s.buffer.duplicate();
+        int pos = 0;
+        while (pos < s.writePos) {
+            buf.position(pos + 4);
+            byte type = buf.get();
+            long expireAt = buf.getLong();
+            int keyLen = buf.getInt();
+            int valueLen = buf.getInt();
+            byte[] k = new byte[keyLen];
+            buf.get(k);
+            int length = HEADER + keyLen + valueLen;
+            out.writeByte(type);
+            out.writeInt(pos);
+            out.writeInt(length);
+            out.writeLong(expireAt);
+            out.writeInt(keyLen);
+            out.write(k);
+            pos += length;
+        }
+        out.flush();
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        Files.write(tmp, bytes.toByteArray());
+        Files.move(tmp, file(s.id, HINT_SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private boolean loadHint(Segment s, long now) throws IOException {
+        Path hint = file(s.id, HINT_SUFFIX);
+        if (!Files.exists(hint)) {
+            return false;
+        }
+        byte[] data = Files.readAllBytes(hint);
+        if (data.length < 16) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 8);
+        if (crc.getValue() != ByteBuffer.wrap(data, data.length - 8, 8).getLong()) {
+            return false;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 8));
+        if (in.readInt() != HINT_MAGIC) {
+            return false;
+        }
+        int writePos = in.readInt();
+        // decode everything first so a bad hint falls back to a scan without half-applied state
+        List<Object[]> records = new ArrayList<>();
+        while (in.available() > 0) {
+            byte type = in.readByte();
+            int offset = in.readInt();
+            int length = in.readInt();
+            long expireAt = in.readLong();
+            byte[] k = new byte[in.readInt()];
+            in.readFully(k);
+            records.add(new Object[]{type, keyCodec.decode(k), offset, length, expireAt});
+        }
+        for (Object[] r : records) {
+            @SuppressWarnings("unchecked")
+            K key = (K) r[1];
+            apply(s, (Byte) r[0], key, (Integer) r[2], (Integer) r[3], (Long) r[4], now);
+        }
+        s.writePos = writePos;
+        s.durablePos = writePos;
+        return true;
+    }
+
+    // ====================== files ======================
+
+    private Segment createSegment(int id) throws IOException {
+        Segment s = mapSegment(id);
+        segments.put(id, s);
+        return s;
+    }
+
+    private Segment mapSegment(int id) throws IOException {
+        Path file = file(id, SEGMENT_SUFFIX);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            if (raf.length() < segmentSize) {
+                raf.setLength(segmentSize);
+            }
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        return new Segment(id, file, channel, buffer);
+    }
+
+    private void dropSegment(Segment s) throws IOException {
+        segments.remove(s.id);
+        s.channel.close();
+        try {
+            Files.deleteIfExists(file(s.id, HINT_SUFFIX));
+            Files.deleteIfExists(s.file);
+        } catch (IOException e) {
+            // Windows refuses to delete a file that is still mapped; finish on next start
+            Files.write(file(s.id, DEAD_SUFFIX), new byte[0]);
+        }
+    }
+
+    private Path file(int id, String suffix) {
+        return dir.resolve(String.format("%08d", id) + suffix);
+    }
+
+    private static int crc(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(offset).limit(offset + length);
+        CRC32 crc = new CRC32();
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+
+    private static boolean isExpired(long expireAt, long now) {
+        return expireAt != 0 && now >= expireAt;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("disk cache " + dir + " is closed");
+        }
+    }
+
+    private void closeQuietly() {
+        closed = true;
+        for (Segment s : segments.values()) {
+            try {
+                s.channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+        try {
+            if (fileLock != null) fileLock.release();
+            lockChannel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package javafx_demo.utils.cache;
+
+/**
+ * Decides which entry a cache gives up when it is over its bounds. Implementations are not
+ * thread-safe; the owning cache calls them under its lock.
+ */
+interface EvictionOrder<K, V> {
+    boolean contains(CacheEntry<K, V> e);
+
+    /** Links a newly written entry. */
+    void add(CacheEntry<K, V> e);
+
+    /** Records a hit on a linked entry. */
+    void onAccess(CacheEntry<K, V> e);
+
+    void remove(CacheEntry<K, V> e);
+
+    int size();
+
+    /** The entry to evict next, or {@code null} if empty. */
+    CacheEntry<K, V> victim();
+
+    /** The least recently used entry, or {@code null} if empty. */
+    CacheEntry<K, V> eldest();
+
+    void clear();
+}
@@ -0,0 +1,15 @@
+package javafx_demo.utils.cache;
+
+/**
+ * How a size-bounded cache picks the entry to evict.
+ */
+public enum EvictionPolicy {
+    /** least recently used; one-off scans can flush the hot entries */
+    LRU,
+    /**
+     * W-TinyLFU: new entries enter a small LRU window and are only admitted to the main region
+     * if a frequency sketch says they are used more often than the entry they would replace,
+     * so a burst of one-off keys cannot push out the frequently used ones
+     */
+    W_TINY_LFU
+}
@@ -0,0 +1,11 @@
+package javafx_demo.utils.cache;
+
+/**
+ * When an entry's time-to-live starts counting.
+ */
+public enum ExpirePolicy {
+    /** ttl counts from the last put of the key */
+    AFTER_WRITE,
+    /** ttl counts from the last get or put of the key */
+    AFTER_ACCESS
+}
@@ -1,48 +1,110 @@
 package javafx_demo.utils.cache;
 
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
+/**
+ * Size-bounded cache with access-ordered eviction. Entries are kept in an intrusive
+ * doubly-linked list (least recently used first), so hits, inserts and evictions are all
+ * O(1) regardless of how many entries the cache holds.
+ * <p>
+ * Expiry is tracked in a {@link TimerWheel} advanced by the shared {@link CacheScheduler}
+ * thread, and is also checked lazily on every read, so an expired entry is never returned
+ * even between two maintenance ticks.
+ * <p>
+ * By default every operation runs under one lock, which keeps the LRU order exact. In
+ * {@linkplain Builder#concurrent() concurrent mode} reads never lock: they record the hit in a
+ * lossy {@link ReadBuffer}, writes only lock a stripe chosen by key hash, and the list and
+ * wheel are updated in batches by whichever thread next wins the cache lock. The size bound
+ * may then be exceeded briefly until the next drain.
+ * <p>
+ * Besides the entry-count capacity, a cache can be bounded by total weight through a
+ * {@link Weigher}; {@link CacheHandler} uses the same weights to enforce a budget shared by all
+ * of its caches.
+ * <p>
+ * {@linkplain Builder#recordStats() Statistics} are off by default; when on they are kept in
+ * striped counters and read through {@link #stats()}.
+ * <p>
+ * {@link #get(Object, CacheLoader)} and {@link #getAsync(Object, Function)} load missing keys
+ * single-flight, as do their batch forms {@code getAll} and {@code getAllAsync}: concurrent
+ * callers for the same key share one in-flight future, and a failed load is reported to all of
+ * them without caching anything.
+ * <p>
+ * An optional {@link DiskTier} makes the cache survive restarts: puts are written through to
+ * it, and a memory miss is looked up there and promoted back into memory.
+ * <p>
+ * With {@link Builder#refreshAfterWrite(long, long)} an entry older than the soft TTL is still
+ * returned by the loading reads, which also start a single background reload of it; callers
+ * only wait for the network when the entry is missing or past its hard expiry.
+ * <p>
+ * A {@link RemovalListener} hears about every entry that leaves the cache and why. Removals
+ * are only queued while the lock is held and are delivered in batches on a shared listener
+ * executor.
+ * <p>
+ * With {@linkplain Builder#softValues() soft} or {@linkplain Builder#weakValues() weak} values
+ * the garbage collector may reclaim a value before the cache evicts it; the entry then reads as
+ * a miss and is removed as {@link RemovalCause#COLLECTED}. Such caches also register with
+ * {@link MemoryPressure}, which drops half of their entries whenever the heap nears its limit.
+ * <p>
+ * {@linkplain Builder#evictionPolicy(EvictionPolicy) W-TinyLFU eviction} replaces the single
+ * list with a {@link TinyLfuOrder}, which only admits a new entry into the main region if it is
+ * used more often than the entry it would displace.
+ * <p>
+ * An {@linkplain #newOffHeapBuilder(SlabStore) off-heap cache} copies its {@link ByteBuffer}
+ * values into a {@link SlabStore} and hands out read-only views of them, so only keys and
+ * entry metadata stay on the heap.
+ */
 public class LRUCache<K, V> {
-    private static class CacheEntry<K, V> implements Comparable<CacheEntry<K, V>> {
-        K key;
-        V value;
-        long expireTime;
-
-        public CacheEntry(K key, V value, long expireTime) {
-            this.key = key;
-            this.value = value;
-            this.expireTime = expireTime;
-        }
-
-        @Override
-        public int compareTo(CacheEntry<K, V> other) {
-            return Long.compare(this.expireTime, other.expireTime);
-        }
-
-        @Override
-        public String toString() {
-            return "Entry{" +
-                    "key=" + key +
-                    ", value=" + value +
-                    ", expireTime=" + expireTime +
-                    '}';
-        }
-    }
+    private static final int IDLE = 0;
+    private static final int REQUIRED = 1;
+    private static final int PROCESSING = 2;
 
     private final int capacity;
     private final long expireTimeLimit;
+    private final ExpirePolicy expirePolicy;
+    private final boolean concurrent;
+    private final Weigher<? super K, ? super V> weigher;
+    private final long maximumWeight;
+    private final long refreshAfter;
+    private final long refreshJitter;
+    private volatile long weightedSize;
+    private volatile Runnable weightListener;
+    private final StatsCounter statsCounter; // null unless recordStats() was requested
+    private final DiskTier<K, V> diskTier;
+    private final RemovalListener<? super K, ? super V> removalListener;
+    private final Queue<Removal<K, V>> pendingRemovals = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean deliveryScheduled = new AtomicBoolean();
+    private final ValueStrength valueStrength;
+    private final ReferenceQueue<V> referenceQueue; // null for strong values
+    private final SlabStore slabStore; // null unless values live off-heap
     private final ConcurrentHashMap<K, CacheEntry<K, V>> map;
-    private final PriorityQueue<CacheEntry<K, V>> queue;
+    private final EvictionOrder<K, V> order;
+    private final TimerWheel<K, V> wheel;
     private final ReentrantLock lock = new ReentrantLock();
     private static final long DEFAULT_EXPIRE_TIME = 5 * 60 * 1000; // default expire time is 5 minutes
     private static final int DEFAULT_CAPACITY = 64; // default capacity is 32
-    private final ScheduledExecutorService scheduler;
+    private final ScheduledFuture<?> maintenance;
     private volatile K latest;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    // concurrent mode only
+    private final ReentrantLock[] writeLocks;
+    private final ReadBuffer<K, V> readBuffer;
+    private final Queue<Runnable> writeBuffer;
+    private final AtomicInteger drainStatus = new AtomicInteger(IDLE);
 
     // constructors
     public LRUCache() {
@@ -58,104 +120,1174 @@ public class LRUCache<K, V> {
     }
 
     public LRUCache(int capacity, long expireTimeLimit) {
-        this.capacity = capacity;
-        this.expireTimeLimit = expireTimeLimit;
+        this(capacity, expireTimeLimit, ExpirePolicy.AFTER_ACCESS);
+    }
+
+    public LRUCache(int capacity, long expireTimeLimit, ExpirePolicy expirePolicy) {
+        this(capacity, expireTimeLimit, expirePolicy, EvictionPolicy.LRU);
+    }
+
+    public LRUCache(int capacity, long expireTimeLimit, ExpirePolicy expirePolicy, EvictionPolicy evictionPolicy) {
+        this(LRUCache.<K, V>newBuilder().capacity(capacity).expireAfter(expireTimeLimit, expirePolicy)
+                .evictionPolicy(evictionPolicy));
+    }
+
+    // the first maintenance tick runs one TICK_MS after scheduling, long after construction returns
+    @SuppressWarnings("this-escape")
+    private LRUCache(Builder<K, V> builder) {
+        this.capacity = builder.capacity;
+        this.expireTimeLimit = builder.expireTime;
+        this.expirePolicy = builder.expirePolicy;
+        this.concurrent = builder.concurrent;
+        this.weigher = builder.weigher;
+        this.maximumWeight = builder.maximumWeight;
+        this.refreshAfter = builder.refreshAfter;
+        this.refreshJitter = builder.refreshJitter;
+        this.statsCounter = builder.recordStats ? new StatsCounter() : null;
+        this.diskTier = builder.diskTier;
+        this.removalListener = builder.removalListener;
+        this.valueStrength = builder.valueStrength;
+        this.referenceQueue = valueStrength == ValueStrength.STRONG ? null : new ReferenceQueue<>();
+        this.slabStore = builder.slabStore;
         this.map = new ConcurrentHashMap<>();
-        this.queue = new PriorityQueue<>();
+        this.order = builder.evictionPolicy == EvictionPolicy.W_TINY_LFU
+                ? new TinyLfuOrder<>(capacity)
+                : new AccessOrderDeque<>();
+        this.wheel = new TimerWheel<>(System.currentTimeMillis());
+        if (concurrent) {
+            this.writeLocks = new ReentrantLock[4 * Runtime.getRuntime().availableProcessors()];
+            for (int i = 0; i < writeLocks.length; i++) {
+                writeLocks[i] = new ReentrantLock();
+            }
+            this.readBuffer = new ReadBuffer<>();
+            this.writeBuffer = new ConcurrentLinkedQueue<>();
+        } else {
+            this.writeLocks = null;
+            this.readBuffer = null;
+            this.writeBuffer = null;
+        }
+        this.maintenance = CacheScheduler.schedulePeriodic(this::cleanUp);
+        if (referenceQueue != null) {
+            MemoryPressure.register(this);
+        }
+    }
 
-        this.scheduler = Executors.newScheduledThreadPool(1);
-        scheduler.scheduleAtFixedRate(this::clearExpiredEntries, expireTimeLimit, expireTimeLimit,
-                TimeUnit.MILLISECONDS);
+    public static <K, V> Builder<K, V> newBuilder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Builder for a cache whose values are copied into {@code store} on put, off the heap.
+     * Reads return a read-only view of the stored bytes with its own position and limit; the
+     * view is only valid until its entry leaves the cache, so a caller that keeps the bytes
+     * longer copies them. When the store is full the cache evicts until the new value fits;
+     * a value larger than {@link SlabStore#maxPayload()} is not cached.
+     */
+    public static <K> Builder<K, ByteBuffer> newOffHeapBuilder(SlabStore store) {
+        Builder<K, ByteBuffer> builder = new Builder<>();
+        builder.slabStore = store;
+        return builder;
     }
 
     public V get(K key) {
+        V value = concurrent ? getConcurrent(key) : getLocked(key);
+        if (value == null && diskTier != null) {
+            value = getFromDisk(key);
+        }
+        return value;
+    }
+
+    private V getLocked(K key) {
         lock.lock();
         try {
-            CacheEntry<K, V> entry = map.get(key);
-            if (entry == null || System.currentTimeMillis() >= entry.expireTime) {
-                return null;
-            }
-            entry.expireTime = System.currentTimeMillis() + expireTimeLimit;
-            queue.remove(entry);
-            queue.offer(entry);
-            return entry.value;
+            return lookup(key);
         } finally {
             lock.unlock();
         }
     }
 
+    // caller holds lock
+    private V lookup(K key) {
+        CacheEntry<K, V> entry = map.get(key);
+        if (entry == null) {
+            recordMiss();
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now >= entry.expireTime) {
+            removeEntry(entry, RemovalCause.EXPIRED);
+            recordMiss();
+            return null;
+        }
+        V value = entry.getValue();
+        if (value == null) {
+            removeEntry(entry, RemovalCause.COLLECTED);
+            recordMiss();
+            return null;
+        }
+        if (expirePolicy == ExpirePolicy.AFTER_ACCESS) {
+            entry.expireTime = now + entry.ttl;
+        }
+        onAccess(entry);
+        recordHit();
+        return view(value);
+    }
+
+    /**
+     * Looks up every key, taking the lock once for the whole batch.
+     * @return the present values in the iteration order of {@code keys}; missing keys are left out
+     */
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new LinkedHashMap<>();
+        if (concurrent) {
+            for (K key : keys) {
+                V value = getConcurrent(key);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+        } else {
+            lock.lock();
+            try {
+                for (K key : keys) {
+                    V value = lookup(key);
+                    if (value != null) {
+                        result.put(key, value);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (diskTier != null && result.size() < keys.size()) {
+            for (K key : keys) {
+                if (!result.containsKey(key)) {
+                    V value = getFromDisk(key);
+                    if (value != null) {
+                        result.put(key, value);
+                    }
+                }
+            }
+        }
+        return result.size() == keys.size() ? result : inOrder(keys, result);
+    }
+
+    /**
+     * Like {@link #getAll(Collection)}, but loads the missing keys with a single
+     * {@code loader} call. Keys another caller is already loading are awaited instead of
+     * loaded again, so single-flight holds across batch and per-key loads.
+     * @return the present and loaded values in the iteration order of {@code keys}
+     * @throws Exception whatever the loader threw, rethrown to every caller waiting on its keys
+     */
+    public Map<K, V> getAll(Collection<? extends K> keys, BatchLoader<? super K, ? extends V> loader) throws Exception {
+        Map<K, V> result = getAll(keys);
+        Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> waiting = new LinkedHashMap<>();
+        for (K key : keys) {
+            if (result.containsKey(key) || owned.containsKey(key) || waiting.containsKey(key)) {
+                continue;
+            }
+            CompletableFuture<V> future = new CompletableFuture<>();
+            CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+            if (inFlight == null) {
+                owned.put(key, future);
+            } else {
+                waiting.put(key, inFlight);
+            }
+        }
+        if (!owned.isEmpty()) {
+            try {
+                loadAll(owned, loader, result);
+            } finally {
+                owned.forEach(loading::remove);
+            }
+        }
+        for (Map.Entry<K, CompletableFuture<V>> e : waiting.entrySet()) {
+            V value = await(e.getValue());
+            if (value != null) {
+                result.put(e.getKey(), value);
+            }
+        }
+        return inOrder(keys, result);
+    }
+
+    private void loadAll(Map<K, CompletableFuture<V>> owned, BatchLoader<? super K, ? extends V> loader,
+                         Map<K, V> result) throws Exception {
+        Set<K> missing = new LinkedHashSet<>();
+        for (Map.Entry<K, CompletableFuture<V>> e : owned.entrySet()) {
+            // another caller may have finished loading between our miss and registering
+            V value = getQuietly(e.getKey());
+            if (value != null) {
+                result.put(e.getKey(), value);
+                e.getValue().complete(value);
+            } else {
+                missing.add(e.getKey());
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        Map<? super K, ? extends V> loaded;
+        try {
+            loaded = loader.loadAll(Collections.unmodifiableSet(missing));
+        } catch (Exception | Error e) {
+            recordLoadFailure(System.nanoTime() - start);
+            for (K key : missing) {
+                owned.get(key).completeExceptionally(e);
+            }
+            throw e;
+        }
+        recordLoadSuccess(System.nanoTime() - start);
+        Map<K, V> present = new LinkedHashMap<>();
+        if (loaded != null) {
+            for (K key : missing) {
+                V value = loaded.get(key);
+                if (value != null) {
+                    present.put(key, value);
+                }
+            }
+        }
+        putAll(present);
+        for (K key : missing) {
+            V value = present.get(key);
+            if (value != null) {
+                if (loading.get(key) != owned.get(key)) {
+                    discard(key); // invalidated while loading
+                }
+                result.put(key, value);
+            }
+            owned.get(key).complete(value);
+        }
+    }
+
+    /**
+     * Asynchronous form of {@link #getAll(Collection, BatchLoader)}: the missing keys are loaded
+     * with a single {@code asyncLoader} call and keys another caller is already loading are
+     * joined, without blocking a thread on either. Failed loads fail the returned future and
+     * cache nothing.
+     * @return the present and loaded values in the iteration order of {@code keys}
+     */
+    public CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys,
+            Function<? super Set<? extends K>, ? extends CompletableFuture<? extends Map<? super K, ? extends V>>> asyncLoader) {
+        Map<K, V> present = getAll(keys);
+        Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+        for (K key : keys) {
+            if (present.containsKey(key) || pending.containsKey(key)) {
+                continue;
+            }
+            CompletableFuture<V> future = new CompletableFuture<>();
+            CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+            if (inFlight == null) {
+                owned.put(key, future);
+                pending.put(key, future);
+            } else {
+                pending.put(key, inFlight);
+            }
+        }
+        if (!owned.isEmpty()) {
+            loadAllAsync(owned, asyncLoader);
+        }
+        if (pending.isEmpty()) {
+            return CompletableFuture.completedFuture(present);
+        }
+        return CompletableFuture.allOf(pending.values().toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            Map<K, V> result = new LinkedHashMap<>(present);
+            pending.forEach((key, future) -> {
+                V value = future.join();
+                if (value != null) {
+                    result.put(key, value);
+                }
+            });
+            return inOrder(keys, result);
+        });
+    }
+
+    private void loadAllAsync(Map<K, CompletableFuture<V>> owned,
+            Function<? super Set<? extends K>, ? extends CompletableFuture<? extends Map<? super K, ? extends V>>> asyncLoader) {
+        Set<K> missing = new LinkedHashSet<>();
+        for (Map.Entry<K, CompletableFuture<V>> e : owned.entrySet()) {
+            // another caller may have finished loading between our miss and registering
+            V value = getQuietly(e.getKey());
+            if (value != null) {
+                loading.remove(e.getKey(), e.getValue());
+                e.getValue().complete(value);
+            } else {
+                missing.add(e.getKey());
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        CompletableFuture<? extends Map<? super K, ? extends V>> load;
+        try {
+            load = asyncLoader.apply(Collections.unmodifiableSet(missing));
+        } catch (Throwable t) {
+            load = CompletableFuture.failedFuture(t);
+        }
+        load.whenComplete((loaded, error) -> {
+            long elapsed = System.nanoTime() - start;
+            if (error != null) {
+                recordLoadFailure(elapsed);
+                for (K key : missing) {
+                    loading.remove(key, owned.get(key));
+                    owned.get(key).completeExceptionally(error);
+                }
+                return;
+            }
+            recordLoadSuccess(elapsed);
+            Map<K, V> present = new LinkedHashMap<>();
+            if (loaded != null) {
+                for (K key : missing) {
+                    V value = loaded.get(key);
+                    if (value != null) {
+                        present.put(key, value);
+                    }
+                }
+            }
+            putAll(present);
+            for (K key : missing) {
+                CompletableFuture<V> future = owned.get(key);
+                if (present.containsKey(key) && loading.get(key) != future) {
+                    discard(key); // invalidated while loading
+                }
+                loading.remove(key, future);
+                future.complete(present.get(key));
+            }
+        });
+    }
+
+    private Map<K, V> inOrder(Collection<? extends K> keys, Map<K, V> values) {
+        Map<K, V> ordered = new LinkedHashMap<>();
+        for (K key : keys) {
+            V value = values.get(key);
+            if (value != null) {
+                ordered.put(key, value);
+            }
+        }
+        return ordered;
+    }
+
     public void put(K key, V value) {
-        lock.lock();
+        put(key, value, expireTimeLimit);
+    }
+
+    /**
+     * Stores a value with its own time-to-live instead of the cache-wide limit.
+     * @param ttl time-to-live in milliseconds, counted according to the cache's {@link ExpirePolicy}
+     */
+    public void put(K key, V value, long ttl) {
+        CacheEntry<K, V> entry = putInMemory(key, value, ttl);
+        if (entry != null && diskTier != null) {
+            try {
+                diskTier.put(key, value, entry.expireTime);
+            } catch (IOException e) {
+                System.err.println("disk cache write failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stores every entry under one lock acquisition and evicts once for the whole batch,
+     * instead of once per entry. In concurrent mode each key still takes its stripe lock, but
+     * the list and wheel updates are replayed in one drain.
+     */
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<CacheEntry<K, V>> batch = new ArrayList<>(entries.size());
+        for (Map.Entry<? extends K, ? extends V> e : entries.entrySet()) {
+            V value = e.getValue();
+            if (slabStore != null && (value = storeOffHeap(value)) == null) {
+                discardFromMemory(Collections.singletonList(e.getKey()));
+                continue;
+            }
+            batch.add(newEntry(e.getKey(), value, expireTimeLimit, now));
+        }
+        if (concurrent) {
+            for (CacheEntry<K, V> entry : batch) {
+                ReentrantLock writeLock = writeLockFor(entry.key);
+                writeLock.lock();
+                try {
+                    CacheEntry<K, V> oldEntry = map.put(entry.key, entry);
+                    latest = entry.key;
+                    writeBuffer.add(() -> link(entry, oldEntry));
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+            writeBuffer.add(this::evictToBounds);
+            scheduleDrain();
+        } else {
+            lock.lock();
+            try {
+                for (CacheEntry<K, V> entry : batch) {
+                    link(entry, map.put(entry.key, entry));
+                    latest = entry.key;
+                }
+                evictToBounds();
+            } finally {
+                lock.unlock();
+            }
+        }
+        Runnable listener = weightListener;
+        if (listener != null) {
+            listener.run();
+        }
+        if (diskTier != null) {
+            try {
+                for (CacheEntry<K, V> entry : batch) {
+                    diskTier.put(entry.key, view(entry.getValue()), entry.expireTime);
+                }
+            } catch (IOException e) {
+                System.err.println("disk cache write failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private CacheEntry<K, V> newEntry(K key, V value, long ttl, long now) {
+        CacheEntry<K, V> entry;
+        if (valueStrength == ValueStrength.STRONG) {
+            entry = new CacheEntry<>(key, value, ttl);
+        } else {
+            entry = new CacheEntry<>(key, null, ttl);
+            entry.valueRef = valueStrength == ValueStrength.SOFT
+                    ? new CacheEntry.SoftValue<>(value, referenceQueue, entry)
+                    : new CacheEntry.WeakValue<>(value, referenceQueue, entry);
+        }
+        entry.expireTime = now + ttl;
+        entry.refreshAt = nextRefreshTime(now);
+        entry.weight = weigh(key, value);
+        return entry;
+    }
+
+    // null if an off-heap value could not be stored; the old value is dropped then
+    private CacheEntry<K, V> putInMemory(K key, V value, long ttl) {
+        if (slabStore != null && (value = storeOffHeap(value)) == null) {
+            discardFromMemory(Collections.singletonList(key));
+            return null;
+        }
+        CacheEntry<K, V> entry = newEntry(key, value, ttl, System.currentTimeMillis());
+        if (concurrent) {
+            putConcurrent(entry);
+        } else {
+            lock.lock();
+            try {
+                CacheEntry<K, V> oldEntry = map.put(key, entry);
+                latest = key;
+                onWrite(entry, oldEntry);
+            } finally {
+                lock.unlock();
+            }
+        }
+        Runnable listener = weightListener;
+        if (listener != null) {
+            listener.run();
+        }
+        return entry;
+    }
+
+    /**
+     * Copies an off-heap value into the slab store, evicting from this cache until a chunk of
+     * its size class is free.
+     * @return the stored view, or {@code null} if it does not fit even with this cache empty
+     */
+    @SuppressWarnings("unchecked")
+    private V storeOffHeap(V value) {
+        ByteBuffer payload = (ByteBuffer) value;
+        if (!slabStore.fits(payload.remaining())) {
+            return null;
+        }
+        ByteBuffer stored;
+        while ((stored = slabStore.store(payload)) == null) {
+            if (!evictEldest()) {
+                return null;
+            }
+        }
+        return (V) stored;
+    }
+
+    // off-heap values are shared; every reader gets its own position and limit
+    @SuppressWarnings("unchecked")
+    private V view(V value) {
+        return slabStore == null || value == null ? value : (V) ((ByteBuffer) value).duplicate();
+    }
+
+    private void releaseOffHeap(CacheEntry<K, V> entry) {
+        if (slabStore != null) {
+            slabStore.free((ByteBuffer) entry.value);
+        }
+    }
+
+    private V getFromDisk(K key) {
+        try {
+            DiskTier.Hit<V> hit = diskTier.get(key);
+            if (hit == null) {
+                return null;
+            }
+            long ttl = hit.expireAt == 0 ? expireTimeLimit : hit.expireAt - System.currentTimeMillis();
+            if (ttl <= 0) {
+                return null;
+            }
+            putInMemory(key, hit.value, ttl);
+            return hit.value;
+        } catch (IOException e) {
+            System.err.println("disk cache read failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the cached value, or runs {@code loader} once for all concurrent callers asking for
+     * the same missing key. A {@code null} result is returned but not cached.
+     * @throws Exception whatever the loader threw, rethrown to every waiting caller
+     */
+    public V get(K key, CacheLoader<? super K, ? extends V> loader) throws Exception {
+        V value = get(key);
+        if (value != null) {
+            refreshIfStale(key, k -> CompletableFuture.supplyAsync(() -> {
+                try {
+                    return loader.load(k);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, CacheScheduler.refreshExecutor()));
+            return value;
+        }
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
         try {
-            long currentTime = System.currentTimeMillis();
-            CacheEntry<K, V> entry = new CacheEntry<>(key, value, currentTime + expireTimeLimit);
-            if (map.containsKey(key)) {
-                CacheEntry<K, V> oldEntry = map.get(key);
-                map.remove(key);
-                queue.remove(oldEntry);
-            }
-            if (map.size() >= capacity) {
-                CacheEntry<K, V> eldestEntry = queue.poll();
-                if (eldestEntry != null) {
-                    map.remove(eldestEntry.key);
-                }
-            }
-            map.put(key, entry);
-            latest = key;
-            queue.offer(entry);
+            // another caller may have finished loading between our miss and registering
+            value = getQuietly(key);
+            if (value == null) {
+                long start = System.nanoTime();
+                try {
+                    value = loader.load(key);
+                } catch (Exception | Error e) {
+                    recordLoadFailure(System.nanoTime() - start);
+                    future.completeExceptionally(e);
+                    throw e;
+                }
+                recordLoadSuccess(System.nanoTime() - start);
+                if (value != null) {
+                    putLoaded(key, value, future);
+                }
+            }
+            future.complete(value);
+            return value;
         } finally {
-            lock.unlock();
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * Asynchronous form of {@link #get(Object, CacheLoader)}: starts {@code asyncLoader} at most
+     * once per missing key and hands every caller a view of the same result. Failed or
+     * {@code null} results are not cached.
+     */
+    public CompletableFuture<V> getAsync(K key, Function<? super K, ? extends CompletableFuture<? extends V>> asyncLoader) {
+        V value = get(key);
+        if (value != null) {
+            refreshIfStale(key, asyncLoader);
+            return CompletableFuture.completedFuture(value);
+        }
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            // copies keep callers from completing the shared future
+            return inFlight.copy();
+        }
+        value = getQuietly(key);
+        if (value != null) {
+            loading.remove(key, future);
+            future.complete(value);
+            return future.copy();
+        }
+        long start = System.nanoTime();
+        CompletableFuture<? extends V> load;
+        try {
+            load = asyncLoader.apply(key);
+        } catch (Throwable t) {
+            load = CompletableFuture.failedFuture(t);
+        }
+        load.whenComplete((result, error) -> {
+            long elapsed = System.nanoTime() - start;
+            if (error == null) {
+                recordLoadSuccess(elapsed);
+                if (result != null) {
+                    putLoaded(key, result, future);
+                }
+                loading.remove(key, future);
+                future.complete(result);
+            } else {
+                recordLoadFailure(elapsed);
+                loading.remove(key, future);
+                future.completeExceptionally(error);
+            }
+        });
+        return future.copy();
+    }
+
+    /**
+     * Starts a background reload if the entry is past its refresh time and no load of the key
+     * is in flight. A failed reload keeps the old value and is retried after another soft TTL;
+     * a {@code null} result discards the entry.
+     */
+    private void refreshIfStale(K key, Function<? super K, ? extends CompletableFuture<? extends V>> reload) {
+        CacheEntry<K, V> entry = map.get(key);
+        long now = System.currentTimeMillis();
+        if (entry == null || now < entry.refreshAt) {
+            return;
+        }
+        CompletableFuture<V> future = new CompletableFuture<>();
+        if (loading.putIfAbsent(key, future) != null) {
+            return;
+        }
+        entry.refreshAt = nextRefreshTime(now);
+        long start = System.nanoTime();
+        CompletableFuture<? extends V> load;
+        try {
+            load = reload.apply(key);
+        } catch (Throwable t) {
+            load = CompletableFuture.failedFuture(t);
+        }
+        load.whenComplete((result, error) -> {
+            long elapsed = System.nanoTime() - start;
+            if (error == null) {
+                recordLoadSuccess(elapsed);
+                if (result != null) {
+                    putLoaded(key, result, future);
+                } else {
+                    discard(key);
+                }
+                loading.remove(key, future);
+                future.complete(result);
+            } else {
+                recordLoadFailure(elapsed);
+                System.err.println("cache refresh of " + key + " failed: " + error);
+                loading.remove(key, future);
+                future.completeExceptionally(error);
+            }
+        });
+    }
+
+    private long nextRefreshTime(long now) {
+        if (refreshAfter <= 0) {
+            return Long.MAX_VALUE;
+        }
+        long jitter = refreshJitter > 0 ? ThreadLocalRandom.current().nextLong(refreshJitter + 1) : 0;
+        return now + refreshAfter + jitter;
+    }
+
+    /**
+     * Keeps serving the current value of {@code key} but makes the next loading read reload it
+     * in the background, as if its refresh time had passed.
+     */
+    public void markStale(K key) {
+        CacheEntry<K, V> entry = map.get(key);
+        if (entry != null) {
+            entry.refreshAt = 0;
+        }
+    }
+
+    public void markAllStale() {
+        for (CacheEntry<K, V> entry : map.values()) {
+            entry.refreshAt = 0;
+        }
+    }
+
+    /**
+     * Returns a view of the load or background refresh of {@code key} in flight, or
+     * {@code null} if there is none. A caller just served a stale value can use it to pick up
+     * the fresh one.
+     */
+    public CompletableFuture<V> pendingLoad(K key) {
+        CompletableFuture<V> inFlight = loading.get(key);
+        return inFlight == null ? null : inFlight.copy();
+    }
+
+    // a load that raced with invalidate() must not bring the discarded value back
+    private void putLoaded(K key, V value, CompletableFuture<V> future) {
+        put(key, value);
+        if (loading.get(key) != future) {
+            discard(key);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+    // no stats and no access-order update
+    private V getQuietly(K key) {
+        CacheEntry<K, V> entry = map.get(key);
+        return entry == null || System.currentTimeMillis() >= entry.expireTime ? null : view(entry.getValue());
+    }
+
+    /**
+     * Discards the entry for {@code key} from memory and the disk tier. A load already in flight
+     * for it still completes for its callers, but its result is not cached.
+     */
+    public void invalidate(K key) {
+        loading.remove(key);
+        discard(key);
+    }
+
+    /**
+     * Discards every key in {@code keys}, taking the lock once for the whole batch.
+     * @see #invalidate(Object)
+     */
+    public void invalidateAll(Collection<? extends K> keys) {
+        for (K key : keys) {
+            loading.remove(key);
         }
+        discardAll(keys);
+    }
+
+    /** Discards every entry, including those only held by the disk tier. */
+    public void invalidateAll() {
+        loading.clear();
+        discardFromMemory(map.keySet());
+        if (diskTier != null) {
+            try {
+                diskTier.clear();
+            } catch (IOException e) {
+                System.err.println("disk cache clear failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void discard(K key) {
+        discardAll(Collections.singletonList(key));
+    }
+
+    private void discardAll(Collection<? extends K> keys) {
+        discardFromMemory(keys);
+        if (diskTier != null) {
+            try {
+                for (K key : keys) {
+                    diskTier.remove(key);
+                }
+            } catch (IOException e) {
+                System.err.println("disk cache remove failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void discardFromMemory(Collection<? extends K> keys) {
+        if (concurrent) {
+            for (K key : keys) {
+                ReentrantLock writeLock = writeLockFor(key);
+                writeLock.lock();
+                try {
+                    CacheEntry<K, V> entry = map.remove(key);
+                    if (entry != null) {
+                        recordRemoval(entry, RemovalCause.EXPLICIT);
+                        writeBuffer.add(() -> unlink(entry));
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+            scheduleDrain();
+        } else {
+            lock.lock();
+            try {
+                for (K key : keys) {
+                    CacheEntry<K, V> entry = map.get(key);
+                    if (entry != null) {
+                        removeEntry(entry, RemovalCause.EXPLICIT);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the value for {@code key} if it is in memory and not expired, without loading,
+     * counting a hit or a miss, or touching its recency.
+     */
+    public V peek(K key) {
+        return getQuietly(key);
     }
 
     public Map.Entry<K,V> peek() {
+        K key = latest;
+        if (key == null)
+            return null;
+        CacheEntry<K, V> entry = map.get(key);
+        if (entry == null || System.currentTimeMillis() >= entry.expireTime)
+            return null;
+        V value = view(entry.getValue());
+        return value == null ? null : new AbstractMap.SimpleEntry<>(entry.key, value);
+    }
+
+    // iterating the ConcurrentHashMap gives a weakly consistent view without blocking writers
+    public List<V> getAllValues() {
+        if (isEmpty())
+            return Collections.emptyList();
+        long now = System.currentTimeMillis();
+        List<V> values = new ArrayList<>();
+        map.forEach((key, entry) -> {
+            V value = view(entry.getValue());
+            if (now < entry.expireTime && value != null) values.add(value);
+        });
+        return values;
+    }
+
+    public List<Map.Entry<K, V>> getAllKV() {
+        if (isEmpty()) return Collections.emptyList();
+        long now = System.currentTimeMillis();
+        List<Map.Entry<K, V>> entries = new ArrayList<>();
+        map.forEach((key, entry) -> {
+            V value = view(entry.getValue());
+            if (now < entry.expireTime && value != null) entries.add(new AbstractMap.SimpleEntry<>(entry.key, value));
+        });
+        return entries;
+    }
+
+    /**
+     * Replays buffered reads and writes, advances the expiry wheel and drops everything that
+     * is due. Runs on the shared maintenance thread every tick; callers only need it to force
+     * expiry eagerly.
+     */
+    public void cleanUp() {
         lock.lock();
         try {
-            if (latest == null)
-                return null;
-            CacheEntry<K, V> entry = map.get(latest);
-            return entry == null ? null : new AbstractMap.SimpleEntry<>(entry.key, entry.value);
+            if (concurrent) {
+                drainStatus.set(PROCESSING);
+                drainBuffers();
+            }
+            wheel.advance(System.currentTimeMillis(), this::removeExpired);
+            drainReferences();
         } finally {
+            if (concurrent) {
+                drainStatus.compareAndSet(PROCESSING, IDLE);
+            }
             lock.unlock();
         }
+        if (diskTier != null) {
+            diskTier.flush();
+        }
     }
 
-    public List<V> getAllValues() {
+    // ====================== concurrent mode ======================
+
+    private V getConcurrent(K key) {
+        CacheEntry<K, V> entry = map.get(key);
+        if (entry == null) {
+            recordMiss();
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now >= entry.expireTime) {
+            removeConcurrent(entry, RemovalCause.EXPIRED);
+            recordMiss();
+            return null;
+        }
+        V value = entry.getValue();
+        if (value == null) {
+            removeConcurrent(entry, RemovalCause.COLLECTED);
+            recordMiss();
+            return null;
+        }
+        if (expirePolicy == ExpirePolicy.AFTER_ACCESS) {
+            // racing readers may each push the deadline; any of their values is fine
+            entry.expireTime = now + entry.ttl;
+        }
+        if (readBuffer.offer(entry)) {
+            tryDrain();
+        }
+        recordHit();
+        return view(value);
+    }
+
+    private void putConcurrent(CacheEntry<K, V> entry) {
+        ReentrantLock writeLock = writeLockFor(entry.key);
+        writeLock.lock();
+        try {
+            CacheEntry<K, V> oldEntry = map.put(entry.key, entry);
+            latest = entry.key;
+            // enqueued under the stripe lock so policy updates for one key replay in map order
+            writeBuffer.add(() -> onWrite(entry, oldEntry));
+        } finally {
+            writeLock.unlock();
+        }
+        scheduleDrain();
+    }
+
+    private void removeConcurrent(CacheEntry<K, V> entry, RemovalCause cause) {
+        ReentrantLock writeLock = writeLockFor(entry.key);
+        writeLock.lock();
+        try {
+            if (map.remove(entry.key, entry)) {
+                recordRemoval(entry, cause);
+                writeBuffer.add(() -> unlink(entry));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        scheduleDrain();
+    }
+
+    private ReentrantLock writeLockFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return writeLocks[(h & 0x7fffffff) % writeLocks.length];
+    }
+
+    private void scheduleDrain() {
+        drainStatus.set(REQUIRED);
+        tryDrain();
+    }
+
+    // if the lock is busy its holder sees REQUIRED when it finishes and drains again
+    private void tryDrain() {
+        do {
+            if (!lock.tryLock()) {
+                return;
+            }
+            try {
+                drainStatus.set(PROCESSING);
+                drainBuffers();
+            } finally {
+                drainStatus.compareAndSet(PROCESSING, IDLE);
+                lock.unlock();
+            }
+        } while (drainStatus.get() == REQUIRED);
+    }
+
+    private void drainBuffers() {
+        readBuffer.drainTo(this::onAccess);
+        Runnable task;
+        while ((task = writeBuffer.poll()) != null) {
+            task.run();
+        }
+    }
+
+    // ====================== policy (caller holds lock) ======================
+
+    @SuppressWarnings("unchecked")
+    private void drainReferences() {
+        if (referenceQueue == null) {
+            return;
+        }
+        Reference<? extends V> ref;
+        while ((ref = referenceQueue.poll()) != null) {
+            CacheEntry<K, V> entry = ((CacheEntry.ValueReference<K, V>) ref).entry();
+            if (entry.valueRef == ref) {
+                removeEntry(entry, RemovalCause.COLLECTED);
+            }
+        }
+    }
+
+    private void onAccess(CacheEntry<K, V> entry) {
+        if (!order.contains(entry)) {
+            // already evicted or replaced by the time the buffered read is replayed
+            return;
+        }
+        entry.accessTime = System.currentTimeMillis();
+        order.onAccess(entry);
+        if (expirePolicy == ExpirePolicy.AFTER_ACCESS) {
+            wheel.reschedule(entry);
+        }
+    }
+
+    private void onWrite(CacheEntry<K, V> entry, CacheEntry<K, V> oldEntry) {
+        link(entry, oldEntry);
+        evictToBounds();
+    }
+
+    private void link(CacheEntry<K, V> entry, CacheEntry<K, V> oldEntry) {
+        if (oldEntry != null) {
+            unlink(oldEntry);
+            recordRemoval(oldEntry, RemovalCause.REPLACED);
+        }
+        entry.accessTime = System.currentTimeMillis();
+        order.add(entry);
+        wheel.schedule(entry);
+        weightedSize += entry.weight;
+    }
+
+    private void evictToBounds() {
+        while (order.size() > capacity || (maximumWeight > 0 && weightedSize > maximumWeight)) {
+            removeEntry(order.victim(), RemovalCause.SIZE);
+        }
+    }
+
+    // the wheel has already unlinked the entry from its bucket
+    private void removeExpired(CacheEntry<K, V> entry) {
+        if (map.remove(entry.key, entry)) {
+            recordRemoval(entry, RemovalCause.EXPIRED);
+        }
+        if (order.contains(entry)) {
+            order.remove(entry);
+            weightedSize -= entry.weight;
+        }
+    }
+
+    // a failed map removal means the key was already replaced, and counted, elsewhere
+    private void removeEntry(CacheEntry<K, V> entry, RemovalCause cause) {
+        if (map.remove(entry.key, entry)) {
+            recordRemoval(entry, cause);
+        }
+        unlink(entry);
+    }
+
+    private void unlink(CacheEntry<K, V> entry) {
+        if (order.contains(entry)) {
+            order.remove(entry);
+            weightedSize -= entry.weight;
+        }
+        wheel.deschedule(entry);
+    }
+
+    private int weigh(K key, V value) {
+        if (weigher == null) {
+            return 1;
+        }
+        int weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight + " for key " + key);
+        }
+        return weight;
+    }
+
+    // ====================== statistics ======================
+
+    /** Snapshot of the counters, or {@link CacheStats#EMPTY} when stats are not recorded. */
+    public CacheStats stats() {
+        return statsCounter == null ? CacheStats.EMPTY : statsCounter.snapshot();
+    }
+
+    private void recordHit() {
+        if (statsCounter != null) statsCounter.recordHit();
+    }
+
+    private void recordMiss() {
+        if (statsCounter != null) statsCounter.recordMiss();
+    }
+
+    private void recordLoadSuccess(long loadTimeNanos) {
+        if (statsCounter != null) statsCounter.recordLoadSuccess(loadTimeNanos);
+    }
+
+    private void recordLoadFailure(long loadTimeNanos) {
+        if (statsCounter != null) statsCounter.recordLoadFailure(loadTimeNanos);
+    }
+
+    private void recordRemoval(CacheEntry<K, V> entry, RemovalCause cause) {
+        if (statsCounter != null) statsCounter.recordRemoval(cause);
+        notifyRemoval(entry, cause);
+        releaseOffHeap(entry);
+    }
+
+    // ====================== removal notification ======================
+
+    private record Removal<K, V>(K key, V value, RemovalCause cause) {
+    }
+
+    // cheap enough to call under the lock: the listener itself runs later, on another thread
+    private void notifyRemoval(CacheEntry<K, V> entry, RemovalCause cause) {
+        if (removalListener == null) {
+            return;
+        }
+        // an off-heap value is freed right away, so listeners never see its reused memory
+        V value = slabStore == null ? entry.getValue() : null;
+        pendingRemovals.add(new Removal<>(entry.key, value, cause));
+        if (deliveryScheduled.compareAndSet(false, true)) {
+            CacheScheduler.listenerExecutor().execute(this::deliverRemovals);
+        }
+    }
+
+    // at most one delivery per cache runs at a time, which keeps notifications in order
+    private void deliverRemovals() {
+        do {
+            Removal<K, V> removal;
+            while ((removal = pendingRemovals.poll()) != null) {
+                try {
+                    removalListener.onRemoval(removal.key(), removal.value(), removal.cause());
+                } catch (Throwable t) {
+                    System.err.println("removal listener failed: " + t);
+                }
+            }
+            deliveryScheduled.set(false);
+        } while (!pendingRemovals.isEmpty() && deliveryScheduled.compareAndSet(false, true));
+    }
+
+    // ====================== global budget support (used by CacheHandler) ======================
+
+    /** Sum of the weights of all entries; equals the entry count when no weigher is set. */
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    void setWeightListener(Runnable weightListener) {
+        this.weightListener = weightListener;
+    }
+
+    /** Last access time of the least recently used entry, or {@code Long.MAX_VALUE} if empty. */
+    long eldestAccessTime() {
         lock.lock();
         try {
-            if (isEmpty())
-                return Collections.emptyList();
-            List<V> values = new ArrayList<>();
-            map.forEach((key, entry) -> values.add(entry.value));
-            return values;
+            CacheEntry<K, V> eldest = order.eldest();
+            return eldest == null ? Long.MAX_VALUE : eldest.accessTime;
         } finally {
             lock.unlock();
         }
     }
 
-    public List<Map.Entry<K, V>> getAllKV() {
+    /**
+     * Evicts {@code fraction} of the entries at once, in eviction order.
+     * @return the number of entries evicted
+     */
+    int shrink(double fraction) {
         lock.lock();
         try {
-            if (isEmpty()) return Collections.emptyList();
-            List<Map.Entry<K, V>> entries = new ArrayList<>();
-            map.forEach((key, entry) -> entries.add(new AbstractMap.SimpleEntry<>(entry.key, entry.value)));
-            return entries;
+            if (concurrent) {
+                drainBuffers();
+            }
+            drainReferences();
+            int target = (int) (order.size() * (1 - fraction));
+            int evicted = 0;
+            while (order.size() > target) {
+                removeEntry(order.victim(), RemovalCause.SIZE);
+                evicted++;
+            }
+            return evicted;
         } finally {
             lock.unlock();
         }
     }
 
-    private void clearExpiredEntries() {
+    boolean evictEldest() {
         lock.lock();
         try {
-            Iterator<CacheEntry<K, V>> iterator = queue.iterator();
-            while (iterator.hasNext()) {
-                CacheEntry<K, V> expiredEntry = iterator.next();
-                if (expiredEntry != null && System.currentTimeMillis() >= expiredEntry.expireTime) {
-                    iterator.remove();
-                    map.remove(expiredEntry.key);
-                }
+            if (concurrent) {
+                drainBuffers();
+            }
+            CacheEntry<K, V> victim = order.victim();
+            if (victim == null) {
+                return false;
             }
+            removeEntry(victim, RemovalCause.SIZE);
+            return true;
         } finally {
             lock.unlock();
         }
@@ -173,50 +1305,159 @@ public class LRUCache<K, V> {
         return map;
     }
 
-    public PriorityQueue<CacheEntry<K, V>> getQueue() {
-        return queue;
-    }
-
-    // shutdown method to clear the cache and stop the scheduler
+    // shutdown method to clear the cache and stop its maintenance
     public void shutdown() {
+        if (referenceQueue != null) {
+            MemoryPressure.unregister(this);
+        }
         lock.lock();
         try {
-            queue.clear();
+            maintenance.cancel(false);
+            if (concurrent) {
+                drainBuffers();
+            }
+            for (CacheEntry<K, V> entry : map.values()) {
+                notifyRemoval(entry, RemovalCause.EXPLICIT);
+                releaseOffHeap(entry);
+            }
+            order.clear();
+            wheel.clear();
             map.clear();
-            scheduler.shutdown();
+            weightedSize = 0;
         } finally {
             lock.unlock();
         }
+        if (diskTier != null) {
+            diskTier.close();
+        }
     }
 
-    public static void main(String[] args) throws InterruptedException {
-        LRUCache<Integer, Integer> cache = new LRUCache<>(2, 1000 * 40);
-        cache.put(1, 1);
-        cache.put(2, 2);
-        System.out.println(cache.map.values());
+    /**
+     * Fluent configuration for caches that need more than capacity and expire time.
+     */
+    public static final class Builder<K, V> {
+        private int capacity = DEFAULT_CAPACITY;
+        private long expireTime = DEFAULT_EXPIRE_TIME;
+        private ExpirePolicy expirePolicy = ExpirePolicy.AFTER_ACCESS;
+        private boolean concurrent;
+        private Weigher<? super K, ? super V> weigher;
+        private long maximumWeight;
+        private long refreshAfter;
+        private long refreshJitter;
+        private boolean recordStats;
+        private DiskTier<K, V> diskTier;
+        private RemovalListener<? super K, ? super V> removalListener;
+        private ValueStrength valueStrength = ValueStrength.STRONG;
+        private SlabStore slabStore;
+        private EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+
+        private Builder() {
+        }
+
+        public Builder<K, V> capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        public Builder<K, V> expireAfter(long expireTime, ExpirePolicy expirePolicy) {
+            this.expireTime = expireTime;
+            this.expirePolicy = expirePolicy;
+            return this;
+        }
+
+        public Builder<K, V> expireAfterWrite(long expireTime) {
+            return expireAfter(expireTime, ExpirePolicy.AFTER_WRITE);
+        }
+
+        public Builder<K, V> expireAfterAccess(long expireTime) {
+            return expireAfter(expireTime, ExpirePolicy.AFTER_ACCESS);
+        }
+
+        /** Lock-free reads and key-striped writes, at the cost of an approximate LRU order. */
+        public Builder<K, V> concurrent() {
+            this.concurrent = true;
+            return this;
+        }
 
-        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+        /**
+         * How entries are chosen for eviction; {@link EvictionPolicy#W_TINY_LFU} keeps frequently
+         * used entries when one-off keys stream through, e.g. while paging through history.
+         */
+        public Builder<K, V> evictionPolicy(EvictionPolicy evictionPolicy) {
+            this.evictionPolicy = evictionPolicy;
+            return this;
+        }
 
-        scheduler.schedule(() -> {
-            Integer v1 = cache.get(1);
-            System.out.println("================visit entry 1::" + v1 + "==================");
-        }, 30, TimeUnit.SECONDS);
-        scheduler.shutdown();
+        public Builder<K, V> weigher(Weigher<? super K, ? super V> weigher) {
+            this.weigher = weigher;
+            return this;
+        }
 
-        int capacity = 2;
-        LinkedHashMap<String, String> s = new LinkedHashMap<String, String>(capacity, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
-                return size() > capacity;
+        /** Evicts by recency once the summed weights exceed this, in addition to the capacity bound. */
+        public Builder<K, V> maximumWeight(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        public Builder<K, V> recordStats() {
+            this.recordStats = true;
+            return this;
+        }
+
+        /**
+         * Serves entries older than {@code refreshAfter} while reloading them in the background.
+         * Each write draws an extra delay up to {@code jitter}, so entries written together, or
+         * by many clients at once, do not all refresh at the same moment. Only reads that pass a
+         * loader trigger the refresh; the cache-wide expiry still bounds how stale a value gets.
+         * @param refreshAfter soft time-to-live in milliseconds
+         * @param jitter maximum random delay added to it, in milliseconds
+         */
+        public Builder<K, V> refreshAfterWrite(long refreshAfter, long jitter) {
+            if (refreshAfter <= 0 || jitter < 0) {
+                throw new IllegalArgumentException("refreshAfter must be positive and jitter non-negative");
             }
-        };
-        s.put("a", "a");
-        s.put("b", "b");
-        System.out.println(s.values());
-        System.out.println(s.get("b"));
-        System.out.println(s.values());
-        s.put("c", "c");
-        System.out.println(s);
-    }
+            this.refreshAfter = refreshAfter;
+            this.refreshJitter = jitter;
+            return this;
+        }
 
+        /**
+         * Holds values through soft references, which the garbage collector reclaims before
+         * the heap runs out. The cache also shrinks itself when
+         * {@link MemoryPressure} reports the heap near its limit. For values that are expensive
+         * to rebuild but safe to drop, such as decoded images.
+         */
+        public Builder<K, V> softValues() {
+            this.valueStrength = ValueStrength.SOFT;
+            return this;
+        }
+
+        /**
+         * Holds values through weak references, so an entry lives only while its value is in
+         * use elsewhere; shrinks under memory pressure like {@link #softValues()}.
+         */
+        public Builder<K, V> weakValues() {
+            this.valueStrength = ValueStrength.WEAK;
+            return this;
+        }
+
+        /** Notified, asynchronously, of every entry that leaves the cache, including on {@link #shutdown()}. */
+        public Builder<K, V> removalListener(RemovalListener<? super K, ? super V> removalListener) {
+            this.removalListener = removalListener;
+            return this;
+        }
+
+        /** Persists entries to {@code diskTier}; the cache closes it on {@link #shutdown()}. */
+        public Builder<K, V> diskTier(DiskTier<K, V> diskTier) {
+            this.diskTier = diskTier;
+            return this;
+        }
+
+        public LRUCache<K, V> build() {
+            if (slabStore != null && valueStrength != ValueStrength.STRONG) {
+                throw new IllegalStateException("off-heap values cannot be soft or weak");
+            }
+            return new LRUCache<>(this);
+        }
+    }
 }
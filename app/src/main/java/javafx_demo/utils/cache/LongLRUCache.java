@@ -0,0 +1,443 @@
+package javafx_demo.utils.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link LRUCache} specialised for primitive {@code long} keys such as user and pal ids. Keys
+ * are never boxed and there is no node object per entry: every entry is a slot in a set of
+ * parallel arrays, the access order is a doubly-linked list of slot indices, and lookups go
+ * through an open-addressing table of slot indices with linear probing and backward-shift
+ * deletion, so no tombstones accumulate.
+ * <p>
+ * Eviction, expiry policies, per-put TTLs and statistics behave as in {@link LRUCache} in its
+ * default (single-lock) mode. Expired entries are checked lazily on every read and swept by
+ * the shared {@link CacheScheduler} tick through a {@link SlotTimerWheel}, which links slot
+ * indices rather than nodes, so a tick only visits the buckets that came due. Arrays start
+ * small and double up to the capacity.
+ */
+public class LongLRUCache<V> {
+    private static final int NIL = -1;
+    private static final int INITIAL_SLOTS = 16;
+    private static final long DEFAULT_EXPIRE_TIME = 5 * 60 * 1000;
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final int capacity;
+    private final long expireTimeLimit;
+    private final ExpirePolicy expirePolicy;
+    private final StatsCounter statsCounter; // null unless recordStats was requested
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledFuture<?> maintenance;
+    private volatile Runnable weightListener;
+
+    // hash index: slot + 1 per bucket, 0 when empty
+    private int[] table;
+    private int mask;
+
+    // slot storage
+    private long[] keys;
+    private Object[] values;
+    private long[] expireTime;
+    private long[] ttl;
+    private long[] accessTime;
+    private int[] prev;
+    private int[] next; // also links the free list
+    private SlotTimerWheel wheel;
+
+    private int head = NIL; // least recently used
+    private int tail = NIL; // most recently used
+    private int freeHead = NIL;
+    private int used; // slots handed out at least once
+    private volatile int size;
+
+    // constructors
+    public LongLRUCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_EXPIRE_TIME);
+    }
+
+    public LongLRUCache(int capacity) {
+        this(capacity, DEFAULT_EXPIRE_TIME);
+    }
+
+    public LongLRUCache(long expireTime) {
+        this(DEFAULT_CAPACITY, expireTime);
+    }
+
+    public LongLRUCache(int capacity, long expireTimeLimit) {
+        this(capacity, expireTimeLimit, ExpirePolicy.AFTER_ACCESS);
+    }
+
+    public LongLRUCache(int capacity, long expireTimeLimit, ExpirePolicy expirePolicy) {
+        this(capacity, expireTimeLimit, expirePolicy, false);
+    }
+
+    // the first maintenance tick runs one TICK_MS after scheduling, long after construction returns
+    @SuppressWarnings("this-escape")
+    public LongLRUCache(int capacity, long expireTimeLimit, ExpirePolicy expirePolicy, boolean recordStats) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("negative capacity " + capacity);
+        }
+        this.capacity = capacity;
+        this.expireTimeLimit = expireTimeLimit;
+        this.expirePolicy = expirePolicy;
+        this.statsCounter = recordStats ? new StatsCounter() : null;
+        allocate(Math.min(INITIAL_SLOTS, Math.max(capacity, 1)));
+        this.maintenance = CacheScheduler.schedulePeriodic(this::cleanUp);
+    }
+
+    public V get(long key) {
+        lock.lock();
+        try {
+            int slot = find(key);
+            if (slot == NIL) {
+                recordMiss();
+                return null;
+            }
+            long now = System.currentTimeMillis();
+            if (now >= expireTime[slot]) {
+                removeSlot(slot, RemovalCause.EXPIRED);
+                recordMiss();
+                return null;
+            }
+            if (expirePolicy == ExpirePolicy.AFTER_ACCESS) {
+                expireTime[slot] = now + ttl[slot];
+                wheel.reschedule(slot, expireTime[slot]);
+            }
+            accessTime[slot] = now;
+            moveToBack(slot);
+            recordHit();
+            return value(slot);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the value if present and not expired, without counting a hit or a miss or
+     * touching its recency.
+     */
+    public V peek(long key) {
+        lock.lock();
+        try {
+            int slot = find(key);
+            return slot == NIL || System.currentTimeMillis() >= expireTime[slot] ? null : value(slot);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(long key, V value) {
+        put(key, value, expireTimeLimit);
+    }
+
+    /**
+     * Stores a value with its own time-to-live instead of the cache-wide limit.
+     * @param ttl time-to-live in milliseconds, counted according to the cache's {@link ExpirePolicy}
+     */
+    public void put(long key, V value, long ttl) {
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            int slot = find(key);
+            if (slot != NIL) {
+                unlinkOrder(slot);
+                recordRemoval(RemovalCause.REPLACED);
+            } else {
+                while (size >= capacity && head != NIL) {
+                    removeSlot(head, RemovalCause.SIZE);
+                }
+                slot = newSlot();
+                keys[slot] = key;
+                insertIndex(slot);
+                size++;
+            }
+            values[slot] = value;
+            this.ttl[slot] = ttl;
+            expireTime[slot] = now + ttl;
+            accessTime[slot] = now;
+            linkLast(slot);
+            wheel.reschedule(slot, expireTime[slot]);
+            if (size > capacity) {
+                // capacity 0: nothing is retained
+                removeSlot(slot, RemovalCause.SIZE);
+            }
+        } finally {
+            lock.unlock();
+        }
+        Runnable listener = weightListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    public void invalidate(long key) {
+        lock.lock();
+        try {
+            int slot = find(key);
+            if (slot != NIL) {
+                removeSlot(slot, RemovalCause.EXPLICIT);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            while (head != NIL) {
+                removeSlot(head, RemovalCause.EXPLICIT);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Removes expired entries. Runs on every maintenance tick. */
+    public void cleanUp() {
+        lock.lock();
+        try {
+            wheel.advance(System.currentTimeMillis(), slot -> expireTime[slot],
+                    slot -> removeSlot(slot, RemovalCause.EXPIRED));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size >= capacity;
+    }
+
+    /** Snapshot of the counters, or {@link CacheStats#EMPTY} when stats are not recorded. */
+    public CacheStats stats() {
+        return statsCounter == null ? CacheStats.EMPTY : statsCounter.snapshot();
+    }
+
+    // shutdown method to clear the cache and stop its maintenance
+    public void shutdown() {
+        lock.lock();
+        try {
+            maintenance.cancel(false);
+            head = tail = freeHead = NIL;
+            used = 0;
+            size = 0;
+            allocate(Math.min(INITIAL_SLOTS, Math.max(capacity, 1)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ====================== global budget support (used by CacheHandler) ======================
+
+    /** Every entry weighs one. */
+    public long weightedSize() {
+        return size;
+    }
+
+    void setWeightListener(Runnable weightListener) {
+        this.weightListener = weightListener;
+    }
+
+    long eldestAccessTime() {
+        lock.lock();
+        try {
+            return head == NIL ? Long.MAX_VALUE : accessTime[head];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean evictEldest() {
+        lock.lock();
+        try {
+            if (head == NIL) {
+                return false;
+            }
+            removeSlot(head, RemovalCause.SIZE);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ====================== slots (caller holds lock) ======================
+
+    @SuppressWarnings("unchecked")
+    private V value(int slot) {
+        return (V) values[slot];
+    }
+
+    private int newSlot() {
+        if (freeHead != NIL) {
+            int slot = freeHead;
+            freeHead = next[slot];
+            return slot;
+        }
+        if (used == keys.length) {
+            grow();
+        }
+        return used++;
+    }
+
+    private void removeSlot(int slot, RemovalCause cause) {
+        deleteIndex(slot);
+        unlinkOrder(slot);
+        wheel.deschedule(slot);
+        values[slot] = null;
+        next[slot] = freeHead;
+        freeHead = slot;
+        size--;
+        recordRemoval(cause);
+    }
+
+    private void grow() {
+        int slots = (int) Math.min(keys.length * 2L, Math.max(capacity, 1));
+        keys = Arrays.copyOf(keys, slots);
+        values = Arrays.copyOf(values, slots);
+        expireTime = Arrays.copyOf(expireTime, slots);
+        ttl = Arrays.copyOf(ttl, slots);
+        accessTime = Arrays.copyOf(accessTime, slots);
+        prev = Arrays.copyOf(prev, slots);
+        next = Arrays.copyOf(next, slots);
+        wheel.grow(slots);
+        newTable(slots);
+        // every slot below used is either live or on the free list; only live ones are indexed
+        for (int slot = head; slot != NIL; slot = next[slot]) {
+            insertIndex(slot);
+        }
+    }
+
+    private void allocate(int slots) {
+        keys = new long[slots];
+        values = new Object[slots];
+        expireTime = new long[slots];
+        ttl = new long[slots];
+        accessTime = new long[slots];
+        prev = new int[slots];
+        next = new int[slots];
+        wheel = new SlotTimerWheel(System.currentTimeMillis(), slots);
+        newTable(slots);
+    }
+
+    // at most half full, so probe sequences stay short
+    private void newTable(int slots) {
+        int buckets = Integer.highestOneBit(Math.max(slots, 2) * 2 - 1) << 1;
+        table = new int[buckets];
+        mask = buckets - 1;
+    }
+
+    // ====================== hash index ======================
+
+    private static int hash(long key) {
+        // murmur3 fmix64
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private int find(long key) {
+        int bucket = hash(key) & mask;
+        while (true) {
+            int slot = table[bucket] - 1;
+            if (slot == NIL || keys[slot] == key) {
+                return slot;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+    }
+
+    private void insertIndex(int slot) {
+        int bucket = hash(keys[slot]) & mask;
+        while (table[bucket] != 0) {
+            bucket = (bucket + 1) & mask;
+        }
+        table[bucket] = slot + 1;
+    }
+
+    // backward-shift deletion: pull later members of the probe run into the gap
+    private void deleteIndex(int slot) {
+        int gap = hash(keys[slot]) & mask;
+        while (table[gap] - 1 != slot) {
+            gap = (gap + 1) & mask;
+        }
+        int bucket = gap;
+        while (true) {
+            bucket = (bucket + 1) & mask;
+            int candidate = table[bucket] - 1;
+            if (candidate == NIL) {
+                break;
+            }
+            int home = hash(keys[candidate]) & mask;
+            // movable unless its home lies cyclically in (gap, bucket]
+            boolean movable = gap <= bucket
+                    ? home <= gap || home > bucket
+                    : home <= gap && home > bucket;
+            if (movable) {
+                table[gap] = table[bucket];
+                gap = bucket;
+            }
+        }
+        table[gap] = 0;
+    }
+
+    // ====================== access order ======================
+
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NIL;
+        if (tail == NIL) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlinkOrder(int slot) {
+        int p = prev[slot];
+        int n = next[slot];
+        if (p == NIL) {
+            head = n;
+        } else {
+            next[p] = n;
+        }
+        if (n == NIL) {
+            tail = p;
+        } else {
+            prev[n] = p;
+        }
+    }
+
+    private void moveToBack(int slot) {
+        if (slot != tail) {
+            unlinkOrder(slot);
+            linkLast(slot);
+        }
+    }
+
+    // ====================== statistics ======================
+
+    private void recordHit() {
+        if (statsCounter != null) statsCounter.recordHit();
+    }
+
+    private void recordMiss() {
+        if (statsCounter != null) statsCounter.recordMiss();
+    }
+
+    private void recordRemoval(RemovalCause cause) {
+        if (statsCounter != null) statsCounter.recordRemoval(cause);
+    }
+}
@@ -0,0 +1,79 @@
+package javafx_demo.utils.cache;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shrinks registered caches when the heap runs short. Thresholds are set on the heap memory
+ * pools and the JVM notifies us when one is crossed, so nothing polls.
+ * <p>
+ * The collection-usage threshold (occupancy measured right after a GC) is preferred, since
+ * plain usage routinely climbs past any threshold between collections; pools that only support
+ * a usage threshold get a higher one. Each notification drops the least recently used half of
+ * every registered cache, and since a collection threshold notifies after every GC that ends
+ * above it, sustained pressure keeps shrinking the caches.
+ */
+final class MemoryPressure {
+    static final double COLLECTION_THRESHOLD = 0.75;
+    static final double USAGE_THRESHOLD = 0.90;
+    static final double SHRINK_FRACTION = 0.5;
+
+    private static final Set<LRUCache<?, ?>> CACHES = ConcurrentHashMap.newKeySet();
+    private static volatile boolean installed;
+
+    private MemoryPressure() {
+    }
+
+    static void register(LRUCache<?, ?> cache) {
+        install();
+        CACHES.add(cache);
+    }
+
+    static void unregister(LRUCache<?, ?> cache) {
+        CACHES.remove(cache);
+    }
+
+    private static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        installed = true;
+        long heapMax = Runtime.getRuntime().maxMemory();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) {
+                continue;
+            }
+            long max = pool.getUsage().getMax();
+            if (max <= 0) {
+                max = heapMax;
+            }
+            if (pool.isCollectionUsageThresholdSupported()) {
+                pool.setCollectionUsageThreshold((long) (max * COLLECTION_THRESHOLD));
+            } else if (pool.isUsageThresholdSupported()) {
+                pool.setUsageThreshold((long) (max * USAGE_THRESHOLD));
+            }
+        }
+        NotificationEmitter emitter = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+        emitter.addNotificationListener((notification, handback) -> onNotification(notification), null, null);
+    }
+
+    // package-private so tests can simulate the JVM's notification
+    static void onNotification(Notification notification) {
+        String type = notification.getType();
+        if (!MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type)
+                && !MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(type)) {
+            return;
+        }
+        int evicted = 0;
+        for (LRUCache<?, ?> cache : CACHES) {
+            evicted += cache.shrink(SHRINK_FRACTION);
+        }
+        System.err.println("heap near its limit (" + notification.getMessage() + "), evicted " + evicted + " cache entries");
+    }
+}
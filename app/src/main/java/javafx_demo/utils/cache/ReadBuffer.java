@@ -0,0 +1,84 @@
+package javafx_demo.utils.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Lossy, striped ring buffers that record which entries were read so the access order can be
+ * replayed later under the cache lock. A reader picks a stripe by its thread id and never
+ * blocks: when its stripe is full or contended the access is simply dropped, which only makes
+ * the LRU order slightly less precise.
+ */
+class ReadBuffer<K, V> {
+    private static final int STRIPES = ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors());
+    private static final int SIZE = 16;
+    private static final int MASK = SIZE - 1;
+
+    private final Stripe<K, V>[] stripes;
+
+    ReadBuffer() {
+        stripes = newStripes(STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe<>();
+        }
+    }
+
+    /**
+     * @return {@code true} if the caller's stripe is now full and should be drained
+     */
+    boolean offer(CacheEntry<K, V> e) {
+        Stripe<K, V> stripe = stripes[stripeIndex()];
+        long head = stripe.readCounter.get();
+        long tail = stripe.writeCounter.get();
+        long size = tail - head;
+        if (size >= SIZE) {
+            return true;
+        }
+        if (stripe.writeCounter.compareAndSet(tail, tail + 1)) {
+            stripe.buffer.lazySet((int) (tail & MASK), e);
+            return size + 1 >= SIZE;
+        }
+        return false;
+    }
+
+    /** Must be called under the cache lock: each stripe has a single consumer. */
+    void drainTo(Consumer<CacheEntry<K, V>> consumer) {
+        for (Stripe<K, V> stripe : stripes) {
+            long head = stripe.readCounter.get();
+            long tail = stripe.writeCounter.get();
+            for (; head < tail; head++) {
+                int index = (int) (head & MASK);
+                CacheEntry<K, V> e = stripe.buffer.get(index);
+                if (e == null) {
+                    // slot claimed but not yet published; pick it up on the next drain
+                    break;
+                }
+                stripe.buffer.lazySet(index, null);
+                consumer.accept(e);
+            }
+            stripe.readCounter.lazySet(head);
+        }
+    }
+
+    private static int stripeIndex() {
+        long id = Thread.currentThread().threadId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Stripe<K, V>[] newStripes(int count) {
+        return (Stripe<K, V>[]) new Stripe<?, ?>[count];
+    }
+
+    private static int ceilingPowerOfTwo(int x) {
+        return 1 << (32 - Integer.numberOfLeadingZeros(Math.max(1, x) - 1));
+    }
+
+    private static final class Stripe<K, V> {
+        final AtomicLong readCounter = new AtomicLong();
+        final AtomicLong writeCounter = new AtomicLong();
+        final AtomicReferenceArray<CacheEntry<K, V>> buffer = new AtomicReferenceArray<>(SIZE);
+    }
+}
@@ -0,0 +1,22 @@
+package javafx_demo.utils.cache;
+
+/**
+ * Why an entry left the cache.
+ */
+public enum RemovalCause {
+    /** removed by the caller */
+    EXPLICIT,
+    /** overwritten by a put for the same key */
+    REPLACED,
+    /** evicted to respect the capacity, weight or memory budget */
+    SIZE,
+    /** its time-to-live ran out */
+    EXPIRED,
+    /** its soft or weak value was reclaimed by the garbage collector */
+    COLLECTED;
+
+    /** Whether the cache itself decided to drop the entry. */
+    public boolean wasEvicted() {
+        return this == SIZE || this == EXPIRED || this == COLLECTED;
+    }
+}
@@ -0,0 +1,16 @@
+package javafx_demo.utils.cache;
+
+/**
+ * Told about every entry that leaves a cache, e.g. to release resources held by the value.
+ * Called on a shared listener thread after the removal, never under the cache lock, so it may
+ * block or call back into the cache; notifications of one cache arrive in removal order.
+ */
+@FunctionalInterface
+public interface RemovalListener<K, V> {
+    /**
+     * @param value the removed value, or {@code null} if it was already reclaimed
+     *              ({@link RemovalCause#COLLECTED}) or cleared from a soft or weak reference since;
+     *              always {@code null} for off-heap caches, whose memory is reused immediately
+     */
+    void onRemoval(K key, V value, RemovalCause cause);
+}
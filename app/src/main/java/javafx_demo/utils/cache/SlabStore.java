@@ -0,0 +1,219 @@
+package javafx_demo.utils.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Off-heap memory for the values of an {@linkplain LRUCache#newOffHeapBuilder(SlabStore) off-heap
+ * cache}, so large byte payloads add neither to the heap size nor to GC work.
+ * <p>
+ * Memory is reserved in direct {@link ByteBuffer} slabs of one fixed size, up to a total limit.
+ * A slab in use is carved into equal chunks of one size class (powers of two from
+ * {@value #MIN_CHUNK} bytes up to the slab size), and a payload is copied into a free chunk of
+ * the smallest class that fits it, wasting at most half of the chunk. Once every chunk of a slab
+ * is free again, the slab goes back to a shared pool and can be carved for any class, so memory
+ * follows the payload sizes as they change instead of staying with the class that first
+ * claimed it. Slabs are never handed back to the JVM before {@link #clear()}.
+ * <p>
+ * The stored payload is handed out as a read-only view of its chunk, without copying. A view
+ * is only valid while its entry is in the cache: once the entry is removed the chunk is reused.
+ * <p>
+ * One store may back several caches; when it is full, only the writing cache evicts to make
+ * room. All methods are thread-safe.
+ */
+public final class SlabStore {
+    static final int MIN_CHUNK = 512;
+    private static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+
+    private final int slabSize;
+    private final long maxBytes;
+    private final SizeClass[] classes;
+    private final ArrayDeque<ByteBuffer> emptySlabs = new ArrayDeque<>();
+    private final Map<ByteBuffer, Chunk> chunks = new IdentityHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long reservedBytes;
+    private long usedBytes;
+
+    /**
+     * @param maxBytes direct memory to reserve at most; payloads up to 4 MB can be stored
+     */
+    public SlabStore(long maxBytes) {
+        this(maxBytes, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * @param slabSize bytes per slab, a power of two; also the largest payload the store holds
+     */
+    public SlabStore(long maxBytes, int slabSize) {
+        if (slabSize < MIN_CHUNK || Integer.bitCount(slabSize) != 1) {
+            throw new IllegalArgumentException("slab size must be a power of two >= " + MIN_CHUNK + ": " + slabSize);
+        }
+        if (maxBytes < slabSize) {
+            throw new IllegalArgumentException("maxBytes " + maxBytes + " is smaller than one slab");
+        }
+        this.slabSize = slabSize;
+        this.maxBytes = maxBytes;
+        this.classes = new SizeClass[classOf(slabSize) + 1];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new SizeClass(MIN_CHUNK << i);
+        }
+    }
+
+    /** Largest payload in bytes that fits in a chunk. */
+    public int maxPayload() {
+        return slabSize;
+    }
+
+    /** Direct memory currently reserved by slabs. */
+    public long reservedBytes() {
+        lock.lock();
+        try {
+            return reservedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Payload bytes currently stored, excluding the unused tails of their chunks. */
+    public long usedBytes() {
+        lock.lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Drops every payload and slab; views handed out before must no longer be read. */
+    public void clear() {
+        lock.lock();
+        try {
+            for (SizeClass sizeClass : classes) {
+                sizeClass.available.clear();
+            }
+            emptySlabs.clear();
+            chunks.clear();
+            reservedBytes = 0;
+            usedBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies the remaining bytes of {@code payload} into a free chunk, leaving its position
+     * untouched.
+     * @return a read-only view of the copy, or {@code null} if no chunk of its class is free
+     *         and no slab can be reserved; {@link #fits} tells whether evicting can help
+     */
+    ByteBuffer store(ByteBuffer payload) {
+        int length = payload.remaining();
+        if (!fits(length)) {
+            return null;
+        }
+        lock.lock();
+        try {
+            SizeClass sizeClass = classes[classOf(length)];
+            Slab slab = sizeClass.available.peekFirst();
+            if (slab == null) {
+                ByteBuffer memory = reserveSlab();
+                if (memory == null) {
+                    return null;
+                }
+                slab = new Slab(memory, sizeClass);
+                sizeClass.available.addFirst(slab);
+            }
+            int index = slab.free[--slab.freeCount];
+            if (slab.freeCount == 0) {
+                sizeClass.available.removeFirst();
+            }
+            int offset = index * sizeClass.chunkSize;
+            slab.memory.put(offset, payload, payload.position(), length);
+            ByteBuffer view = slab.memory.slice(offset, length).asReadOnlyBuffer();
+            chunks.put(view, new Chunk(slab, index));
+            usedBytes += length;
+            return view;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean fits(int length) {
+        return length <= slabSize;
+    }
+
+    /** Returns the chunk behind a view from {@link #store}; unknown buffers are ignored. */
+    void free(ByteBuffer view) {
+        lock.lock();
+        try {
+            Chunk chunk = chunks.remove(view);
+            if (chunk == null) {
+                return;
+            }
+            Slab slab = chunk.slab;
+            usedBytes -= view.capacity();
+            slab.free[slab.freeCount++] = chunk.index;
+            if (slab.freeCount == slab.free.length) {
+                // wholly free: back to the pool, and no longer carved for this class
+                slab.sizeClass.available.remove(slab);
+                emptySlabs.push(slab.memory);
+            } else if (slab.freeCount == 1) {
+                slab.sizeClass.available.addLast(slab);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // caller holds lock
+    private ByteBuffer reserveSlab() {
+        ByteBuffer memory = emptySlabs.poll();
+        if (memory != null) {
+            return memory;
+        }
+        if (reservedBytes + slabSize > maxBytes) {
+            return null;
+        }
+        reservedBytes += slabSize;
+        return ByteBuffer.allocateDirect(slabSize);
+    }
+
+    private static int classOf(int length) {
+        int chunkSize = Math.max(MIN_CHUNK, Integer.highestOneBit(Math.max(length, 1) * 2 - 1));
+        return Integer.numberOfTrailingZeros(chunkSize) - Integer.numberOfTrailingZeros(MIN_CHUNK);
+    }
+
+    private static final class SizeClass {
+        final int chunkSize;
+        // slabs of this class with at least one free chunk
+        final ArrayDeque<Slab> available = new ArrayDeque<>();
+
+        SizeClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    private static final class Slab {
+        final ByteBuffer memory;
+        final SizeClass sizeClass;
+        final int[] free; // stack of free chunk indices
+        int freeCount;
+
+        Slab(ByteBuffer memory, SizeClass sizeClass) {
+            this.memory = memory;
+            this.sizeClass = sizeClass;
+            this.free = new int[memory.capacity() / sizeClass.chunkSize];
+            // popped from the top, so chunks are handed out front to back
+            for (int i = 0; i < free.length; i++) {
+                free[i] = free.length - 1 - i;
+            }
+            this.freeCount = free.length;
+        }
+    }
+
+    private record Chunk(Slab slab, int index) {
+    }
+}
@@ -0,0 +1,135 @@
+package javafx_demo.utils.cache;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+
+/**
+ * The {@link TimerWheel} for {@link LongLRUCache}: same levels and cascading, but it schedules
+ * slot indices instead of entry objects. Bucket lists are linked through int arrays indexed by
+ * slot, so scheduling allocates nothing, and the arrays grow with the cache's slot storage.
+ * Guarded by the owning cache's lock.
+ */
+final class SlotTimerWheel {
+    private static final int NIL = -1;
+
+    private final int[] levelStart; // index of each level's first bucket in heads
+    private final int[] heads;      // first slot of each bucket, NIL when empty
+    private int[] prev;
+    private int[] next;
+    private int[] bucket;           // bucket a slot is scheduled in, NIL when it is not
+    private long time;
+
+    SlotTimerWheel(long now, int slots) {
+        this.time = now;
+        this.levelStart = new int[TimerWheel.BUCKETS.length];
+        int buckets = 0;
+        for (int i = 0; i < TimerWheel.BUCKETS.length; i++) {
+            levelStart[i] = buckets;
+            buckets += TimerWheel.BUCKETS[i];
+        }
+        this.heads = new int[buckets];
+        Arrays.fill(heads, NIL);
+        this.prev = new int[slots];
+        this.next = new int[slots];
+        this.bucket = new int[slots];
+        Arrays.fill(bucket, NIL);
+    }
+
+    void grow(int slots) {
+        int old = bucket.length;
+        prev = Arrays.copyOf(prev, slots);
+        next = Arrays.copyOf(next, slots);
+        bucket = Arrays.copyOf(bucket, slots);
+        Arrays.fill(bucket, old, slots, NIL);
+    }
+
+    void schedule(int slot, long expireTime) {
+        int b = findBucket(expireTime);
+        int first = heads[b];
+        prev[slot] = NIL;
+        next[slot] = first;
+        if (first != NIL) {
+            prev[first] = slot;
+        }
+        heads[b] = slot;
+        bucket[slot] = b;
+    }
+
+    void reschedule(int slot, long expireTime) {
+        deschedule(slot);
+        schedule(slot, expireTime);
+    }
+
+    void deschedule(int slot) {
+        int b = bucket[slot];
+        if (b == NIL) {
+            return;
+        }
+        int p = prev[slot];
+        int n = next[slot];
+        if (p == NIL) {
+            heads[b] = n;
+        } else {
+            next[p] = n;
+        }
+        if (n != NIL) {
+            prev[n] = p;
+        }
+        bucket[slot] = NIL;
+    }
+
+    /**
+     * Moves the wheel to {@code now}, handing every slot whose time has come to
+     * {@code onExpired}. Slots that are not yet due are re-bucketed at a finer level.
+     */
+    void advance(long now, IntToLongFunction expireTime, IntConsumer onExpired) {
+        long previous = time;
+        time = now;
+        for (int i = 0; i < TimerWheel.SHIFT.length; i++) {
+            long previousTicks = previous >>> TimerWheel.SHIFT[i];
+            long currentTicks = now >>> TimerWheel.SHIFT[i];
+            long delta = currentTicks - previousTicks;
+            if (delta <= 0) {
+                break;
+            }
+            expire(i, previousTicks, delta, now, expireTime, onExpired);
+        }
+    }
+
+    private void expire(int level, long previousTicks, long delta, long now,
+                        IntToLongFunction expireTime, IntConsumer onExpired) {
+        int buckets = TimerWheel.BUCKETS[level];
+        int mask = buckets - 1;
+        int steps = (int) Math.min(1 + delta, buckets);
+        int start = (int) (previousTicks & mask);
+        for (int i = start; i < start + steps; i++) {
+            int b = levelStart[level] + (i & mask);
+            int slot = heads[b];
+            heads[b] = NIL;
+            while (slot != NIL) {
+                int following = next[slot];
+                bucket[slot] = NIL;
+                long due = expireTime.applyAsLong(slot);
+                if (due > now) {
+                    schedule(slot, due);
+                } else {
+                    onExpired.accept(slot);
+                }
+                slot = following;
+            }
+        }
+    }
+
+    private int findBucket(long expireTime) {
+        long duration = expireTime - time;
+        int last = TimerWheel.SHIFT.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (duration < (1L << TimerWheel.SHIFT[i + 1])) {
+                long ticks = expireTime >>> TimerWheel.SHIFT[i];
+                return levelStart[i] + (int) (ticks & (TimerWheel.BUCKETS[i] - 1));
+            }
+        }
+        return levelStart[last];
+    }
+}
@@ -0,0 +1,54 @@
+package javafx_demo.utils.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Striped counters behind {@link CacheStats}. {@link LongAdder} spreads contended increments
+ * over per-thread cells, so recording never allocates once the cells exist and never makes
+ * readers contend with each other.
+ */
+final class StatsCounter {
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final LongAdder[] removalCounts = new LongAdder[RemovalCause.values().length];
+
+    StatsCounter() {
+        for (int i = 0; i < removalCounts.length; i++) {
+            removalCounts[i] = new LongAdder();
+        }
+    }
+
+    void recordHit() {
+        hitCount.increment();
+    }
+
+    void recordMiss() {
+        missCount.increment();
+    }
+
+    void recordLoadSuccess(long loadTimeNanos) {
+        loadSuccessCount.increment();
+        totalLoadTime.add(loadTimeNanos);
+    }
+
+    void recordLoadFailure(long loadTimeNanos) {
+        loadFailureCount.increment();
+        totalLoadTime.add(loadTimeNanos);
+    }
+
+    void recordRemoval(RemovalCause cause) {
+        removalCounts[cause.ordinal()].increment();
+    }
+
+    CacheStats snapshot() {
+        long[] removals = new long[removalCounts.length];
+        for (int i = 0; i < removals.length; i++) {
+            removals[i] = removalCounts[i].sum();
+        }
+        return new CacheStats(hitCount.sum(), missCount.sum(), loadSuccessCount.sum(),
+                loadFailureCount.sum(), totalLoadTime.sum(), removals);
+    }
+}
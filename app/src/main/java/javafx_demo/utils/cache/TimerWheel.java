@@ -0,0 +1,134 @@
+package javafx_demo.utils.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel that expires entries in amortized O(1). Each level is a ring of
+ * buckets whose width grows by a power of two (~1s, ~1m, ~1h, ~18h, ~3d); an entry sits in the
+ * coarsest bucket that can still hold it and cascades down to finer levels as time advances.
+ * Guarded by the owning cache's lock.
+ */
+class TimerWheel<K, V> {
+    static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    static final int[] SHIFT = {10, 16, 22, 26, 28};
+
+    private final CacheEntry<K, V>[][] wheel;
+    private long time;
+
+    TimerWheel(long now) {
+        this.time = now;
+        this.wheel = newLevels(BUCKETS.length);
+        for (int i = 0; i < BUCKETS.length; i++) {
+            wheel[i] = newBuckets(BUCKETS[i]);
+            for (int j = 0; j < BUCKETS[i]; j++) {
+                CacheEntry<K, V> sentinel = new CacheEntry<>(null, null, 0);
+                sentinel.timerPrev = sentinel;
+                sentinel.timerNext = sentinel;
+                wheel[i][j] = sentinel;
+            }
+        }
+    }
+
+    void schedule(CacheEntry<K, V> e) {
+        CacheEntry<K, V> sentinel = findBucket(e.expireTime);
+        CacheEntry<K, V> tail = sentinel.timerPrev;
+        e.timerPrev = tail;
+        e.timerNext = sentinel;
+        tail.timerNext = e;
+        sentinel.timerPrev = e;
+    }
+
+    void reschedule(CacheEntry<K, V> e) {
+        deschedule(e);
+        schedule(e);
+    }
+
+    void deschedule(CacheEntry<K, V> e) {
+        if (e.timerNext != null) {
+            e.timerPrev.timerNext = e.timerNext;
+            e.timerNext.timerPrev = e.timerPrev;
+            e.timerPrev = null;
+            e.timerNext = null;
+        }
+    }
+
+    /**
+     * Moves the wheel to {@code now}, handing every entry whose time has come to
+     * {@code onExpired}. Entries that are not yet due are re-bucketed at a finer level.
+     */
+    void advance(long now, Consumer<CacheEntry<K, V>> onExpired) {
+        long previous = time;
+        time = now;
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previous >>> SHIFT[i];
+            long currentTicks = now >>> SHIFT[i];
+            long delta = currentTicks - previousTicks;
+            if (delta <= 0) {
+                break;
+            }
+            expire(i, previousTicks, delta, now, onExpired);
+        }
+    }
+
+    void clear() {
+        for (CacheEntry<K, V>[] level : wheel) {
+            for (CacheEntry<K, V> sentinel : level) {
+                CacheEntry<K, V> e = sentinel.timerNext;
+                while (e != sentinel) {
+                    CacheEntry<K, V> next = e.timerNext;
+                    e.timerPrev = null;
+                    e.timerNext = null;
+                    e = next;
+                }
+                sentinel.timerPrev = sentinel;
+                sentinel.timerNext = sentinel;
+            }
+        }
+    }
+
+    private void expire(int level, long previousTicks, long delta, long now, Consumer<CacheEntry<K, V>> onExpired) {
+        CacheEntry<K, V>[] buckets = wheel[level];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(1 + delta, buckets.length);
+        int start = (int) (previousTicks & mask);
+        for (int i = start; i < start + steps; i++) {
+            CacheEntry<K, V> sentinel = buckets[i & mask];
+            CacheEntry<K, V> e = sentinel.timerNext;
+            sentinel.timerPrev = sentinel;
+            sentinel.timerNext = sentinel;
+            while (e != sentinel) {
+                CacheEntry<K, V> next = e.timerNext;
+                e.timerPrev = null;
+                e.timerNext = null;
+                if (e.expireTime > now) {
+                    schedule(e);
+                } else {
+                    onExpired.accept(e);
+                }
+                e = next;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> CacheEntry<K, V>[][] newLevels(int levels) {
+        return (CacheEntry<K, V>[][]) new CacheEntry<?, ?>[levels][];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> CacheEntry<K, V>[] newBuckets(int buckets) {
+        return (CacheEntry<K, V>[]) new CacheEntry<?, ?>[buckets];
+    }
+
+    private CacheEntry<K, V> findBucket(long expireTime) {
+        long duration = expireTime - time;
+        int last = wheel.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (duration < (1L << SHIFT[i + 1])) {
+                long ticks = expireTime >>> SHIFT[i];
+                return wheel[i][(int) (ticks & (wheel[i].length - 1))];
+            }
+        }
+        return wheel[last][0];
+    }
+}
@@ -0,0 +1,131 @@
+package javafx_demo.utils.cache;
+
+import java.util.List;
+
+/**
+ * W-TinyLFU eviction order. New entries land in a small LRU window (1% of the capacity); entries
+ * pushed out of the window become candidates at the back of the probation segment of the main
+ * region. When the cache is over its bounds, the candidate is compared with the least recently
+ * used probation entry by {@link FrequencySketch} frequency and the less frequent one is evicted.
+ * A hit on a probation entry promotes it to the protected segment (80% of the main region),
+ * whose overflow is demoted back to probation.
+ * <p>
+ * A scan of one-off keys therefore only churns the window and the tail of probation, while the
+ * frequently used entries stay protected.
+ */
+final class TinyLfuOrder<K, V> implements EvictionOrder<K, V> {
+    static final byte WINDOW = 1;
+    static final byte PROBATION = 2;
+    static final byte PROTECTED = 3;
+
+    private final AccessOrderDeque<K, V> window = new AccessOrderDeque<>();
+    private final AccessOrderDeque<K, V> probation = new AccessOrderDeque<>();
+    private final AccessOrderDeque<K, V> protectedSegment = new AccessOrderDeque<>();
+    private final FrequencySketch sketch;
+    private final int maxWindow;
+    private final int maxProtected;
+
+    TinyLfuOrder(int capacity) {
+        this.sketch = new FrequencySketch(capacity);
+        this.maxWindow = Math.max(1, capacity / 100);
+        this.maxProtected = (int) ((capacity - maxWindow) * 0.8);
+    }
+
+    @Override
+    public boolean contains(CacheEntry<K, V> e) {
+        return e.region != 0;
+    }
+
+    @Override
+    public void add(CacheEntry<K, V> e) {
+        sketch.increment(e.key);
+        e.region = WINDOW;
+        window.addLast(e);
+        while (window.size() > maxWindow) {
+            CacheEntry<K, V> candidate = window.pollFirst();
+            candidate.region = PROBATION;
+            probation.addLast(candidate);
+        }
+    }
+
+    @Override
+    public void onAccess(CacheEntry<K, V> e) {
+        sketch.increment(e.key);
+        switch (e.region) {
+            case WINDOW -> window.moveToBack(e);
+            case PROTECTED -> protectedSegment.moveToBack(e);
+            case PROBATION -> {
+                probation.remove(e);
+                e.region = PROTECTED;
+                protectedSegment.addLast(e);
+                while (protectedSegment.size() > maxProtected) {
+                    CacheEntry<K, V> demoted = protectedSegment.pollFirst();
+                    demoted.region = PROBATION;
+                    probation.addLast(demoted);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    @Override
+    public void remove(CacheEntry<K, V> e) {
+        switch (e.region) {
+            case WINDOW -> window.remove(e);
+            case PROBATION -> probation.remove(e);
+            case PROTECTED -> protectedSegment.remove(e);
+            default -> {
+                return;
+            }
+        }
+        e.region = 0;
+    }
+
+    @Override
+    public int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    @Override
+    public CacheEntry<K, V> victim() {
+        CacheEntry<K, V> victim = probation.peekFirst();
+        if (victim == null) {
+            // everything is in the window or protected, e.g. a tiny capacity
+            victim = protectedSegment.peekFirst();
+            return victim != null ? victim : window.peekFirst();
+        }
+        CacheEntry<K, V> candidate = probation.peekLast();
+        if (candidate == victim) {
+            return victim;
+        }
+        // ties go to the incumbent, so a key has to be seen more often to get in
+        return sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+    }
+
+    private List<AccessOrderDeque<K, V>> segments() {
+        return List.of(window, probation, protectedSegment);
+    }
+
+    @Override
+    public CacheEntry<K, V> eldest() {
+        CacheEntry<K, V> eldest = null;
+        for (AccessOrderDeque<K, V> segment : segments()) {
+            CacheEntry<K, V> first = segment.peekFirst();
+            if (first != null && (eldest == null || first.accessTime < eldest.accessTime)) {
+                eldest = first;
+            }
+        }
+        return eldest;
+    }
+
+    @Override
+    public void clear() {
+        for (AccessOrderDeque<K, V> segment : segments()) {
+            for (CacheEntry<K, V> e = segment.peekFirst(); e != null; e = e.next) {
+                e.region = 0;
+            }
+            segment.clear();
+        }
+    }
+}
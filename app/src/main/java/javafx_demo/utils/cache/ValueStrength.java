@@ -0,0 +1,10 @@
+package javafx_demo.utils.cache;
+
+/**
+ * How a cache holds its values.
+ */
+enum ValueStrength {
+    STRONG,
+    SOFT,
+    WEAK
+}
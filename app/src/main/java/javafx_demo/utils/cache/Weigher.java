@@ -0,0 +1,14 @@
+package javafx_demo.utils.cache;
+
+/**
+ * Computes how much of a cache's budget an entry uses, e.g. the byte size of a decoded image.
+ * Evaluated once when the entry is written.
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+    int weigh(K key, V value);
+
+    static <K, V> Weigher<K, V> singleton() {
+        return (key, value) -> 1;
+    }
+}
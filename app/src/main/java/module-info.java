@@ -4,6 +4,9 @@ module javafx_demo {
     requires javafx.fxml;
     requires java.sql;
     requires java.net.http;
+    // ImageIO: 上传前压缩截图
+    requires java.desktop;
+    requires java.management;
     requires com.fasterxml.jackson.databind;
 
     // JavaFX 的 FXML 通过反射访问 controller，所以需要 opens
@@ -0,0 +1,140 @@
+package javafx_demo.controller;
+
+import javafx_demo.service.HttpService;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 预先上传：重新选图和关闭对话框取消旧上传，旧上传迟到的回调不再改动界面
+ */
+class SpeculativeUploadTest {
+
+    private final File first = new File("first.png");
+    private final File second = new File("second.png");
+
+    /** 每次上传一个由测试控制完成的 future，并记下进度回调 */
+    private final List<File> uploaded = new ArrayList<>();
+    private final List<CompletableFuture<String>> uploads = new ArrayList<>();
+    private final List<HttpService.ProgressListener> listeners = new ArrayList<>();
+    private final List<String> statuses = new ArrayList<>();
+
+    // UI 线程用直接执行代替，回调顺序即调用顺序
+    private final SpeculativeUpload upload = new SpeculativeUpload((file, progress) -> {
+        uploaded.add(file);
+        listeners.add(progress);
+        CompletableFuture<String> future = new CompletableFuture<>();
+        uploads.add(future);
+        return future;
+    }, Runnable::run, statuses::add);
+
+    private String lastStatus() {
+        return statuses.get(statuses.size() - 1);
+    }
+
+    @Test
+    void uploadStartsOnPickAndFileIdWaitsForIt() throws Exception {
+        upload.start(first);
+        assertEquals(List.of(first), uploaded);
+        assertEquals("上传中...", lastStatus());
+
+        listeners.get(0).onProgress(50, 200);
+        assertEquals("上传中 25%", lastStatus());
+        CompletableFuture<String> id = upload.fileId("none");
+        assertFalse(id.isDone());
+
+        uploads.get(0).complete("file-1");
+        assertEquals("file-1", id.get(1, TimeUnit.SECONDS));
+        assertEquals("截图已上传", lastStatus());
+        assertEquals(1, uploaded.size());
+    }
+
+    @Test
+    void noFilePickedGivesTheDefault() throws Exception {
+        assertFalse(upload.hasFile());
+        assertNull(upload.fileId(null).get());
+        assertEquals("", upload.fileId("").get());
+        assertTrue(uploaded.isEmpty());
+    }
+
+    @Test
+    void pickingAnotherFileCancelsTheFirstUpload() throws Exception {
+        upload.start(first);
+        HttpService.ProgressListener stale = listeners.get(0);
+        upload.start(second);
+
+        assertTrue(uploads.get(0).isCancelled());
+        assertSame(second, upload.file());
+        // 旧上传迟到的进度和结果都被忽略
+        int shown = statuses.size();
+        stale.onProgress(100, 100);
+        assertEquals(shown, statuses.size());
+
+        listeners.get(1).onProgress(1, 4);
+        assertEquals("上传中 25%", lastStatus());
+        uploads.get(1).complete("file-2");
+        assertEquals("file-2", upload.fileId(null).get(1, TimeUnit.SECONDS));
+        assertEquals("截图已上传", lastStatus());
+    }
+
+    @Test
+    void closingTheDialogCancelsAndHidesProgress() {
+        upload.start(first);
+        HttpService.ProgressListener stale = listeners.get(0);
+        upload.cancel();
+
+        assertTrue(uploads.get(0).isCancelled());
+        assertNull(lastStatus());
+        stale.onProgress(10, 100);
+        assertNull(lastStatus());
+    }
+
+    @Test
+    void completedUploadIsNotCancelledOnClose() throws Exception {
+        upload.start(first);
+        uploads.get(0).complete("file-1");
+        upload.cancel();
+
+        assertEquals("file-1", uploads.get(0).get());
+        assertEquals("截图已上传", lastStatus());
+    }
+
+    @Test
+    void failedUploadIsRetriedOnSubmit() throws Exception {
+        upload.start(first);
+        uploads.get(0).completeExceptionally(new RuntimeException("network down"));
+        assertEquals("截图上传失败，提交时将重试", lastStatus());
+
+        CompletableFuture<String> id = upload.fileId(null);
+        assertEquals(List.of(first, first), uploaded);
+        uploads.get(1).complete("file-1");
+        assertEquals("file-1", id.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submitAfterCancelStartsAgainInsteadOfFailing() throws Exception {
+        upload.start(first);
+        upload.cancel();
+
+        CompletableFuture<String> id = upload.fileId(null);
+        assertEquals(2, uploaded.size());
+        uploads.get(1).complete("file-1");
+        assertEquals("file-1", id.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void callerSeesCancellationOfReplacedUpload() {
+        upload.start(first);
+        CompletableFuture<String> firstId = upload.fileId(null);
+        upload.start(second);
+
+        assertThrows(CancellationException.class, () -> firstId.get(1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,237 @@
+package javafx_demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import javafx_demo.utils.CryptoUtil;
+import javafx_demo.utils.SessionContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ApiService response caches against a {@link LocalHttpServer} standing in for /order/list and
+ * the order write endpoints. SSE events go straight to {@link ApiService#CACHE_INVALIDATOR}, and
+ * the request counts per list page and per order detail show exactly which keys were evicted.
+ */
+class ApiServiceCacheTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    /** the orders on each user's list page */
+    private static final Map<String, List<String>> ORDERS_BY_USER = Map.of("1", List.of("A", "B"), "2", List.of("C"));
+
+    private final SecretKey key = key();
+    private final OrderBackend backend = new OrderBackend();
+    private LocalHttpServer server;
+
+    private static SecretKey key() {
+        byte[] bytes = new byte[32];
+        new Random(8).nextBytes(bytes);
+        return new SecretKeySpec(bytes, "AES");
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        SessionContext.getInstance().setSessionId("test-session");
+        SessionContext.getInstance().setSharedKey(key);
+        server = new LocalHttpServer(backend::handle);
+        HttpService.setBaseUrl(server.baseUrl());
+        ApiService.clearResponseCache();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        ApiService.clearResponseCache();
+        server.close();
+        SessionContext.getInstance().clear();
+    }
+
+    @Test
+    void updateAndDeleteEvictOnlyTheOrderAndItsListPages() throws Exception {
+        for (String action : List.of("UPDATE", "DELETE")) {
+            ApiService.clearResponseCache();
+            backend.requests.clear();
+            warm();
+
+            ApiService.CACHE_INVALIDATOR.onEvent("ORDER", action, "A");
+            reread();
+
+            assertEquals(2, backend.count("list:1"), action + " reloads the page containing A");
+            assertEquals(1, backend.count("list:2"), action + " keeps the page without A");
+            assertEquals(1, backend.count("detail:A"), action + " reloads A");
+            assertEquals(0, backend.count("detail:B"));
+            assertEquals(0, backend.count("detail:C"));
+        }
+    }
+
+    @Test
+    void createEvictsListPagesOnly() throws Exception {
+        warm();
+
+        ApiService.CACHE_INVALIDATOR.onEvent("ORDER", "CREATE", "D");
+        reread();
+
+        assertEquals(2, backend.count("list:1"));
+        assertEquals(2, backend.count("list:2"));
+        assertEquals(0, backend.count("detail:A"));
+        assertEquals(0, backend.count("detail:B"));
+        assertEquals(0, backend.count("detail:C"));
+    }
+
+    @Test
+    void otherDomainsLeaveTheCachesAlone() throws Exception {
+        warm();
+
+        ApiService.CACHE_INVALIDATOR.onEvent("FINDING_REQUEST", "UPDATE", "A");
+        reread();
+
+        assertEquals(1, backend.count("list:1"));
+        assertEquals(1, backend.count("list:2"));
+        assertEquals(0, backend.count("detail:A"));
+    }
+
+    @Test
+    void acceptOrderEvictsTheOrderAndEveryListPage() throws Exception {
+        warm();
+
+        ApiService.acceptOrder(7, "C", null);
+        reread();
+
+        assertEquals(1, backend.count("/order/work"));
+        assertEquals(2, backend.count("list:1"), "the accepted order joins the user's own list");
+        assertEquals(2, backend.count("list:2"));
+        assertEquals(1, backend.count("detail:C"));
+        assertEquals(0, backend.count("detail:A"));
+        assertEquals(0, backend.count("detail:B"));
+    }
+
+    @Test
+    void closeOrderEvictsTheOrderAndItsListPages() throws Exception {
+        warm();
+
+        ApiService.closeOrder("C", "file-1");
+        reread();
+
+        assertEquals(1, backend.count("/order/close"));
+        assertEquals(1, backend.count("list:1"));
+        assertEquals(2, backend.count("list:2"));
+        assertEquals(1, backend.count("detail:C"));
+        assertEquals(0, backend.count("detail:A"));
+    }
+
+    @Test
+    void continueOrderEvictsTheOrderAndItsListPages() throws Exception {
+        warm();
+
+        ApiService.continueOrder("B", 10, 2, "HOUR", null);
+        reread();
+
+        assertEquals(1, backend.count("/order/continue"));
+        assertEquals(2, backend.count("list:1"));
+        assertEquals(1, backend.count("list:2"));
+        assertEquals(1, backend.count("detail:B"));
+        assertEquals(0, backend.count("detail:A"));
+    }
+
+    @Test
+    void listReloadsWhenAnOrderChangesWhileItIsInFlight() throws Exception {
+        backend.blockFirstList = new CountDownLatch(1);
+        CompletableFuture<ApiService.PageResult> page = ApiService.queryOrdersAsync(1, false, 0, 10);
+        assertTrue(backend.listEntered.await(10, TimeUnit.SECONDS));
+
+        // the page is not indexed yet, so only ORDER_GENERATION can tell it is stale
+        ApiService.CACHE_INVALIDATOR.onEvent("ORDER", "UPDATE", "B");
+        backend.blockFirstList.countDown();
+
+        ApiService.PageResult result = page.get(10, TimeUnit.SECONDS);
+        assertEquals(2, backend.count("list:1"), "the stale response is fetched again");
+        assertEquals(2, version(result.content.get(1)), "the caller gets the second response");
+
+        assertSame(result, ApiService.queryOrders(1, false, 0, 10), "the fresh page is cached");
+        assertEquals(2, backend.count("list:1"));
+    }
+
+    /** Loads both list pages, which also fills the detail cache for A, B and C. */
+    private void warm() throws Exception {
+        ApiService.queryOrders(1, false, 0, 10);
+        ApiService.queryOrders(2, false, 0, 10);
+        assertEquals(1, backend.count("list:1"));
+        assertEquals(1, backend.count("list:2"));
+    }
+
+    /** Details first: a reloaded list page would refill the detail cache before they are read. */
+    private void reread() throws Exception {
+        for (String orderId : List.of("A", "B", "C")) {
+            assertEquals(orderId, ApiService.getOrderDetail(orderId).get("orderId"));
+        }
+        ApiService.queryOrders(1, false, 0, 10);
+        ApiService.queryOrders(2, false, 0, 10);
+    }
+
+    private static int version(Map<String, Object> order) {
+        return ((Number) order.get("version")).intValue();
+    }
+
+    /** Decrypts each request, counts it by list page, order detail or path, and encrypts the reply. */
+    private class OrderBackend {
+        final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+        final CountDownLatch listEntered = new CountDownLatch(1);
+        volatile CountDownLatch blockFirstList;
+
+        int count(String request) {
+            AtomicInteger n = requests.get(request);
+            return n == null ? 0 : n.get();
+        }
+
+        LocalHttpServer.Response handle(LocalHttpServer.Request request) throws Exception {
+            JsonNode body = MAPPER.readTree(CryptoUtil.decrypt(key, new String(request.body(), StandardCharsets.UTF_8)));
+            if (!request.path().equals("/order/list")) {
+                requests.computeIfAbsent(request.path(), k -> new AtomicInteger()).incrementAndGet();
+                return reply("{\"success\":true}");
+            }
+            JsonNode filters = body.path("filters");
+            if (filters.has("orderId")) {
+                String orderId = filters.path("orderId").asText();
+                int n = requests.computeIfAbsent("detail:" + orderId, k -> new AtomicInteger()).incrementAndGet();
+                return reply(page(List.of(orderId), n));
+            }
+            String userId = filters.path("userId").asText();
+            int n = requests.computeIfAbsent("list:" + userId, k -> new AtomicInteger()).incrementAndGet();
+            CountDownLatch block = blockFirstList;
+            if (n == 1 && block != null) {
+                listEntered.countDown();
+                block.await(10, TimeUnit.SECONDS);
+            }
+            return reply(page(ORDERS_BY_USER.get(userId), n));
+        }
+
+        private String page(List<String> orderIds, int version) {
+            StringBuilder content = new StringBuilder();
+            for (String orderId : orderIds) {
+                if (!content.isEmpty()) {
+                    content.append(',');
+                }
+                content.append("{\"orderId\":\"").append(orderId).append("\",\"version\":").append(version).append('}');
+            }
+            return "{\"success\":true,\"data\":{\"content\":[" + content + "],\"totalElements\":" + orderIds.size()
+                    + ",\"totalPages\":1,\"number\":0,\"size\":10}}";
+        }
+
+        private LocalHttpServer.Response reply(String json) throws Exception {
+            return LocalHttpServer.Response.ok(CryptoUtil.encrypt(key, json));
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package javafx_demo.service;
+
+import javafx_demo.utils.CryptoUtil;
+import javafx_demo.utils.FutureUtil;
+import javafx_demo.utils.SessionContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The async request pipeline end to end against a {@link LocalHttpServer} that speaks the
+ * encrypted protocol: sign, {@code HttpService.sendAsync}, decrypt and parse, with the 556 key
+ * expiry retry, cancellation through {@link FutureUtil#propagateCancel} and
+ * {@link FutureUtil#composeCancellable}, and failures surfacing unwrapped from the sync wrappers.
+ */
+class AsyncPipelineTest {
+
+    @TempDir
+    Path dir;
+
+    private final CryptoBackend backend = new CryptoBackend();
+    private LocalHttpServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        SessionContext.getInstance().setSessionId("session-0");
+        SessionContext.getInstance().setSharedKey(backend.key);
+        server = new LocalHttpServer(backend::handle);
+        HttpService.setBaseUrl(server.baseUrl());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        backend.release.countDown();
+        server.close();
+        SessionContext.getInstance().clearAll();
+    }
+
+    @Test
+    void retriesOnceAfterKeyExpired() throws Exception {
+        backend.expiredReplies.set(1);
+
+        assertEquals("jwt-token", ApiService.login("pal", "secret"));
+
+        assertEquals(2, backend.requests.get(), "the request is sent again with the new key");
+        assertEquals(1, backend.handshakes.get());
+        assertEquals("session-1", SessionContext.getInstance().getSessionId());
+    }
+
+    @Test
+    void retriesOnlyOnce() {
+        backend.expiredReplies.set(Integer.MAX_VALUE);
+
+        assertThrows(RuntimeException.class, () -> ApiService.login("pal", "secret"));
+
+        assertEquals(2, backend.requests.get());
+    }
+
+    @Test
+    void cancellingTheResultAbortsTheInFlightRequest() throws Exception {
+        backend.block = true;
+        CompletableFuture<Void> call = ApiService.changeStatusAsync(1, "ACTIVE");
+        assertTrue(backend.entered.await(10, TimeUnit.SECONDS));
+
+        // propagateCancel reaches sendAsync, which cancels the HTTP exchange and closes its connection
+        assertTrue(call.cancel(true));
+        backend.release.countDown();
+
+        awaitClosedConnections(1);
+        assertThrows(CancellationException.class, call::get);
+    }
+
+    @Test
+    void cancellingAnUploadAbortsTheComposedStage() throws Exception {
+        File file = Files.writeString(dir.resolve("notes.txt"), "not an image").toFile();
+        backend.block = true;
+        CompletableFuture<String> upload = ApiService.uploadImageAsync(file);
+        assertTrue(backend.entered.await(10, TimeUnit.SECONDS));
+
+        // composeCancellable has moved past the compression stage and cancels the upload itself
+        assertTrue(upload.cancel(true));
+        backend.release.countDown();
+
+        awaitClosedConnections(1);
+        assertEquals("/oss/upload", backend.lastPath);
+    }
+
+    @Test
+    void composeCancellableSkipsTheNextStageWhenCancelledEarly() {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        AtomicBoolean nextRan = new AtomicBoolean();
+        CompletableFuture<String> composed = FutureUtil.composeCancellable(first, value -> {
+            nextRan.set(true);
+            return CompletableFuture.completedFuture(value);
+        });
+
+        composed.cancel(true);
+
+        assertTrue(first.isCancelled());
+        assertFalse(nextRan.get());
+    }
+
+    @Test
+    void composeCancellableCancelsTheRunningSecondStage() {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+        CompletableFuture<String> composed = FutureUtil.composeCancellable(first, value -> second);
+        first.complete("done");
+
+        composed.cancel(true);
+
+        assertTrue(second.isCancelled());
+    }
+
+    @Test
+    void decryptFailureSurfacesUnwrapped() {
+        backend.status = 500;
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> ApiService.changeStatus(1, "ACTIVE"));
+
+        // not a CompletionException around it, so callers can show the message as is
+        assertEquals(RuntimeException.class, e.getClass());
+        assertTrue(e.getMessage().startsWith("请求失败: HTTP 500"), e.getMessage());
+    }
+
+    @Test
+    void parseFailureSurfacesUnwrapped() {
+        backend.loginData = null;
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> ApiService.login("pal", "wrong"));
+
+        assertEquals(RuntimeException.class, e.getClass());
+        assertEquals("登录失败", e.getMessage());
+    }
+
+    private void awaitClosedConnections(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (server.closedConnections() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, server.closedConnections(), "the client closed the cancelled exchange");
+    }
+
+    /**
+     * Answers the ECDH handshake with a fresh key pair and session id, decrypts requests with the
+     * current shared key and encrypts replies with it. The first {@code expiredReplies} requests
+     * get the 556 key expired code instead of an answer.
+     */
+    private static class CryptoBackend {
+        volatile SecretKey key = key();
+        final AtomicInteger expiredReplies = new AtomicInteger();
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicInteger handshakes = new AtomicInteger();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile boolean block;
+        volatile int status = 200;
+        volatile String loginData = "\"jwt-token\"";
+        volatile String lastPath;
+
+        private static SecretKey key() {
+            byte[] bytes = new byte[32];
+            new Random(9).nextBytes(bytes);
+            return new SecretKeySpec(bytes, "AES");
+        }
+
+        LocalHttpServer.Response handle(LocalHttpServer.Request request) throws Exception {
+            if (request.path().equals("/crypto/handshake")) {
+                KeyPair kp = CryptoUtil.generateKeyPair();
+                key = CryptoUtil.deriveSharedSecret(kp.getPrivate(),
+                        CryptoUtil.decodePublicKey(request.header("X-Client-Key")));
+                int n = handshakes.incrementAndGet();
+                return new LocalHttpServer.Response(200, Map.of(
+                        "X-Server-Key", CryptoUtil.encodePublicKey(kp.getPublic()),
+                        "X-Session-Id", "session-" + n), "{}");
+            }
+            requests.incrementAndGet();
+            lastPath = request.path();
+            if (block) {
+                entered.countDown();
+                release.await(10, TimeUnit.SECONDS);
+            }
+            if (status != 200) {
+                return new LocalHttpServer.Response(status, "{\"success\":false}");
+            }
+            if (request.path().equals("/oss/upload")) {
+                return LocalHttpServer.Response.ok("{\"success\":true,\"data\":{\"id\":\"file-1\"}}");
+            }
+            // a request sealed with a key the server no longer has fails to decrypt here
+            CryptoUtil.decrypt(key, new String(request.body(), StandardCharsets.UTF_8));
+            if (expiredReplies.getAndDecrement() > 0) {
+                return reply("{\"code\":556}");
+            }
+            if (request.path().equals("/user/pal/login")) {
+                return reply(loginData != null ? "{\"success\":true,\"data\":" + loginData + "}" : "{\"success\":false}");
+            }
+            return reply("{\"success\":true}");
+        }
+
+        private LocalHttpServer.Response reply(String json) throws Exception {
+            return LocalHttpServer.Response.ok(CryptoUtil.encrypt(key, json));
+        }
+    }
+}
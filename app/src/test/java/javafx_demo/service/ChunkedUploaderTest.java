@@ -0,0 +1,203 @@
+package javafx_demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import javafx_demo.utils.CryptoUtil;
+import javafx_demo.utils.SessionContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Chunked uploads against a {@link LocalHttpServer} standing in for the /oss/chunk endpoints,
+ * with errors and dropped connections injected per chunk.
+ */
+class ChunkedUploaderTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int CHUNK = 64 * 1024;
+    private static final int PARALLELISM = 3;
+
+    private final SecretKey key = new SecretKeySpec(new Random(5).ints(32).collect(
+            ByteArrayOutputStream::new, ByteArrayOutputStream::write, (a, b) -> {}).toByteArray(), "AES");
+    private final ChunkBackend backend = new ChunkBackend();
+    private LocalHttpServer server;
+    private HttpTransport transport;
+    private File file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        SessionContext.getInstance().setSessionId("test-session");
+        SessionContext.getInstance().setSharedKey(key);
+        server = new LocalHttpServer(backend::handle);
+        transport = HttpTransport.newBuilder().version(HttpClient.Version.HTTP_1_1).executor("virtual", 1).build();
+
+        byte[] data = new byte[10 * CHUNK + 1234];
+        new Random(3).nextBytes(data);
+        file = Files.createTempFile("screenshot", ".png").toFile();
+        Files.write(file.toPath(), data);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        transport.close();
+        server.close();
+        Files.deleteIfExists(file.toPath());
+        SessionContext.getInstance().clear();
+    }
+
+    @Test
+    void uploadsThroughInjectedFaults() throws Exception {
+        // every third chunk fails once with HTTP 500, every fourth loses its connection once
+        backend.fault = (index, attempt) -> attempt == 1 && index % 3 == 0 ? Fault.ERROR
+                : attempt == 1 && index % 4 == 1 ? Fault.DROP : Fault.NONE;
+        List<Long> progress = new ArrayList<>();
+
+        String resp = uploader(5).upload(file, (sent, total) -> {
+            synchronized (progress) {
+                progress.add(sent);
+            }
+        }).get(30, TimeUnit.SECONDS);
+
+        assertEquals("file-1", MAPPER.readTree(resp).path("data").path("id").asText());
+        assertArrayEquals(Files.readAllBytes(file.toPath()), backend.assembled);
+        assertTrue(backend.maxInFlight.get() > 1, "chunks were not sent in parallel");
+        assertTrue(backend.maxInFlight.get() <= PARALLELISM, "in flight: " + backend.maxInFlight.get());
+        assertEquals(file.length(), progress.get(progress.size() - 1).longValue());
+        assertTrue(backend.attempts.get(0).get() >= 2 && backend.attempts.get(1).get() >= 2);
+    }
+
+    @Test
+    void resumesFromAcknowledgedChunks() throws Exception {
+        // the link dies for good from chunk 6 on
+        backend.fault = (index, attempt) -> index >= 6 ? Fault.DROP : Fault.NONE;
+        ChunkedUploader uploader = uploader(1);
+        assertThrows(ExecutionException.class,
+                () -> uploader.upload(file, null).get(30, TimeUnit.SECONDS));
+        assertTrue(uploader.hasPartial(file));
+        // chunks already on the wire when the upload gave up still land on the server
+        for (int i = 0; i < 100 && backend.inFlight.get() > 0; i++) {
+            Thread.sleep(10);
+        }
+        int acknowledged = backend.received().size();
+        assertTrue(acknowledged >= 6, "acknowledged " + acknowledged);
+
+        backend.fault = (index, attempt) -> Fault.NONE;
+        List<Long> progress = new ArrayList<>();
+        uploader.upload(file, (sent, total) -> {
+            synchronized (progress) {
+                progress.add(sent);
+            }
+        }).get(30, TimeUnit.SECONDS);
+
+        assertArrayEquals(Files.readAllBytes(file.toPath()), backend.assembled);
+        assertFalse(uploader.hasPartial(file));
+        // progress starts from what the server already had, and those chunks were not resent
+        assertEquals((long) acknowledged * CHUNK, progress.get(0).longValue());
+        for (int index = 0; index < 6; index++) {
+            assertEquals(1, backend.attempts.get(index).get(), "chunk " + index);
+        }
+    }
+
+    private ChunkedUploader uploader(int retries) {
+        return ChunkedUploader.newBuilder(transport, server.baseUrl())
+                .chunkSize(CHUNK)
+                .parallelism(PARALLELISM)
+                .retries(retries, 10)
+                .build();
+    }
+
+    private enum Fault { NONE, ERROR, DROP }
+
+    @FunctionalInterface
+    private interface FaultPlan {
+        Fault of(int index, int attempt);
+    }
+
+    /** The server side of the protocol, verifying signatures and digests like the backend would. */
+    private class ChunkBackend {
+        volatile FaultPlan fault = (index, attempt) -> Fault.NONE;
+        final Map<Integer, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        private final Map<Integer, byte[]> chunks = new ConcurrentHashMap<>();
+        private volatile String uploadId;
+        volatile byte[] assembled;
+
+        Map<Integer, byte[]> received() {
+            return new TreeMap<>(chunks);
+        }
+
+        LocalHttpServer.Response handle(LocalHttpServer.Request request) throws Exception {
+            String path = request.path();
+            boolean isChunk = path.matches("/oss/chunk/[^/]+/\\d+");
+            String signedBody = isChunk ? request.header("X-Content-SHA256")
+                    : new String(request.body(), StandardCharsets.UTF_8);
+            String message = "POST\n" + path + "\n" + request.header("X-Timestamp") + "\n" + signedBody;
+            if (!CryptoUtil.hmacSign(key, message).equals(request.header("X-Signature"))) {
+                return new LocalHttpServer.Response(401, "{\"success\":false}");
+            }
+
+            if (path.equals("/oss/chunk/init")) {
+                JsonNode body = MAPPER.readTree(request.body());
+                if (uploadId == null || !uploadId.equals(body.path("uploadId").asText())) {
+                    uploadId = "u" + System.nanoTime();
+                    chunks.clear();
+                }
+                return LocalHttpServer.Response.ok("{\"success\":true,\"data\":{\"uploadId\":\"" + uploadId
+                        + "\",\"received\":" + MAPPER.writeValueAsString(received().keySet()) + "}}");
+            }
+            if (path.endsWith("/complete")) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                for (byte[] chunk : received().values()) {
+                    out.write(chunk);
+                }
+                assembled = out.toByteArray();
+                return LocalHttpServer.Response.ok("{\"success\":true,\"data\":{\"id\":\"file-1\"}}");
+            }
+
+            int index = Integer.parseInt(path.substring(path.lastIndexOf('/') + 1));
+            int attempt = attempts.computeIfAbsent(index, i -> new AtomicInteger()).incrementAndGet();
+            int now = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(20);
+                switch (fault.of(index, attempt)) {
+                    case ERROR:
+                        return new LocalHttpServer.Response(500, "{\"success\":false}");
+                    case DROP:
+                        return null;
+                    default:
+                        break;
+                }
+                byte[] body = request.body();
+                if (!CryptoUtil.sha256Hex(body, 0, body.length).equals(request.header("X-Content-SHA256"))) {
+                    return new LocalHttpServer.Response(400, "{\"success\":false}");
+                }
+                chunks.put(index, body);
+                return LocalHttpServer.Response.ok("{\"success\":true}");
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package javafx_demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Connection setups against a {@link LocalHttpServer}, which counts accepted sockets.
+ */
+class HttpTransportTest {
+
+    private static final int REQUESTS = 20;
+
+    private LocalHttpServer server;
+    private HttpTransport transport;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new LocalHttpServer(request -> LocalHttpServer.Response.ok("ok"));
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        if (transport != null) {
+            transport.close();
+        }
+        server.close();
+    }
+
+    @Test
+    void sharedClientReusesConnection() throws Exception {
+        transport = HttpTransport.newBuilder().version(HttpClient.Version.HTTP_1_1).executor("virtual", 1).build();
+        for (int i = 0; i < REQUESTS; i++) {
+            assertEquals("ok", send(transport.client()));
+        }
+        int shared = server.connections();
+        server.resetConnections();
+
+        for (int i = 0; i < REQUESTS; i++) {
+            // what SseClient did on every reconnect
+            try (HttpClient fresh = HttpClient.newBuilder().build()) {
+                assertEquals("ok", send(fresh));
+            }
+        }
+        int perRequest = server.connections();
+
+        assertEquals(1, shared);
+        assertEquals(REQUESTS, perRequest);
+    }
+
+    @Test
+    void http2FallsBackAndStillReuses() throws Exception {
+        // the server only speaks HTTP/1.1, so the h2c Upgrade is declined
+        transport = HttpTransport.newBuilder().version(HttpClient.Version.HTTP_2).build();
+        for (int i = 0; i < REQUESTS; i++) {
+            HttpResponse<String> resp = transport.client().send(request(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(HttpClient.Version.HTTP_1_1, resp.version());
+        }
+        assertEquals(1, server.connections());
+    }
+
+    @Test
+    void asyncRequestsRunOnBoundedExecutor() throws Exception {
+        transport = HttpTransport.newBuilder().version(HttpClient.Version.HTTP_1_1).executor("fixed", 2).build();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            results.add(transport.client().sendAsync(request(), HttpResponse.BodyHandlers.ofString())
+                    .thenApplyAsync(resp -> {
+                        peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        try {
+                            // long enough for the stages to pile up behind the two threads
+                            Thread.sleep(20);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            running.decrementAndGet();
+                        }
+                        return Thread.currentThread().getName();
+                    }, transport.executor()));
+        }
+        Set<String> threads = new HashSet<>();
+        for (CompletableFuture<String> result : results) {
+            String thread = result.get();
+            assertTrue(thread.startsWith("http-"), thread);
+            threads.add(thread);
+        }
+        // 20 sleeping stages, yet never more than the two pool threads at once
+        assertTrue(threads.size() <= 2, "threads " + threads);
+        assertTrue(peak.get() <= 2, "peak " + peak.get());
+    }
+
+    private String send(HttpClient client) throws Exception {
+        return client.send(request(), HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private HttpRequest request() {
+        return HttpRequest.newBuilder(URI.create(server.baseUrl() + "/ping")).GET().build();
+    }
+}
@@ -0,0 +1,138 @@
+package javafx_demo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal HTTP/1.1 keep-alive server on a loopback {@link ServerSocket}, standing in for the
+ * backend. It counts accepted and closed connections, and a handler returning {@code null} drops
+ * the connection without answering, to simulate a network failure.
+ */
+final class LocalHttpServer implements AutoCloseable {
+
+    record Request(String method, String path, Map<String, String> headers, byte[] body) {
+        String header(String name) {
+            return headers.get(name.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    record Response(int status, Map<String, String> headers, String body) {
+        Response(int status, String body) {
+            this(status, Map.of(), body);
+        }
+
+        static Response ok(String body) {
+            return new Response(200, body);
+        }
+    }
+
+    @FunctionalInterface
+    interface Handler {
+        Response handle(Request request) throws Exception;
+    }
+
+    private final ServerSocket server;
+    private final Handler handler;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+
+    LocalHttpServer(Handler handler) throws IOException {
+        this.handler = handler;
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread.ofVirtual().start(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    connections.incrementAndGet();
+                    Thread.ofVirtual().start(() -> serve(socket));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getLocalPort();
+    }
+
+    int connections() {
+        return connections.get();
+    }
+
+    /** connections that ended, because the client closed them or the handler dropped them */
+    int closedConnections() {
+        return closed.get();
+    }
+
+    void resetConnections() {
+        connections.set(0);
+        closed.set(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private void serve(Socket socket) {
+        try (socket; InputStream in = socket.getInputStream(); OutputStream out = socket.getOutputStream()) {
+            String requestLine;
+            while ((requestLine = readLine(in)) != null) {
+                Map<String, String> headers = new LinkedHashMap<>();
+                String line;
+                while ((line = readLine(in)) != null && !line.isEmpty()) {
+                    int colon = line.indexOf(':');
+                    headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+                }
+                int length = Integer.parseInt(headers.getOrDefault("content-length", "0"));
+                byte[] body = in.readNBytes(length);
+                String[] parts = requestLine.split(" ");
+
+                Response response;
+                try {
+                    response = handler.handle(new Request(parts[0], parts[1], headers, body));
+                } catch (Exception e) {
+                    response = new Response(500, String.valueOf(e.getMessage()));
+                }
+                if (response == null) {
+                    return;
+                }
+                byte[] bytes = response.body().getBytes(StandardCharsets.UTF_8);
+                StringBuilder head = new StringBuilder("HTTP/1.1 " + response.status() + " X\r\n");
+                response.headers().forEach((name, value) -> head.append(name).append(": ").append(value).append("\r\n"));
+                head.append("Content-Length: ").append(bytes.length).append("\r\n\r\n");
+                out.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+                out.write(bytes);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // client went away
+        } finally {
+            closed.incrementAndGet();
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                return sb.toString();
+            }
+            if (c != '\r') {
+                sb.append((char) c);
+            }
+        }
+        return sb.isEmpty() ? null : sb.toString();
+    }
+}
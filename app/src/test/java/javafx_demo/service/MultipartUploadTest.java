@@ -0,0 +1,208 @@
+package javafx_demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The multipart upload body streamed from header, file and footer publishers, and the
+ * progress {@link CountingBodyPublisher} reports while it is sent.
+ */
+class MultipartUploadTest {
+
+    private static final String BOUNDARY = "----FuturePalTest";
+    // several of the 16 KB reads ofFile makes, and not a multiple of them
+    private static final int FILE_SIZE = 200_000 + 123;
+
+    @TempDir
+    Path dir;
+
+    private LocalHttpServer server;
+
+    @AfterEach
+    void stopServer() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private record Progress(long sent, long total) {}
+
+    private File file(String name) throws IOException {
+        byte[] content = new byte[FILE_SIZE];
+        new Random(3).nextBytes(content);
+        return Files.write(dir.resolve(name), content).toFile();
+    }
+
+    private static byte[] expectedBody(File file, String mimeType) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + file.getName() + "\"\r\n"
+                + "Content-Type: " + mimeType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(Files.readAllBytes(file.toPath()));
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    /** Subscribes the way HttpClient does, asking for everything, and collects the bytes. */
+    private static byte[] drain(HttpRequest.BodyPublisher publisher) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CompletableFuture<byte[]> done = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                byte[] chunk = new byte[item.remaining()];
+                item.get(chunk);
+                bytes.writeBytes(chunk);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(bytes.toByteArray());
+            }
+        });
+        return done.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void bodyIsHeaderFileAndFooterWithExactLength() throws Exception {
+        File file = file("photo.jpg");
+        HttpRequest.BodyPublisher body = HttpService.multipartBody(file, BOUNDARY);
+        byte[] expected = expectedBody(file, "image/jpeg");
+
+        assertEquals(expected.length, body.contentLength());
+        assertArrayEquals(expected, drain(body));
+    }
+
+    @Test
+    void unknownExtensionIsSentAsOctetStream() throws Exception {
+        File file = file("notes.bin");
+        assertArrayEquals(expectedBody(file, "application/octet-stream"),
+                drain(HttpService.multipartBody(file, BOUNDARY)));
+    }
+
+    @Test
+    void resubscribingSendsTheSameBytesAgain() throws Exception {
+        // HttpClient subscribes again when it retries the request
+        File file = file("photo.png");
+        HttpRequest.BodyPublisher body = HttpService.multipartBody(file, BOUNDARY);
+        assertArrayEquals(drain(body), drain(body));
+    }
+
+    @Test
+    void missingFileFailsBeforeSending() {
+        assertThrows(IOException.class, () -> HttpService.multipartBody(dir.resolve("gone.jpg").toFile(), BOUNDARY));
+    }
+
+    @Test
+    void progressRisesToTotalAtMostOncePerPercent() throws Exception {
+        File file = file("photo.jpg");
+        List<Progress> reports = new CopyOnWriteArrayList<>();
+        HttpRequest.BodyPublisher body = new CountingBodyPublisher(HttpService.multipartBody(file, BOUNDARY),
+                (sent, total) -> reports.add(new Progress(sent, total)));
+        long total = body.contentLength();
+
+        assertEquals(total, drain(body).length);
+        assertFalse(reports.isEmpty());
+        assertTrue(reports.size() <= 101, reports.size() + " reports");
+        long previous = 0;
+        for (Progress report : reports) {
+            assertEquals(total, report.total());
+            assertTrue(report.sent() > previous, "sent went from " + previous + " to " + report.sent());
+            previous = report.sent();
+        }
+        assertEquals(total, reports.get(reports.size() - 1).sent());
+    }
+
+    @Test
+    void progressRestartsWithEachSubscription() throws Exception {
+        File file = file("photo.jpg");
+        List<Progress> reports = new CopyOnWriteArrayList<>();
+        HttpRequest.BodyPublisher body = new CountingBodyPublisher(HttpService.multipartBody(file, BOUNDARY),
+                (sent, total) -> reports.add(new Progress(sent, total)));
+        drain(body);
+        int firstRun = reports.size();
+        drain(body);
+
+        assertTrue(reports.get(firstRun).sent() < body.contentLength());
+        assertEquals(body.contentLength(), reports.get(reports.size() - 1).sent());
+    }
+
+    @Test
+    void unknownLengthReportsOnceAtCompletion() throws Exception {
+        byte[] content = new byte[FILE_SIZE];
+        List<Progress> reports = new CopyOnWriteArrayList<>();
+        HttpRequest.BodyPublisher body = new CountingBodyPublisher(
+                HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(content)),
+                (sent, total) -> reports.add(new Progress(sent, total)));
+
+        assertEquals(FILE_SIZE, drain(body).length);
+        assertEquals(List.of(new Progress(FILE_SIZE, -1)), reports);
+    }
+
+    @Test
+    void failingListenerDoesNotBreakTheBody() throws Exception {
+        File file = file("photo.jpg");
+        HttpRequest.BodyPublisher body = new CountingBodyPublisher(HttpService.multipartBody(file, BOUNDARY),
+                (sent, total) -> {
+                    throw new IllegalStateException("listener bug");
+                });
+        assertArrayEquals(expectedBody(file, "image/jpeg"), drain(body));
+    }
+
+    @Test
+    void serverReceivesTheMultipartBody() throws Exception {
+        AtomicReference<LocalHttpServer.Request> received = new AtomicReference<>();
+        server = new LocalHttpServer(request -> {
+            received.set(request);
+            return LocalHttpServer.Response.ok("{}");
+        });
+        File file = file("photo.jpg");
+        List<Progress> reports = new CopyOnWriteArrayList<>();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.baseUrl() + "/oss/upload"))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(new CountingBodyPublisher(HttpService.multipartBody(file, BOUNDARY),
+                        (sent, total) -> reports.add(new Progress(sent, total))))
+                .build();
+
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            assertEquals(200, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+        }
+        byte[] expected = expectedBody(file, "image/jpeg");
+        assertEquals(String.valueOf(expected.length), received.get().header("Content-Length"));
+        assertArrayEquals(expected, received.get().body());
+        assertEquals(new Progress(expected.length, expected.length), reports.get(reports.size() - 1));
+    }
+}
@@ -0,0 +1,112 @@
+package javafx_demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bursts of ORDER UPDATE events against a fetcher that records each batch it is asked for.
+ */
+class OrderUpdateBatcherTest {
+
+    private static final long WINDOW = 50;
+
+    private final List<List<String>> fetched = new CopyOnWriteArrayList<>();
+    private final LinkedBlockingQueue<Map<String, Map<String, Object>>> applied = new LinkedBlockingQueue<>();
+
+    @Test
+    void burstIsFetchedOnceAndAppliedTogether() throws Exception {
+        OrderUpdateBatcher batcher = new OrderUpdateBatcher(WINDOW, ids -> {
+            fetched.add(new ArrayList<>(ids));
+            return CompletableFuture.completedFuture(details(ids));
+        }, applied::add, Runnable::run);
+
+        for (String id : List.of("o1", "o2", "o1", "o3", "o2")) {
+            batcher.submit(id);
+        }
+        Map<String, Map<String, Object>> batch = applied.poll(2, TimeUnit.SECONDS);
+
+        assertEquals(List.of(List.of("o1", "o2", "o3")), fetched);
+        assertEquals(List.of("o1", "o2", "o3"), new ArrayList<>(batch.keySet()));
+        Thread.sleep(WINDOW * 2);
+        assertTrue(applied.isEmpty(), "applied more than once");
+    }
+
+    @Test
+    void batchesRunOneAfterAnother() throws Exception {
+        CompletableFuture<Map<String, Map<String, Object>>> slow = new CompletableFuture<>();
+        OrderUpdateBatcher batcher = new OrderUpdateBatcher(WINDOW, ids -> {
+            fetched.add(new ArrayList<>(ids));
+            return fetched.size() == 1 ? slow : CompletableFuture.completedFuture(details(ids));
+        }, applied::add, Runnable::run);
+
+        batcher.submit("o1");
+        waitFor(() -> fetched.size() == 1);
+        // arrives while the first request is still out: a batch of its own, sent only after the first is applied
+        batcher.submit("o1");
+        batcher.submit("o2");
+        Thread.sleep(WINDOW * 3);
+        assertEquals(1, fetched.size());
+
+        slow.complete(details(List.of("o1")));
+        assertEquals(List.of("o1"), new ArrayList<>(applied.poll(2, TimeUnit.SECONDS).keySet()));
+        assertEquals(List.of("o1", "o2"), new ArrayList<>(applied.poll(2, TimeUnit.SECONDS).keySet()));
+    }
+
+    @Test
+    void failedFetchDoesNotBlockLaterBatches() throws Exception {
+        OrderUpdateBatcher batcher = new OrderUpdateBatcher(WINDOW, ids -> {
+            fetched.add(new ArrayList<>(ids));
+            return fetched.size() == 1 ? CompletableFuture.failedFuture(new RuntimeException("查询失败"))
+                    : CompletableFuture.completedFuture(details(ids));
+        }, applied::add, Runnable::run);
+
+        batcher.submit("o1");
+        waitFor(() -> fetched.size() == 1);
+        batcher.submit("o2");
+
+        assertEquals(List.of("o2"), new ArrayList<>(applied.poll(2, TimeUnit.SECONDS).keySet()));
+        assertTrue(applied.isEmpty());
+    }
+
+    @Test
+    void clearDropsPendingUpdates() throws Exception {
+        OrderUpdateBatcher batcher = new OrderUpdateBatcher(WINDOW, ids -> {
+            fetched.add(new ArrayList<>(ids));
+            return CompletableFuture.completedFuture(details(ids));
+        }, applied::add, Runnable::run);
+
+        batcher.submit("o1");
+        batcher.clear();
+        Thread.sleep(WINDOW * 3);
+
+        assertTrue(fetched.isEmpty());
+        assertTrue(applied.isEmpty());
+    }
+
+    private static Map<String, Map<String, Object>> details(Collection<String> ids) {
+        Map<String, Map<String, Object>> details = new LinkedHashMap<>();
+        for (String id : ids) {
+            details.put(id, Map.of("orderId", id));
+        }
+        return details;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 200 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), "timed out");
+    }
+}
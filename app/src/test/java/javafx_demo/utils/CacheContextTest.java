@@ -0,0 +1,193 @@
+package javafx_demo.utils;
+
+import javafx_demo.utils.cache.LRUCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 命名缓存按 cache.* 配置创建，shutdown 后按同样的声明和配置重建
+ */
+class CacheContextTest {
+
+    private CacheContext context;
+
+    @AfterEach
+    void tearDown() {
+        if (context != null) {
+            context.shutdown();
+        }
+    }
+
+    private CacheContext context(String... keyValues) {
+        Properties properties = new Properties();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            properties.setProperty(keyValues[i], keyValues[i + 1]);
+        }
+        context = new CacheContext(new ConfigManager(properties));
+        return context;
+    }
+
+    private static void fill(LRUCache<Integer, String> cache, int count) {
+        for (int i = 0; i < count; i++) {
+            cache.put(i, "v" + i);
+        }
+    }
+
+    @Test
+    void namedCapacityOverridesGlobalDefault() {
+        context("cache.capacity", "5", "cache.small.capacity", "2");
+        LRUCache<Integer, String> small = context.getCache("small");
+        LRUCache<Integer, String> other = context.getCache("other");
+        fill(small, 10);
+        fill(other, 10);
+
+        assertEquals(2, small.getMap().size());
+        assertEquals(5, other.getMap().size());
+    }
+
+    @Test
+    void globalDefaultsApplyWithoutAnySettings() {
+        context();
+        LRUCache<Integer, String> cache = context.getCache("plain");
+        fill(cache, 100);
+        // cache.capacity 缺省 64
+        assertEquals(64, cache.getMap().size());
+    }
+
+    @Test
+    void expirePolicyIsReadFromConfig() throws InterruptedException {
+        context("cache.expire-time", "300",
+                "cache.written.policy", "after-write",
+                "cache.accessed.policy", "after-access");
+        LRUCache<Integer, String> written = context.getCache("written");
+        LRUCache<Integer, String> accessed = context.getCache("accessed");
+        written.put(1, "v");
+        accessed.put(1, "v");
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(100);
+            written.get(1);
+            accessed.get(1);
+        }
+        // 读取不延长 after-write 的过期时间
+        assertNull(written.get(1));
+        assertEquals("v", accessed.get(1));
+    }
+
+    @Test
+    void namedExpireTimeOverridesGlobalDefault() throws InterruptedException {
+        context("cache.expire-time", "60000", "cache.short.expire-time", "50");
+        LRUCache<Integer, String> shortLived = context.getCache("short");
+        LRUCache<Integer, String> longLived = context.getCache("long");
+        shortLived.put(1, "v");
+        longLived.put(1, "v");
+        Thread.sleep(100);
+
+        assertNull(shortLived.get(1));
+        assertEquals("v", longLived.get(1));
+    }
+
+    @Test
+    void tinyLfuEvictionKeepsFrequentKeysThroughScan() {
+        context("cache.capacity", "20", "cache.lfu.eviction", "W-Tiny-LFU");
+        LRUCache<Integer, String> lfu = context.getCache("lfu");
+        LRUCache<Integer, String> lru = context.getCache("lru");
+        for (LRUCache<Integer, String> cache : List.of(lfu, lru)) {
+            fill(cache, 20);
+            for (int round = 0; round < 5; round++) {
+                for (int i = 0; i < 20; i++) {
+                    cache.get(i);
+                }
+            }
+            for (int i = 1_000; i < 1_100; i++) {
+                cache.put(i, "scan");
+            }
+        }
+
+        assertNull(lru.peek(0));
+        int kept = 0;
+        for (int i = 0; i < 20; i++) {
+            if (lfu.peek(i) != null) {
+                kept++;
+            }
+        }
+        assertTrue(kept >= 15, "kept " + kept);
+    }
+
+    @Test
+    void unknownPolicyValuesFallBackToDefaults() throws InterruptedException {
+        context("cache.expire-time", "300",
+                "cache.odd.policy", "sometimes", "cache.odd.eviction", "random");
+        LRUCache<Integer, String> odd = context.getCache("odd");
+        odd.put(1, "v");
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(100);
+            // after-access：一直被读就不过期
+            assertEquals("v", odd.get(1));
+        }
+    }
+
+    @Test
+    void disabledCachePassesEveryReadToLoader() throws Exception {
+        context("cache.enabled", "false");
+        assertFalse(context.isEnabled());
+        LRUCache<Integer, String> cache = context.getCache("any");
+        cache.put(1, "v");
+        assertNull(cache.get(1));
+
+        int[] loads = {0};
+        for (int i = 0; i < 3; i++) {
+            assertEquals("loaded", cache.get(1, key -> {
+                loads[0]++;
+                return "loaded";
+            }));
+        }
+        assertEquals(3, loads[0]);
+    }
+
+    @Test
+    void definedFeaturesAreKeptAndConfigStillWins() {
+        context("cache.capacity", "3");
+        context.<Integer, String>define("stats", () -> LRUCache.<Integer, String>newBuilder().capacity(1_000).recordStats());
+        LRUCache<Integer, String> cache = context.getCache("stats");
+        fill(cache, 10);
+        cache.get(9);
+        cache.get(0);
+
+        assertEquals(3, cache.getMap().size());
+        assertEquals(1, context.stats().get("stats").hitCount());
+        assertEquals(1, context.stats().get("stats").missCount());
+    }
+
+    @Test
+    void persistWithoutLoginStaysInMemory() {
+        context("cache.saved.persist", "true");
+        LRUCache<Integer, String> cache = context.getCache("saved");
+        cache.put(1, "v");
+        assertEquals("v", cache.get(1));
+    }
+
+    @Test
+    void shutdownEmptiesCachesAndRecreatesThemFromDefinitions() {
+        context("cache.capacity", "4");
+        context.<Integer, String>define("stats", () -> LRUCache.<Integer, String>newBuilder().recordStats());
+        LRUCache<Integer, String> before = context.getCache("stats");
+        fill(before, 4);
+        assertSame(before, context.getCache("stats"));
+
+        context.shutdown();
+        assertTrue(before.isEmpty());
+        assertTrue(context.stats().isEmpty());
+
+        LRUCache<Integer, String> after = context.getCache("stats");
+        assertNotSame(before, after);
+        assertTrue(after.isEmpty());
+        fill(after, 10);
+        assertEquals(4, after.getMap().size());
+        assertNotNull(context.stats().get("stats"));
+    }
+}
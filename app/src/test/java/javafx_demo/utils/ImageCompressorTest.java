@@ -0,0 +1,211 @@
+package javafx_demo.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 缩放尺寸、透明转白底、压缩后变大时保留原图，以及输出目录的复用和清理
+ */
+class ImageCompressorTest {
+
+    private static final int MAX = 1000;
+
+    @TempDir
+    Path dir;
+
+    private ImageCompressor compressor() {
+        return new ImageCompressor(dir.resolve("upload"), true, MAX, 0.8f);
+    }
+
+    /** 随机噪点的 PNG 压不小，换成 JPEG 一定更小 */
+    private File noisePng(String name, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(5);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return write(image, "png", name);
+    }
+
+    private File write(BufferedImage image, String format, String name) throws IOException {
+        File file = dir.resolve(name).toFile();
+        assertTrue(ImageIO.write(image, format, file));
+        return file;
+    }
+
+    private static int luminance(int rgb) {
+        return (((rgb >> 16) & 0xff) + ((rgb >> 8) & 0xff) + (rgb & 0xff)) / 3;
+    }
+
+    private long outputFiles() throws IOException {
+        if (!Files.isDirectory(dir.resolve("upload"))) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.list(dir.resolve("upload"))) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void longestSideShrinksToMaxDimensionKeepingAspect() throws IOException {
+        File source = noisePng("wide.png", 3000, 1200);
+        ImageCompressor.Result result = compressor().compress(source);
+
+        assertTrue(result.compressed());
+        assertNotEquals(source, result.file());
+        assertTrue(result.file().getName().endsWith("-wide.jpg"), result.file().getName());
+        assertEquals(source.length(), result.originalBytes());
+        assertEquals(result.file().length(), result.compressedBytes());
+        assertTrue(result.savedBytes() > 0);
+        BufferedImage output = ImageIO.read(result.file());
+        assertEquals(MAX, output.getWidth());
+        assertEquals(400, output.getHeight());
+    }
+
+    @Test
+    void tallAndThinImagesKeepAtLeastOnePixel() throws IOException {
+        File source = noisePng("strip.png", 2, 5000);
+        BufferedImage output = ImageIO.read(compressor().compress(source).file());
+        assertEquals(MAX, output.getHeight());
+        assertEquals(1, output.getWidth());
+    }
+
+    @Test
+    void thinLinesSurviveDecodeSubsampling() throws IOException {
+        // 8000 宽：整倍跳读 8 列会恰好跳过每 16 列中第 4~7 列的竖线，跳读 4 列则不会
+        int width = 8000;
+        BufferedImage image = new BufferedImage(width, 100, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(9);
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb;
+                if (y >= 50) {
+                    rgb = random.nextInt(0x1000000);
+                } else {
+                    rgb = x % 16 >= 4 && x % 16 < 8 ? 0x000000 : 0xffffff;
+                }
+                image.setRGB(x, y, rgb);
+            }
+        }
+        File source = write(image, "png", "lines.png");
+        BufferedImage output = ImageIO.read(compressor().compress(source).file());
+
+        assertEquals(MAX, output.getWidth());
+        long darkest = 255;
+        long sum = 0;
+        for (int x = 0; x < output.getWidth(); x++) {
+            int lum = luminance(output.getRGB(x, 1));
+            darkest = Math.min(darkest, lum);
+            sum += lum;
+        }
+        // 线占四分之一，缩小后应变成整体偏灰，而不是被跳读成全白
+        assertTrue(darkest < 230, "darkest " + darkest);
+        assertTrue(sum / output.getWidth() < 230, "mean " + sum / output.getWidth());
+    }
+
+    @Test
+    void transparentAreasBecomeWhite() throws IOException {
+        BufferedImage image = new BufferedImage(2000, 2000, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(13);
+        for (int y = 0; y < 2000; y++) {
+            for (int x = 0; x < 2000; x++) {
+                int rgb = random.nextInt(0x1000000);
+                // 左半透明（底下的颜色仍是噪点），右半不透明
+                image.setRGB(x, y, x < 1000 ? rgb : 0xff000000 | rgb);
+            }
+        }
+        File source = write(image, "png", "alpha.png");
+        ImageCompressor.Result result = compressor().compress(source);
+
+        assertTrue(result.compressed());
+        BufferedImage output = ImageIO.read(result.file());
+        assertFalse(output.getColorModel().hasAlpha());
+        for (int y = 0; y < output.getHeight(); y += 50) {
+            for (int x = 0; x < 450; x += 50) {
+                assertTrue(luminance(output.getRGB(x, y)) > 245, "not white at " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void largerOutputKeepsOriginalAndLeavesNothingBehind() throws IOException {
+        // 逐像素的棋盘格：PNG 逐行重复压得很小，缩放后的摩尔纹却是 JPEG 最难编码的高频
+        BufferedImage image = new BufferedImage(1100, 1100, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 1100; y++) {
+            for (int x = 0; x < 1100; x++) {
+                image.setRGB(x, y, (x + y) % 2 == 0 ? 0x000000 : 0xffffff);
+            }
+        }
+        File source = write(image, "png", "flat.png");
+        ImageCompressor.Result result = compressor().compress(source);
+
+        assertFalse(result.compressed());
+        assertEquals(source, result.file());
+        assertEquals(0, result.savedBytes());
+        assertEquals(0, outputFiles());
+    }
+
+    @Test
+    void smallJpegAndUnknownFormatsAreUploadedAsIs() throws IOException {
+        File jpeg = write(new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB), "jpg", "small.jpg");
+        File text = Files.writeString(dir.resolve("notes.png"), "not an image").toFile();
+        ImageCompressor compressor = compressor();
+
+        assertEquals(jpeg, compressor.compress(jpeg).file());
+        assertFalse(compressor.compress(text).compressed());
+        File large = noisePng("large.png", 2000, 2000);
+        assertFalse(new ImageCompressor(dir.resolve("upload"), false, MAX, 0.8f).compress(large).compressed());
+    }
+
+    @Test
+    void outputIsReusedUntilDiscarded() throws IOException {
+        File source = noisePng("shot.png", 2000, 1500);
+        ImageCompressor compressor = compressor();
+        assertEquals(source, compressor.cachedOutput(source));
+
+        ImageCompressor.Result first = compressor.compress(source);
+        Files.setLastModifiedTime(first.file().toPath(), FileTime.fromMillis(1_000));
+        ImageCompressor.Result second = compressor.compress(source);
+        assertEquals(first, second);
+        assertEquals(first.file(), compressor.cachedOutput(source));
+        // 重用会续期，不会被当作久未使用而清理
+        assertTrue(first.file().lastModified() > 1_000);
+
+        second.discard();
+        assertFalse(first.file().exists());
+        assertEquals(source, compressor.cachedOutput(source));
+        assertTrue(source.exists());
+    }
+
+    @Test
+    void staleOutputsArePrunedOnFirstCompress() throws IOException {
+        Path upload = Files.createDirectories(dir.resolve("upload"));
+        long now = System.currentTimeMillis();
+        Path stale = Files.writeString(upload.resolve("0123456789abcdef-old.jpg"), "old");
+        Path leftover = Files.writeString(upload.resolve("encode-1.tmp"), "partial");
+        Path fresh = Files.writeString(upload.resolve("fedcba9876543210-new.jpg"), "new");
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(now - ImageCompressor.STALE_AGE_MS - 60_000));
+        Files.setLastModifiedTime(leftover, FileTime.fromMillis(now - 2 * ImageCompressor.STALE_AGE_MS));
+
+        ImageCompressor compressor = compressor();
+        compressor.compress(Files.writeString(dir.resolve("notes.txt"), "text").toFile());
+
+        assertFalse(Files.exists(stale));
+        assertFalse(Files.exists(leftover));
+        assertTrue(Files.exists(fresh));
+    }
+}
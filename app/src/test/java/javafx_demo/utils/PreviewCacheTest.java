@@ -0,0 +1,205 @@
+package javafx_demo.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The screenshot preview cache behind {@link ImageCache}, driven by fake images so no FX toolkit
+ * is needed: keys follow the file's path, mtime and size, failed decodes are dropped, and images
+ * evicted while still decoding have their load cancelled.
+ */
+class PreviewCacheTest {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    @TempDir
+    Path dir;
+
+    private final FakeDecoder decoder = new FakeDecoder();
+    private PreviewCache<FakeImage> cache;
+
+    private static final class FakeImage {
+        final File file;
+        final double width;
+        final double height;
+        volatile boolean loading = true;
+        volatile boolean error;
+        Runnable onError;
+
+        FakeImage(File file, double width, double height) {
+            this.file = file;
+            this.width = width;
+            this.height = height;
+        }
+
+        void fail() {
+            error = true;
+            loading = false;
+            if (onError != null) onError.run();
+        }
+    }
+
+    private static final class FakeDecoder implements PreviewCache.Decoder<FakeImage> {
+        final List<FakeImage> loaded = new ArrayList<>();
+        final BlockingQueue<FakeImage> cancelled = new LinkedBlockingQueue<>();
+        boolean failImmediately;
+
+        @Override
+        public FakeImage load(File file, double width, double height) {
+            FakeImage image = new FakeImage(file, width, height);
+            if (failImmediately) {
+                image.error = true;
+                image.loading = false;
+            }
+            loaded.add(image);
+            return image;
+        }
+
+        @Override
+        public long weight(FakeImage image) {
+            return (long) (image.width * image.height * 4);
+        }
+
+        @Override
+        public boolean isLoading(FakeImage image) {
+            return image.loading;
+        }
+
+        @Override
+        public boolean isError(FakeImage image) {
+            return image.error;
+        }
+
+        @Override
+        public void onError(FakeImage image, Runnable callback) {
+            image.onError = callback;
+        }
+
+        @Override
+        public void cancel(FakeImage image) {
+            cancelled.add(image);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (cache != null) {
+            cache.shutdown();
+        }
+    }
+
+    private PreviewCache<FakeImage> cache(long maxBytes) {
+        cache = new PreviewCache<>(decoder, 512, ONE_HOUR, maxBytes);
+        return cache;
+    }
+
+    private File screenshot(String name, String content) throws IOException {
+        Path file = dir.resolve(name);
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_700_000_000_000L));
+        return file.toFile();
+    }
+
+    @Test
+    void sameFileAndSizeHits() throws IOException {
+        PreviewCache<FakeImage> cache = cache(Long.MAX_VALUE);
+        File file = screenshot("a.png", "pixels");
+
+        FakeImage first = cache.get(file, 200, 150);
+
+        assertSame(first, cache.get(file, 200, 150));
+        assertSame(first, cache.get(new File(file.getPath()), 200, 150));
+        assertEquals(1, decoder.loaded.size());
+    }
+
+    @Test
+    void otherPreviewSizeMisses() throws IOException {
+        PreviewCache<FakeImage> cache = cache(Long.MAX_VALUE);
+        File file = screenshot("a.png", "pixels");
+
+        assertNotSame(cache.get(file, 200, 150), cache.get(file, 400, 300));
+    }
+
+    @Test
+    void rewrittenFileMisses() throws IOException {
+        PreviewCache<FakeImage> cache = cache(Long.MAX_VALUE);
+        File file = screenshot("a.png", "pixels");
+        FakeImage original = cache.get(file, 200, 150);
+
+        // same size, newer mtime
+        Files.writeString(file.toPath(), "PIXELS");
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(1_700_000_060_000L));
+        FakeImage touched = cache.get(file, 200, 150);
+        assertNotSame(original, touched);
+
+        // same mtime, different size
+        Files.writeString(file.toPath(), "more pixels");
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(1_700_000_060_000L));
+        assertNotSame(touched, cache.get(file, 200, 150));
+
+        assertEquals(3, decoder.loaded.size());
+    }
+
+    @Test
+    void failedDecodeIsDroppedAndRetried() throws IOException {
+        PreviewCache<FakeImage> cache = cache(Long.MAX_VALUE);
+        File file = screenshot("a.png", "pixels");
+        FakeImage first = cache.get(file, 200, 150);
+
+        first.fail();
+        FakeImage retry = cache.get(file, 200, 150);
+
+        assertNotSame(first, retry);
+        assertSame(retry, cache.get(file, 200, 150));
+    }
+
+    @Test
+    void imageThatFailsStraightAwayIsNotCached() throws IOException {
+        PreviewCache<FakeImage> cache = cache(Long.MAX_VALUE);
+        File file = screenshot("a.png", "pixels");
+        decoder.failImmediately = true;
+
+        FakeImage first = cache.get(file, 200, 150);
+
+        assertNotSame(first, cache.get(file, 200, 150));
+    }
+
+    @Test
+    void evictionCancelsImagesStillLoading() throws Exception {
+        // room for one 100x100 preview
+        PreviewCache<FakeImage> cache = cache(100 * 100 * 4);
+        FakeImage loading = cache.get(screenshot("a.png", "a"), 100, 100);
+
+        cache.get(screenshot("b.png", "b"), 100, 100);
+
+        assertSame(loading, decoder.cancelled.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void evictionLeavesDecodedImagesAlone() throws Exception {
+        PreviewCache<FakeImage> cache = cache(100 * 100 * 4);
+        FakeImage decoded = cache.get(screenshot("a.png", "a"), 100, 100);
+        decoded.loading = false;
+
+        FakeImage next = cache.get(screenshot("b.png", "b"), 100, 100);
+        next.loading = false;
+        cache.get(screenshot("c.png", "c"), 100, 100);
+
+        assertNull(decoder.cancelled.poll(200, TimeUnit.MILLISECONDS));
+        assertNotSame(decoded, cache.get(decoded.file, 100, 100), "a was evicted");
+    }
+}
@@ -0,0 +1,269 @@
+package javafx_demo.utils.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@code putAll}, {@code getAll} with and without a {@link BatchLoader}, {@code getAllAsync},
+ * and {@code invalidateAll(keys)}.
+ */
+class BatchOperationsTest {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    private final LRUCache<Integer, String> cache = LRUCache.<Integer, String>newBuilder()
+            .capacity(100).expireAfterWrite(ONE_HOUR).recordStats().build();
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    private static Map<Integer, String> values(int from, int to) {
+        Map<Integer, String> values = new LinkedHashMap<>();
+        for (int i = from; i < to; i++) {
+            values.put(i, "v" + i);
+        }
+        return values;
+    }
+
+    @Test
+    void putAllStoresEveryEntryAndKeepsTheBound() {
+        LRUCache<Integer, String> small = LRUCache.<Integer, String>newBuilder().capacity(5).build();
+        try {
+            small.putAll(values(0, 3));
+            assertEquals("v1", small.peek(1));
+            small.putAll(values(3, 8));
+            // one batch, but eviction still leaves the five most recently written
+            assertEquals(5, small.getMap().size());
+            assertNull(small.peek(2));
+            assertEquals("v3", small.peek(3));
+            assertEquals("v7", small.peek(7));
+        } finally {
+            small.shutdown();
+        }
+    }
+
+    @Test
+    void getAllReturnsPresentKeysInRequestOrder() {
+        cache.putAll(values(0, 5));
+        Map<Integer, String> found = cache.getAll(List.of(4, 9, 0, 2));
+
+        assertEquals(List.of(4, 0, 2), new ArrayList<>(found.keySet()));
+        assertEquals("v0", found.get(0));
+        assertEquals(3, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    void batchLoaderRunsOnceForAllMissingKeys() throws Exception {
+        cache.putAll(values(0, 2));
+        List<Set<? extends Integer>> calls = new ArrayList<>();
+        Map<Integer, String> found = cache.getAll(List.of(3, 0, 4, 1, 5), missing -> {
+            calls.add(Set.copyOf(missing));
+            Map<Integer, String> loaded = new LinkedHashMap<>();
+            for (int key : missing) {
+                if (key != 5) {
+                    loaded.put(key, "loaded" + key);
+                }
+            }
+            return loaded;
+        });
+
+        assertEquals(List.of(Set.of(3, 4, 5)), calls);
+        // 5 was left out by the loader, so it is absent and not cached
+        assertEquals(List.of(3, 0, 4, 1), new ArrayList<>(found.keySet()));
+        assertEquals("loaded3", cache.peek(3));
+        assertNull(cache.peek(5));
+        assertEquals(1, cache.stats().loadSuccessCount());
+    }
+
+    @Test
+    void batchLoaderIsSkippedWhenEverythingIsCached() throws Exception {
+        cache.putAll(values(0, 3));
+        Map<Integer, String> found = cache.getAll(List.of(0, 1, 2), missing -> {
+            throw new AssertionError("nothing to load");
+        });
+        assertEquals(values(0, 3), found);
+    }
+
+    @Test
+    void batchFailureReachesCallerAndCachesNothing() {
+        IOException e = assertThrows(IOException.class, () -> cache.getAll(List.of(1, 2), missing -> {
+            throw new IOException("backend down");
+        }));
+        assertEquals("backend down", e.getMessage());
+        assertTrue(cache.isEmpty());
+        assertEquals(1, cache.stats().loadFailureCount());
+        // the keys are not left registered as loading
+        assertEquals("v1", cache.getAsync(1, key -> CompletableFuture.completedFuture("v1")).join());
+    }
+
+    @Test
+    void batchAndSingleLoadsShareInFlightKeys() throws Exception {
+        CountDownLatch batchStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger singleLoads = new AtomicInteger();
+        CompletableFuture<Map<Integer, String>> batch = CompletableFuture.supplyAsync(() -> {
+            try {
+                return cache.getAll(List.of(1, 2), missing -> {
+                    batchStarted.countDown();
+                    release.await();
+                    return values(1, 3);
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(batchStarted.await(5, TimeUnit.SECONDS));
+
+        // key 1 is already being loaded by the batch, so this waits for it instead of loading
+        CompletableFuture<String> single = cache.getAsync(1, key -> {
+            singleLoads.incrementAndGet();
+            return CompletableFuture.completedFuture("single");
+        });
+        assertFalse(single.isDone());
+        release.countDown();
+
+        assertEquals("v1", single.get(5, TimeUnit.SECONDS));
+        assertEquals(values(1, 3), batch.get(5, TimeUnit.SECONDS));
+        assertEquals(0, singleLoads.get());
+    }
+
+    @Test
+    void getAllAsyncReturnsBeforeTheBatchLoadCompletes() throws Exception {
+        cache.putAll(values(0, 2));
+        List<Set<? extends Integer>> calls = new ArrayList<>();
+        CompletableFuture<Map<Integer, String>> backend = new CompletableFuture<>();
+        CompletableFuture<Map<Integer, String>> found = cache.getAllAsync(List.of(3, 0, 4, 1, 5), missing -> {
+            calls.add(Set.copyOf(missing));
+            return backend;
+        });
+
+        assertFalse(found.isDone());
+        assertEquals(List.of(Set.of(3, 4, 5)), calls);
+        backend.complete(Map.of(3, "loaded3", 4, "loaded4"));
+
+        assertEquals(List.of(3, 0, 4, 1), new ArrayList<>(found.get(5, TimeUnit.SECONDS).keySet()));
+        assertEquals("loaded4", cache.peek(4));
+        assertNull(cache.peek(5));
+        assertEquals(1, cache.stats().loadSuccessCount());
+    }
+
+    @Test
+    void getAllAsyncCompletesAtOnceWhenEverythingIsCached() {
+        cache.putAll(values(0, 3));
+        CompletableFuture<Map<Integer, String>> found = cache.getAllAsync(List.of(0, 1, 2), missing -> {
+            throw new AssertionError("nothing to load");
+        });
+        assertTrue(found.isDone());
+        assertEquals(values(0, 3), found.join());
+    }
+
+    @Test
+    void getAllAsyncJoinsLoadsAlreadyInFlight() throws Exception {
+        CompletableFuture<String> single = new CompletableFuture<>();
+        cache.getAsync(1, key -> single);
+        List<Set<? extends Integer>> calls = new ArrayList<>();
+        CompletableFuture<Map<Integer, String>> found = cache.getAllAsync(List.of(1, 2), missing -> {
+            calls.add(Set.copyOf(missing));
+            return CompletableFuture.completedFuture(Map.of(2, "v2"));
+        });
+
+        // 2 was loaded by the batch, 1 is left to the single load already running
+        assertEquals(List.of(Set.of(2)), calls);
+        assertFalse(found.isDone());
+        single.complete("v1");
+        assertEquals(values(1, 3), found.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void getAllAsyncFailureCachesNothingAndReleasesKeys() {
+        CompletableFuture<Map<Integer, String>> found = cache.getAllAsync(List.of(1, 2),
+                missing -> CompletableFuture.failedFuture(new IOException("backend down")));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> found.get(5, TimeUnit.SECONDS));
+        assertEquals("backend down", e.getCause().getMessage());
+        assertTrue(cache.isEmpty());
+        assertEquals(1, cache.stats().loadFailureCount());
+        assertNull(cache.pendingLoad(1));
+        assertEquals("v1", cache.getAsync(1, key -> CompletableFuture.completedFuture("v1")).join());
+    }
+
+    @Test
+    void getAllAsyncDiscardsKeysInvalidatedWhileLoading() throws Exception {
+        CompletableFuture<Map<Integer, String>> backend = new CompletableFuture<>();
+        CompletableFuture<Map<Integer, String>> found = cache.getAllAsync(List.of(1, 2), missing -> backend);
+        cache.invalidate(1);
+        backend.complete(values(1, 3));
+
+        assertEquals(values(1, 3), found.get(5, TimeUnit.SECONDS));
+        assertNull(cache.peek(1));
+        assertEquals("v2", cache.peek(2));
+    }
+
+    @Test
+    void invalidateAllOfKeysRemovesOnlyThose() {
+        cache.putAll(values(0, 5));
+        cache.invalidateAll(List.of(1, 3, 42));
+
+        assertNull(cache.peek(1));
+        assertNull(cache.peek(3));
+        assertEquals(List.of("v0", "v2", "v4"), List.of(cache.peek(0), cache.peek(2), cache.peek(4)));
+        assertEquals(2, cache.stats().removalCount(RemovalCause.EXPLICIT));
+    }
+
+    @Test
+    void invalidateAllOfKeysDiscardsTheirInFlightBatch() throws Exception {
+        CountDownLatch batchStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Map<Integer, String>> batch = CompletableFuture.supplyAsync(() -> {
+            try {
+                return cache.getAll(List.of(1, 2), missing -> {
+                    batchStarted.countDown();
+                    release.await();
+                    return values(1, 3);
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(batchStarted.await(5, TimeUnit.SECONDS));
+        cache.invalidateAll(List.of(1));
+        release.countDown();
+
+        // the caller still gets both, but the invalidated key is not kept
+        assertEquals(values(1, 3), batch.get(5, TimeUnit.SECONDS));
+        assertNull(cache.peek(1));
+        assertEquals("v2", cache.peek(2));
+    }
+
+    @Test
+    void concurrentCachePutAllIsVisibleAfterDrain() {
+        LRUCache<Integer, String> concurrent = LRUCache.<Integer, String>newBuilder()
+                .capacity(10).concurrent().build();
+        try {
+            concurrent.putAll(values(0, 20));
+            concurrent.cleanUp();
+            assertEquals(10, concurrent.getMap().size());
+            assertEquals("v19", concurrent.peek(19));
+            assertNull(concurrent.peek(0));
+        } finally {
+            concurrent.shutdown();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package javafx_demo.utils.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryCodecTest {
+
+    @Test
+    void roundTripsEverySupportedType() throws IOException {
+        Map<String, Object> order = new LinkedHashMap<>();
+        order.put("id", "ORD-001");
+        order.put("note", null);
+        order.put("paid", true);
+        order.put("cancelled", false);
+        order.put("count", -42);
+        order.put("maxInt", Integer.MAX_VALUE);
+        order.put("minLong", Long.MIN_VALUE);
+        order.put("createdAt", 1_700_000_000_000L);
+        order.put("amount", 128.5);
+        order.put("title", "订单 ✓");
+        order.put("items", List.of(Map.of("sku", "A1", "qty", 2.0), "loose", 3));
+
+        BinaryCodec<Map<String, Object>> codec = new BinaryCodec<>();
+        Map<String, Object> decoded = codec.decode(codec.encode(order));
+
+        assertEquals(order, decoded);
+        // key order is kept, so decoded maps render like the originals
+        assertEquals(new ArrayList<>(order.keySet()), new ArrayList<>(decoded.keySet()));
+        assertTrue(decoded.get("count") instanceof Integer);
+        assertTrue(decoded.get("createdAt") instanceof Long);
+        // decoded values end up shared through the cache, so they cannot be changed
+        assertThrows(UnsupportedOperationException.class, () -> decoded.put("id", "x"));
+        assertThrows(UnsupportedOperationException.class, () -> ((List<?>) decoded.get("items")).clear());
+    }
+
+    @Test
+    void roundTripsBytes() throws IOException {
+        byte[] data = {0, 1, -1, 127, -128};
+        BinaryCodec<byte[]> codec = new BinaryCodec<>();
+        assertArrayEquals(data, codec.decode(codec.encode(data)));
+    }
+
+    @Test
+    void deflatesOnlyAboveThreshold() throws IOException {
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            rows.add("row with a fairly repetitive payload " + (i % 10));
+        }
+        BinaryCodec<List<String>> plain = new BinaryCodec<>();
+        BinaryCodec<List<String>> deflating = new BinaryCodec<>(1024);
+
+        byte[] raw = plain.encode(rows);
+        byte[] compressed = deflating.encode(rows);
+        assertEquals(0, raw[0]);
+        assertEquals(1, compressed[0]);
+        assertTrue(compressed.length < raw.length / 4, compressed.length + " vs " + raw.length);
+        assertEquals(rows, deflating.decode(compressed));
+        // the flag byte tells the forms apart, whichever codec instance reads them
+        assertEquals(rows, plain.decode(compressed));
+
+        List<String> small = List.of("short");
+        assertEquals(0, deflating.encode(small)[0]);
+    }
+
+    @Test
+    void unsupportedTypeIsRejected() {
+        BinaryCodec<Object> codec = new BinaryCodec<>();
+        assertThrows(IOException.class, () -> codec.encode(new Object()));
+    }
+
+    @Test
+    void damagedPayloadFailsWithIOException() throws IOException {
+        BinaryCodec<Object> codec = new BinaryCodec<>(16);
+        byte[] raw = new BinaryCodec<>().encode(List.of("a", "b", "c"));
+        byte[] deflated = codec.encode("x".repeat(100));
+
+        assertThrows(IOException.class, () -> codec.decode(new byte[0]));
+        assertThrows(IOException.class, () -> codec.decode(Arrays.copyOf(raw, raw.length - 1)));
+        assertThrows(IOException.class, () -> codec.decode(new byte[]{0, 99}));
+        assertThrows(IOException.class, () -> codec.decode(Arrays.copyOf(deflated, 4)));
+        assertThrows(IOException.class, () -> codec.decode(Arrays.copyOf(deflated, deflated.length / 2)));
+    }
+}
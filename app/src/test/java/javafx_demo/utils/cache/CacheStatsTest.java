@@ -0,0 +1,123 @@
+package javafx_demo.utils.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheStatsTest {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    @Test
+    void countsHitsMissesAndRemovalsByCause() throws Exception {
+        LRUCache<Integer, String> cache = LRUCache.<Integer, String>newBuilder()
+                .capacity(2).expireAfterWrite(ONE_HOUR).recordStats().build();
+        try {
+            cache.put(1, "a");
+            cache.put(1, "a2");           // REPLACED
+            cache.put(2, "b");
+            cache.get(1);                 // hit
+            cache.get(3);                 // miss
+            cache.put(3, "c");            // SIZE evicts 2
+            cache.invalidate(1);          // EXPLICIT
+            cache.put(4, "d", 1);
+            Thread.sleep(5);
+            cache.get(4);                 // miss, EXPIRED
+
+            CacheStats stats = cache.stats();
+            assertEquals(1, stats.hitCount());
+            assertEquals(2, stats.missCount());
+            assertEquals(1.0 / 3, stats.hitRate(), 1e-9);
+            assertEquals(1, stats.removalCount(RemovalCause.REPLACED));
+            assertEquals(1, stats.evictionCount());
+            assertEquals(1, stats.removalCount(RemovalCause.EXPLICIT));
+            assertEquals(1, stats.expirationCount());
+            assertEquals(0, stats.collectionCount());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void countsLoadsAndTheirTime() {
+        LRUCache<Integer, String> cache = LRUCache.<Integer, String>newBuilder().recordStats().build();
+        try {
+            assertDoesNotThrow(() -> cache.get(1, key -> {
+                Thread.sleep(5);
+                return "loaded";
+            }));
+            assertThrows(IllegalStateException.class, () -> cache.get(2, key -> {
+                throw new IllegalStateException("down");
+            }));
+
+            CacheStats stats = cache.stats();
+            assertEquals(1, stats.loadSuccessCount());
+            assertEquals(1, stats.loadFailureCount());
+            assertEquals(2, stats.loadCount());
+            assertTrue(stats.totalLoadTime() >= 5_000_000, "load time " + stats.totalLoadTime());
+            assertEquals(stats.totalLoadTime() / 2.0, stats.averageLoadPenalty(), 1e-9);
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void minusGivesActivityBetweenSnapshots() {
+        LRUCache<Integer, String> cache = LRUCache.<Integer, String>newBuilder().recordStats().build();
+        try {
+            cache.put(1, "a");
+            cache.get(1);
+            cache.get(2);
+            CacheStats before = cache.stats();
+            cache.get(1);
+            cache.get(1);
+
+            CacheStats delta = cache.stats().minus(before);
+            assertEquals(2, delta.hitCount());
+            assertEquals(0, delta.missCount());
+            assertEquals(1.0, delta.hitRate());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void concurrentRecordingLosesNothing() throws InterruptedException {
+        LRUCache<Integer, String> cache = LRUCache.<Integer, String>newBuilder().concurrent().recordStats().build();
+        try {
+            cache.put(0, "a");
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                threads.add(Thread.ofPlatform().start(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        cache.get(i & 1);
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            CacheStats stats = cache.stats();
+            assertEquals(40_000, stats.hitCount());
+            assertEquals(40_000, stats.missCount());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void disabledStatsStayEmpty() {
+        LRUCache<Integer, String> cache = new LRUCache<>(10, ONE_HOUR);
+        try {
+            cache.put(1, "a");
+            cache.get(1);
+            cache.get(2);
+            assertSame(CacheStats.EMPTY, cache.stats());
+        } finally {
+            cache.shutdown();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package javafx_demo.utils.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrent mode: reads recorded in the lossy {@link ReadBuffer}, writes replayed from the
+ * write buffer, and both drained into the access order under the cache lock.
+ */
+class ConcurrentLRUCacheTest {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    @Test
+    void readBufferDrainsInOfferOrderAndReportsFullStripe() {
+        ReadBuffer<Integer, Integer> buffer = new ReadBuffer<>();
+        List<CacheEntry<Integer, Integer>> offered = new ArrayList<>();
+        boolean full = false;
+        for (int i = 0; i < 15; i++) {
+            CacheEntry<Integer, Integer> e = new CacheEntry<>(i, i, 0);
+            offered.add(e);
+            full = buffer.offer(e);
+        }
+        assertFalse(full);
+        CacheEntry<Integer, Integer> last = new CacheEntry<>(15, 15, 0);
+        offered.add(last);
+        assertTrue(buffer.offer(last), "the sixteenth read fills the stripe");
+        // a full stripe drops further reads instead of blocking
+        assertTrue(buffer.offer(new CacheEntry<>(99, 99, 0)));
+
+        List<CacheEntry<Integer, Integer>> drained = new ArrayList<>();
+        buffer.drainTo(drained::add);
+        assertEquals(offered, drained);
+
+        drained.clear();
+        buffer.drainTo(drained::add);
+        assertTrue(drained.isEmpty());
+    }
+
+    @Test
+    void drainedReadsProtectFromEviction() {
+        LRUCache<Integer, String> cache = LRUCache.<Integer, String>newBuilder()
+                .capacity(3).expireAfterAccess(ONE_HOUR).concurrent().build();
+        try {
+            cache.put(1, "a");
+            cache.put(2, "b");
+            cache.put(3, "c");
+            assertEquals("a", cache.get(1));
+            // replays the buffered read, making 2 the least recently used
+            cache.cleanUp();
+            cache.put(4, "d");
+            cache.cleanUp();
+
+            assertNull(cache.peek(2));
+            assertEquals("a", cache.peek(1));
+            assertEquals("d", cache.peek(4));
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void racingReadersAndWritersKeepCacheConsistent() throws Exception {
+        int capacity = 500;
+        LRUCache<Integer, Integer> cache = LRUCache.<Integer, Integer>newBuilder()
+                .capacity(capacity).expireAfterAccess(ONE_HOUR).concurrent().build();
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 50_000; i++) {
+                        int key = random.nextInt(2_000);
+                        if (random.nextInt(4) == 0) {
+                            cache.put(key, key * 10);
+                        } else if (random.nextInt(50) == 0) {
+                            cache.invalidate(key);
+                        } else {
+                            Integer value = cache.get(key);
+                            // a value is only ever written for its own key
+                            assertTrue(value == null || value == key * 10, key + " -> " + value);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        try {
+            cache.cleanUp();
+            // once drained, the bound holds and the map and the eviction order agree
+            assertTrue(cache.getMap().size() <= capacity, "size " + cache.getMap().size());
+            assertEquals(cache.getMap().size(), cache.weightedSize());
+            for (var e : cache.getAllKV()) {
+                assertEquals(e.getKey() * 10, e.getValue().intValue());
+            }
+        } finally {
+            cache.shutdown();
+        }
+    }
+}
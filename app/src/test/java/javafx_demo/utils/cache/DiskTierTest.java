@@ -0,0 +1,264 @@
+package javafx_demo.utils.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Append and read back, recovery of a log torn by a crash, startup from hint files, and
+ * compaction of mostly dead segments.
+ */
+class DiskTierTest {
+
+    // a few dozen records per segment, so tests roll and compact quickly
+    private static final int SEGMENT_SIZE = 1024;
+
+    @TempDir
+    Path dir;
+
+    private DiskTier<String, String> tier;
+
+    @AfterEach
+    void tearDown() {
+        if (tier != null) {
+            tier.close();
+        }
+    }
+
+    private DiskTier<String, String> open() throws IOException {
+        tier = DiskTier.open(dir, new BinaryCodec<>(), new BinaryCodec<>(), SEGMENT_SIZE);
+        return tier;
+    }
+
+    private DiskTier<String, String> reopen() throws IOException {
+        tier.close();
+        return open();
+    }
+
+    private static String value(DiskTier<String, String> tier, String key) throws IOException {
+        DiskTier.Hit<String> hit = tier.get(key);
+        return hit == null ? null : hit.value;
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.toString().endsWith(".log")).count();
+        }
+    }
+
+    private Path segment(int id) {
+        return dir.resolve(String.format("%08d", id) + ".log");
+    }
+
+    @Test
+    void valuesSurviveReopen() throws IOException {
+        DiskTier<String, String> tier = open();
+        long later = System.currentTimeMillis() + 60_000;
+        tier.put("a", "1", 0);
+        tier.put("b", "2", later);
+        tier.put("a", "3", 0);
+        tier.put("c", "4", 0);
+        tier.remove("c");
+        assertEquals("3", value(tier, "a"));
+        assertNull(tier.get("c"));
+
+        tier = reopen();
+        assertEquals(2, tier.size());
+        assertEquals("3", value(tier, "a"));
+        assertEquals("2", value(tier, "b"));
+        assertEquals(later, tier.get("b").expireAt);
+        assertNull(tier.get("c"));
+    }
+
+    @Test
+    void expiredRecordsAreNotReturnedOrRecovered() throws IOException {
+        DiskTier<String, String> tier = open();
+        tier.put("old", "x", System.currentTimeMillis() - 1);
+        assertNull(tier.get("old"));
+
+        tier.put("soon", "y", System.currentTimeMillis() + 50);
+        tier.flush();
+        sleep(100);
+        tier = reopen();
+        assertNull(tier.get("soon"));
+        assertEquals(0, tier.size());
+    }
+
+    @Test
+    void secondOpenOfSameDirectoryIsRefused() throws IOException {
+        open();
+        assertThrows(IOException.class,
+                () -> DiskTier.open(dir, new BinaryCodec<String>(), new BinaryCodec<String>(), SEGMENT_SIZE));
+    }
+
+    @Test
+    void tornRecordCutsTheLogThere() throws IOException {
+        DiskTier<String, String> tier = open();
+        tier.put("key-a", "1", 0);
+        tier.put("key-b", "2", 0);
+        tier.put("key-c", "3", 0);
+        tier.close();
+
+        // flip a byte of b's key, so its CRC no longer matches
+        byte[] log = Files.readAllBytes(segment(1));
+        int at = indexOf(log, new BinaryCodec<String>().encode("key-b"));
+        assertTrue(at > 0);
+        log[at + 2] ^= 1;
+        Files.write(segment(1), log);
+
+        tier = open();
+        assertEquals("1", value(tier, "key-a"));
+        // c was intact but sits behind the torn record, so it goes too
+        assertNull(tier.get("key-b"));
+        assertNull(tier.get("key-c"));
+
+        // appends land where the valid log ended and survive the next start
+        tier.put("key-d", "4", 0);
+        tier = reopen();
+        assertEquals("1", value(tier, "key-a"));
+        assertEquals("4", value(tier, "key-d"));
+        assertNull(tier.get("key-c"));
+    }
+
+    @Test
+    void sealedSegmentsLoadFromHintFiles() throws IOException {
+        DiskTier<String, String> tier = open();
+        for (int i = 0; i < 200; i++) {
+            tier.put("key-" + i, "value-" + i, 0);
+        }
+        assertTrue(segmentFiles() > 2, "segments " + segmentFiles());
+        assertTrue(Files.exists(dir.resolve("00000001.hint")));
+        tier.close();
+
+        // break the first record's CRC; the hint is trusted, so startup never notices
+        byte[] log = Files.readAllBytes(segment(1));
+        log[0] ^= 1;
+        Files.write(segment(1), log);
+        tier = open();
+        assertEquals(200, tier.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals("value-" + i, value(tier, "key-" + i));
+        }
+
+        // without the hint the segment is scanned and cut at the broken record
+        tier.close();
+        Files.delete(dir.resolve("00000001.hint"));
+        tier = open();
+        assertNull(tier.get("key-0"));
+        assertEquals("value-199", value(tier, "key-199"));
+    }
+
+    @Test
+    void corruptHintFallsBackToScan() throws IOException {
+        DiskTier<String, String> tier = open();
+        for (int i = 0; i < 200; i++) {
+            tier.put("key-" + i, "value-" + i, 0);
+        }
+        tier.close();
+        Path hint = dir.resolve("00000001.hint");
+        byte[] data = Files.readAllBytes(hint);
+        data[data.length / 2] ^= 1;
+        Files.write(hint, data);
+
+        tier = open();
+        assertEquals(200, tier.size());
+        assertEquals("value-0", value(tier, "key-0"));
+    }
+
+    @Test
+    void compactionReclaimsOverwrittenSegments() throws IOException {
+        DiskTier<String, String> tier = open();
+        for (int i = 0; i < 2_000; i++) {
+            tier.put("key-" + (i % 3), "value-" + i, 0);
+        }
+        // 2000 records would need about 60 segments without compaction
+        assertTrue(segmentFiles() <= 3, "segments " + segmentFiles());
+        assertFalse(Files.exists(segment(1)));
+
+        tier = reopen();
+        assertEquals(3, tier.size());
+        assertEquals("value-1998", value(tier, "key-0"));
+        assertEquals("value-1999", value(tier, "key-1"));
+        assertEquals("value-1997", value(tier, "key-2"));
+    }
+
+    @Test
+    void movedTombstoneSurvivesCrashAfterCompaction() throws IOException {
+        DiskTier<String, String> tier = open();
+        tier.put("gone", "old", 0);
+        int keys = 0;
+        while (segmentFiles() == 1) {
+            tier.put("keep-" + keys, "value-" + keys, 0);
+            keys++;
+        }
+        // segment 1 stays mostly live; segment 2 gets the tombstone and churn
+        tier.remove("gone");
+        int churn = 0;
+        while (Files.exists(segment(2)) && segmentFiles() < 4) {
+            tier.put("churn", "value-" + churn++, 0);
+        }
+        // segment 2 was compacted: its tombstone now lives in segment 3 and segment 1 still
+        // holds the old value
+        assertFalse(Files.exists(segment(2)));
+        assertTrue(Files.exists(segment(1)));
+
+        // lose whatever was not forced, then restart
+        tier.crash();
+        tier = open();
+        assertNull(tier.get("gone"));
+        for (int i = 0; i < keys; i++) {
+            assertEquals("value-" + i, value(tier, "keep-" + i));
+        }
+        assertNotNull(tier.get("churn"));
+    }
+
+    @Test
+    void cacheStartsWarmFromItsDiskTier() throws IOException {
+        LRUCache<String, String> cache = LRUCache.<String, String>newBuilder()
+                .capacity(10).expireAfterWrite(60_000).diskTier(open()).build();
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.invalidate("b");
+        cache.shutdown();
+
+        cache = LRUCache.<String, String>newBuilder()
+                .capacity(10).expireAfterWrite(60_000).diskTier(open()).build();
+        try {
+            assertTrue(cache.isEmpty());
+            assertEquals("1", cache.get("a"));
+            // promoted into memory on the first read
+            assertEquals("1", cache.peek("a"));
+            assertNull(cache.get("b"));
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = 0; i + pattern.length <= data.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package javafx_demo.utils.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hit rates of LRU and W-TinyLFU replaying the same access traces, read-through: every miss is
+ * followed by a put, as {@code ApiService} does with the response caches.
+ */
+class EvictionPolicyTest {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    @Test
+    void tinyLfuKeepsHotKeysThroughScans() {
+        // order details opened from a Zipf-skewed set, interrupted by paging through history,
+        // which touches every old order exactly once
+        long[] trace = scanTrace(new Random(7), 200_000, 2_000, 5_000, 1_000);
+
+        double lru = hitRate(EvictionPolicy.LRU, 256, trace);
+        double tinyLfu = hitRate(EvictionPolicy.W_TINY_LFU, 256, trace);
+
+        // the traces are seeded, so these only move when a policy does
+        assertEquals(0.531, lru, 0.01);
+        assertEquals(0.603, tinyLfu, 0.01);
+        assertTrue(tinyLfu > lru + 0.05, "LRU " + lru + ", W-TinyLFU " + tinyLfu);
+    }
+
+    @Test
+    void tinyLfuIsNoWorseOnSkewedTrace() {
+        long[] trace = zipfTrace(new Random(11), 200_000, 5_000);
+
+        double lru = hitRate(EvictionPolicy.LRU, 500, trace);
+        double tinyLfu = hitRate(EvictionPolicy.W_TINY_LFU, 500, trace);
+
+        assertEquals(0.650, lru, 0.01);
+        assertEquals(0.725, tinyLfu, 0.01);
+        assertTrue(tinyLfu >= lru, "LRU " + lru + ", W-TinyLFU " + tinyLfu);
+    }
+
+    @Test
+    void tinyLfuRespectsCapacity() {
+        LRUCache<Long, Long> cache = LRUCache.<Long, Long>newBuilder()
+                .capacity(100)
+                .expireAfterAccess(ONE_HOUR)
+                .evictionPolicy(EvictionPolicy.W_TINY_LFU)
+                .build();
+        try {
+            for (long key = 0; key < 10_000; key++) {
+                cache.put(key, key);
+                if (key % 3 == 0) {
+                    cache.get(key / 2);
+                }
+                assertTrue(cache.getMap().size() <= 100);
+            }
+            for (long key = 0; key < 10_000; key++) {
+                cache.invalidate(key);
+            }
+            assertTrue(cache.isEmpty());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    private static double hitRate(EvictionPolicy policy, int capacity, long[] trace) {
+        LRUCache<Long, Long> cache = new LRUCache<>(capacity, ONE_HOUR, ExpirePolicy.AFTER_ACCESS, policy);
+        try {
+            int hits = 0;
+            for (long key : trace) {
+                if (cache.get(key) != null) {
+                    hits++;
+                } else {
+                    cache.put(key, key);
+                }
+            }
+            return (double) hits / trace.length;
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    private static long[] scanTrace(Random random, int length, int hotKeys, int scanEvery, int scanLength) {
+        double[] cdf = zipfCdf(hotKeys);
+        long[] trace = new long[length];
+        long nextOneOff = hotKeys;
+        int i = 0;
+        while (i < length) {
+            for (int j = 0; j < scanEvery && i < length; j++) {
+                trace[i++] = sample(cdf, random);
+            }
+            for (int j = 0; j < scanLength && i < length; j++) {
+                trace[i++] = nextOneOff++;
+            }
+        }
+        return trace;
+    }
+
+    private static long[] zipfTrace(Random random, int length, int keys) {
+        double[] cdf = zipfCdf(keys);
+        long[] trace = new long[length];
+        for (int i = 0; i < length; i++) {
+            trace[i] = sample(cdf, random);
+        }
+        return trace;
+    }
+
+    private static double[] zipfCdf(int keys) {
+        double[] cdf = new double[keys];
+        double sum = 0;
+        for (int rank = 0; rank < keys; rank++) {
+            sum += 1.0 / (rank + 1);
+            cdf[rank] = sum;
+        }
+        for (int rank = 0; rank < keys; rank++) {
+            cdf[rank] /= sum;
+        }
+        return cdf;
+    }
+
+    private static long sample(double[] cdf, Random random) {
+        int rank = Arrays.binarySearch(cdf, random.nextDouble());
+        return rank >= 0 ? rank : Math.min(-rank - 1, cdf.length - 1);
+    }
+}
@@ -0,0 +1,76 @@
+package javafx_demo.utils.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LRUCacheTest {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        LRUCache<Integer, String> cache = new LRUCache<>(2, ONE_HOUR);
+        try {
+            cache.put(1, "a");
+            cache.put(2, "b");
+            assertEquals("a", cache.get(1));
+            cache.put(3, "c");
+
+            assertNull(cache.get(2));
+            assertEquals("a", cache.get(1));
+            assertEquals("c", cache.get(3));
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void replacingKeyDoesNotEvict() {
+        LRUCache<Integer, String> cache = new LRUCache<>(2, ONE_HOUR);
+        try {
+            cache.put(1, "a");
+            cache.put(2, "b");
+            cache.put(1, "a2");
+
+            assertEquals("a2", cache.get(1));
+            assertEquals("b", cache.get(2));
+            assertEquals(2, cache.getAllValues().size());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void hitLatencyIsFlatAcrossCapacities() {
+        double small = nanosPerHit(64);
+        double large = nanosPerHit(1_000_000);
+        // a linear-scan promotion is ~10^4 times slower at 1M entries; allow generous noise
+        assertTrue(large < small * 5 + 200,
+                () -> String.format("hit latency grew with size: 64=%.1fns 1M=%.1fns", small, large));
+    }
+
+    // hits the same 64 hot keys at both sizes, so only the promotion cost can differ
+    private static double nanosPerHit(int entries) {
+        LRUCache<Integer, Integer> cache = new LRUCache<>(entries, ONE_HOUR);
+        try {
+            for (int i = 0; i < entries; i++) {
+                cache.put(i, i);
+            }
+            int rounds = 200_000;
+            long sink = 0;
+            for (int i = 0; i < rounds; i++) {
+                sink += cache.get(i & 63);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                sink += cache.get(i & 63);
+            }
+            long elapsed = System.nanoTime() - start;
+            assertTrue(sink > 0);
+            return (double) elapsed / rounds;
+        } finally {
+            cache.shutdown();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package javafx_demo.utils.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The primitive-keyed cache checked against a {@link LinkedHashMap} in access order, and its
+ * slot-indexed timer wheel against the expiry times it was given.
+ */
+class LongLRUCacheTest {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    @Test
+    void matchesAccessOrderedMapUnderRandomOperations() {
+        int capacity = 300;
+        // a narrow key range keeps probe runs long and forces deletes inside them
+        long keyRange = capacity * 3L;
+        Random random = new Random(42);
+        LongLRUCache<String> cache = new LongLRUCache<>(capacity, ONE_HOUR);
+        LinkedHashMap<Long, String> order = new LinkedHashMap<>(16, 0.75f, true);
+        Map<Long, String> values = new HashMap<>();
+        try {
+            for (int op = 0; op < 200_000; op++) {
+                long key = random.nextLong(keyRange) - keyRange / 2;
+                switch (random.nextInt(10)) {
+                    case 0, 1, 2, 3 -> {
+                        String value = key + "@" + op;
+                        if (!values.containsKey(key) && values.size() == capacity) {
+                            Iterator<Long> eldest = order.keySet().iterator();
+                            values.remove(eldest.next());
+                            eldest.remove();
+                        }
+                        cache.put(key, value);
+                        order.put(key, value);
+                        values.put(key, value);
+                    }
+                    case 4, 5, 6, 7 -> {
+                        assertEquals(values.get(key), cache.get(key), "get " + key + " at " + op);
+                        order.get(key);
+                    }
+                    case 8 -> assertEquals(values.get(key), cache.peek(key), "peek " + key + " at " + op);
+                    default -> {
+                        cache.invalidate(key);
+                        order.remove(key);
+                        values.remove(key);
+                    }
+                }
+                assertEquals(values.size(), cache.size());
+            }
+            for (long key = -keyRange / 2; key < keyRange / 2; key++) {
+                assertEquals(values.get(key), cache.peek(key), "final " + key);
+            }
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void growsFromInitialSlotsWithoutLosingEntries() {
+        LongLRUCache<Long> cache = new LongLRUCache<>(10_000, ONE_HOUR);
+        try {
+            for (long i = 0; i < 10_000; i++) {
+                cache.put(i * 1_000_003L, i);
+            }
+            assertEquals(10_000, cache.size());
+            for (long i = 0; i < 10_000; i++) {
+                assertEquals(Long.valueOf(i), cache.peek(i * 1_000_003L));
+            }
+            // freed slots are reused before the arrays grow again
+            for (long i = 0; i < 5_000; i++) {
+                cache.invalidate(i * 1_000_003L);
+            }
+            for (long i = 0; i < 5_000; i++) {
+                cache.put(-i - 1, i);
+            }
+            assertEquals(10_000, cache.size());
+            assertEquals(Long.valueOf(4_999L), cache.peek(-5_000));
+            assertEquals(Long.valueOf(9_999L), cache.peek(9_999 * 1_000_003L));
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void slotWheelExpiresEachSlotOnTime() {
+        long start = 1L << 40;
+        int slots = 2_000;
+        SlotTimerWheel wheel = new SlotTimerWheel(start, 16);
+        wheel.grow(slots);
+        Random random = new Random(7);
+        long[] expireTime = new long[slots];
+        for (int slot = 0; slot < slots; slot++) {
+            // from a few ms to about two days, across every level
+            expireTime[slot] = start + 1 + (long) Math.pow(2, random.nextDouble() * 28);
+            wheel.schedule(slot, expireTime[slot]);
+        }
+        // rescheduling and descheduling leave no stale links behind
+        for (int slot = 0; slot < slots; slot += 10) {
+            expireTime[slot] += 5_000;
+            wheel.reschedule(slot, expireTime[slot]);
+        }
+        List<Integer> cancelled = new ArrayList<>();
+        for (int slot = 5; slot < slots; slot += 10) {
+            wheel.deschedule(slot);
+            cancelled.add(slot);
+        }
+
+        long[] expiredAt = new long[slots];
+        long now = start;
+        long end = start + (1L << 29);
+        while (now < end) {
+            now += 1 + random.nextInt(1 << 16);
+            long tick = now;
+            wheel.advance(tick, slot -> expireTime[slot], slot -> {
+                assertEquals(0, expiredAt[slot], "slot " + slot + " expired twice");
+                expiredAt[slot] = tick;
+            });
+        }
+        for (int slot = 0; slot < slots; slot++) {
+            if (cancelled.contains(slot)) {
+                assertEquals(0, expiredAt[slot], "descheduled slot " + slot + " expired");
+                continue;
+            }
+            assertTrue(expiredAt[slot] >= expireTime[slot], "slot " + slot + " expired early");
+            // never later than the advance after the one that crossed it
+            assertTrue(expiredAt[slot] - expireTime[slot] < 2 << 16, "slot " + slot + " expired late");
+        }
+    }
+
+    @Test
+    void maintenanceTickRemovesExpiredEntriesWithoutReads() throws InterruptedException {
+        LongLRUCache<String> cache = new LongLRUCache<>(1_000, 100, ExpirePolicy.AFTER_WRITE, true);
+        try {
+            for (long i = 0; i < 100; i++) {
+                cache.put(i, "v");
+            }
+            cache.put(1_000, "kept", ONE_HOUR);
+            // the shared maintenance thread ticks once a second
+            for (int i = 0; i < 50 && cache.size() > 1; i++) {
+                Thread.sleep(100);
+            }
+            assertEquals(1, cache.size());
+            assertEquals("kept", cache.peek(1_000));
+            assertEquals(100, cache.stats().expirationCount());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void readsPostponeExpiryAfterAccess() throws InterruptedException {
+        LongLRUCache<String> cache = new LongLRUCache<>(10, 1_500, ExpirePolicy.AFTER_ACCESS);
+        try {
+            cache.put(1, "read");
+            cache.put(2, "idle");
+            Thread.sleep(1_000);
+            assertEquals("read", cache.get(1));
+            Thread.sleep(1_200);
+            cache.cleanUp();
+
+            assertEquals("read", cache.peek(1));
+            assertNull(cache.peek(2));
+            assertEquals(1, cache.size());
+        } finally {
+            cache.shutdown();
+        }
+    }
+}
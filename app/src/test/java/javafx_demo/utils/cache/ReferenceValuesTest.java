@@ -0,0 +1,120 @@
+package javafx_demo.utils.cache;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.Notification;
+import java.lang.management.MemoryNotificationInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Soft and weak values, and the {@link MemoryPressure} notification that shrinks caches
+ * holding them.
+ */
+class ReferenceValuesTest {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    private static Notification notification(String type) {
+        return new Notification(type, "test", 1, "simulated");
+    }
+
+    @Test
+    void weakValueIsCollectedOnceUnreachable() throws InterruptedException {
+        BlockingQueue<RemovalCause> causes = new LinkedBlockingQueue<>();
+        LRUCache<Integer, Object> cache = LRUCache.<Integer, Object>newBuilder()
+                .expireAfterWrite(ONE_HOUR).weakValues().recordStats()
+                .removalListener((key, value, cause) -> causes.add(cause)).build();
+        try {
+            Object held = new Object();
+            cache.put(1, held);
+            cache.put(2, new Object());
+            for (int i = 0; i < 50 && cache.get(2) != null; i++) {
+                System.gc();
+                Thread.sleep(20);
+            }
+
+            assertNull(cache.get(2));
+            assertSame(held, cache.get(1));
+            assertEquals(RemovalCause.COLLECTED, causes.poll(5, TimeUnit.SECONDS));
+            assertEquals(1, cache.stats().collectionCount());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void softValueSurvivesCollectionWhileHeapIsAmple() {
+        LRUCache<Integer, byte[]> cache = LRUCache.<Integer, byte[]>newBuilder()
+                .expireAfterWrite(ONE_HOUR).softValues().build();
+        try {
+            cache.put(1, new byte[1024]);
+            System.gc();
+            assertNotNull(cache.get(1));
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void memoryPressureDropsLeastRecentlyUsedHalf() {
+        LRUCache<Integer, String> soft = LRUCache.<Integer, String>newBuilder()
+                .capacity(1_000).expireAfterAccess(ONE_HOUR).softValues().build();
+        LRUCache<Integer, String> strong = LRUCache.<Integer, String>newBuilder()
+                .capacity(1_000).expireAfterAccess(ONE_HOUR).build();
+        List<String> held = new ArrayList<>();
+        try {
+            for (int i = 0; i < 100; i++) {
+                String value = "v" + i;
+                held.add(value);
+                soft.put(i, value);
+                strong.put(i, value);
+            }
+            soft.get(0);
+
+            MemoryPressure.onNotification(notification(MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED));
+            assertEquals(50, soft.getMap().size());
+            // 0 was read last, so it survives while 1..50 go
+            assertEquals("v0", soft.peek(0));
+            assertNull(soft.peek(1));
+            assertNull(soft.peek(50));
+            assertEquals("v51", soft.peek(51));
+            // strong-valued caches do not register, so they are left alone
+            assertEquals(100, strong.getMap().size());
+
+            MemoryPressure.onNotification(notification(MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED));
+            assertEquals(25, soft.getMap().size());
+        } finally {
+            soft.shutdown();
+            strong.shutdown();
+        }
+    }
+
+    @Test
+    void unrelatedNotificationsAndShutDownCachesAreIgnored() {
+        LRUCache<Integer, String> cache = LRUCache.<Integer, String>newBuilder().weakValues().build();
+        LRUCache<Integer, String> closed = LRUCache.<Integer, String>newBuilder().weakValues().build();
+        String value = "kept";
+        try {
+            cache.put(1, value);
+            closed.shutdown();
+            closed.put(1, value);
+
+            MemoryPressure.onNotification(notification("jmx.attribute.change"));
+            assertSame(value, cache.peek(1));
+
+            MemoryPressure.onNotification(notification(MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED));
+            assertNull(cache.peek(1));
+            // a shut down cache unregistered itself
+            assertSame(value, closed.peek(1));
+        } finally {
+            cache.shutdown();
+            closed.shutdown();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package javafx_demo.utils.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Refresh-after-write: stale entries are served while a single background reload runs, and
+ * the jitter spreads the refresh times of entries written together.
+ */
+class RefreshAfterWriteTest {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+    private static final long REFRESH = 50;
+
+    private final LRUCache<String, String> cache = LRUCache.<String, String>newBuilder()
+            .expireAfterWrite(ONE_HOUR).refreshAfterWrite(REFRESH, 0).recordStats().build();
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void freshEntryIsNotReloaded() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.getAsync("k", key -> CompletableFuture.completedFuture("v" + loads.incrementAndGet())).join();
+        assertEquals("v1", cache.getAsync("k", key -> CompletableFuture.completedFuture("v" + loads.incrementAndGet())).join());
+        assertEquals(1, loads.get());
+        assertNull(cache.pendingLoad("k"));
+    }
+
+    @Test
+    void staleEntryIsServedWhileOneRefreshRuns() throws Exception {
+        cache.put("k", "old");
+        Thread.sleep(REFRESH + 20);
+
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<String> backend = new CompletableFuture<>();
+        for (int i = 0; i < 5; i++) {
+            assertEquals("old", cache.getAsync("k", key -> {
+                loads.incrementAndGet();
+                return backend;
+            }).join());
+        }
+        assertEquals(1, loads.get());
+
+        CompletableFuture<String> refresh = cache.pendingLoad("k");
+        assertNotNull(refresh);
+        assertFalse(refresh.isDone());
+        backend.complete("new");
+        assertEquals("new", refresh.get(5, TimeUnit.SECONDS));
+        assertEquals("new", cache.peek("k"));
+        assertNull(cache.pendingLoad("k"));
+    }
+
+    @Test
+    void blockingReadRefreshesInBackground() throws Exception {
+        cache.put("k", "old");
+        Thread.sleep(REFRESH + 20);
+
+        assertEquals("old", cache.get("k", key -> "new"));
+        CompletableFuture<String> refresh = cache.pendingLoad("k");
+        if (refresh != null) {
+            refresh.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals("new", cache.peek("k"));
+    }
+
+    @Test
+    void failedRefreshKeepsOldValueAndRetriesLater() throws Exception {
+        cache.put("k", "old");
+        Thread.sleep(REFRESH + 20);
+
+        CompletableFuture<String> failing = cache.getAsync("k",
+                key -> CompletableFuture.failedFuture(new IOException("backend down")));
+        assertEquals("old", failing.join());
+        assertEquals("old", cache.peek("k"));
+        assertEquals(1, cache.stats().loadFailureCount());
+
+        // the failed attempt pushed the refresh time out by another soft TTL
+        AtomicInteger loads = new AtomicInteger();
+        cache.getAsync("k", key -> CompletableFuture.completedFuture("v" + loads.incrementAndGet())).join();
+        assertEquals(0, loads.get());
+        Thread.sleep(REFRESH + 20);
+        cache.getAsync("k", key -> CompletableFuture.completedFuture("v" + loads.incrementAndGet())).join();
+        assertEquals(1, loads.get());
+        assertEquals("v1", cache.peek("k"));
+    }
+
+    @Test
+    void nullRefreshDiscardsEntry() throws Exception {
+        cache.put("k", "old");
+        Thread.sleep(REFRESH + 20);
+
+        assertEquals("old", cache.getAsync("k", key -> CompletableFuture.completedFuture(null)).join());
+        assertNull(cache.peek("k"));
+    }
+
+    @Test
+    void markStaleRefreshesOnNextRead() {
+        cache.put("k", "old");
+        cache.markStale("k");
+
+        assertEquals("old", cache.getAsync("k", key -> CompletableFuture.completedFuture("new")).join());
+        assertEquals("new", cache.peek("k"));
+    }
+
+    @Test
+    void jitterSpreadsRefreshTimes() {
+        long refresh = 10_000;
+        long jitter = 5_000;
+        LRUCache<Integer, String> jittered = LRUCache.<Integer, String>newBuilder()
+                .capacity(1_000).expireAfterWrite(ONE_HOUR).refreshAfterWrite(refresh, jitter).build();
+        try {
+            long before = System.currentTimeMillis();
+            for (int i = 0; i < 500; i++) {
+                jittered.put(i, "v");
+            }
+            long after = System.currentTimeMillis();
+
+            Set<Long> offsets = new HashSet<>();
+            for (CacheEntry<Integer, String> entry : jittered.getMap().values()) {
+                assertTrue(entry.refreshAt >= before + refresh, "too early: " + (entry.refreshAt - before));
+                assertTrue(entry.refreshAt <= after + refresh + jitter, "too late: " + (entry.refreshAt - after));
+                offsets.add((entry.refreshAt - before) / 500);
+            }
+            // 500 entries over a 5 s window land in most of the ten 500 ms slices
+            assertTrue(offsets.size() >= 8, "slices " + offsets);
+        } finally {
+            jittered.shutdown();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package javafx_demo.utils.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Removal notifications: one per departing entry with the right cause, delivered in order on
+ * the listener thread rather than the caller's.
+ */
+class RemovalListenerTest {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    private record Removal(Integer key, String value, RemovalCause cause, Thread thread) {
+        Removal(Integer key, String value, RemovalCause cause) {
+            this(key, value, cause, null);
+        }
+
+        Removal withoutThread() {
+            return new Removal(key, value, cause);
+        }
+    }
+
+    private final BlockingQueue<Removal> removals = new LinkedBlockingQueue<>();
+
+    private LRUCache.Builder<Integer, String> recording() {
+        return LRUCache.<Integer, String>newBuilder().removalListener(
+                (key, value, cause) -> removals.add(new Removal(key, value, cause, Thread.currentThread())));
+    }
+
+    private List<Removal> take(int count) throws InterruptedException {
+        List<Removal> taken = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Removal removal = removals.poll(5, TimeUnit.SECONDS);
+            assertNotNull(removal, "only " + taken + " arrived");
+            taken.add(removal);
+        }
+        return taken;
+    }
+
+    @Test
+    void reportsEachCauseInRemovalOrder() throws InterruptedException {
+        LRUCache<Integer, String> cache = recording().capacity(2).expireAfterWrite(ONE_HOUR).build();
+        try {
+            cache.put(1, "a");
+            cache.put(1, "b");          // REPLACED a
+            cache.put(2, "c");
+            cache.put(3, "d");          // SIZE evicts 1
+            cache.invalidate(2);        // EXPLICIT
+            cache.put(4, "e", 1);
+            Thread.sleep(5);
+            assertNull(cache.get(4));   // EXPIRED
+
+            List<Removal> seen = new ArrayList<>();
+            for (Removal removal : take(4)) {
+                seen.add(removal.withoutThread());
+            }
+            assertEquals(List.of(
+                    new Removal(1, "a", RemovalCause.REPLACED),
+                    new Removal(1, "b", RemovalCause.SIZE),
+                    new Removal(2, "c", RemovalCause.EXPLICIT),
+                    new Removal(4, "e", RemovalCause.EXPIRED)), seen);
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void shutdownReportsRemainingEntriesAsExplicit() throws InterruptedException {
+        LRUCache<Integer, String> cache = recording().build();
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.shutdown();
+
+        List<Removal> seen = take(2);
+        for (Removal removal : seen) {
+            assertEquals(RemovalCause.EXPLICIT, removal.cause());
+        }
+    }
+
+    @Test
+    void deliveredOffTheCallingThread() throws InterruptedException {
+        LRUCache<Integer, String> cache = recording().build();
+        try {
+            cache.put(1, "a");
+            cache.invalidate(1);
+            assertNotSame(Thread.currentThread(), take(1).get(0).thread());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void slowListenerDoesNotHoldUpWriters() throws InterruptedException {
+        LRUCache<Integer, String> cache = LRUCache.<Integer, String>newBuilder().capacity(1)
+                .removalListener((key, value, cause) -> {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    removals.add(new Removal(key, value, cause));
+                }).build();
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < 5; i++) {
+                cache.put(i, "v" + i);
+            }
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(200), "writers waited on the listener");
+            // still all delivered, in order
+            List<Integer> keys = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Removal removal = removals.poll(5, TimeUnit.SECONDS);
+                assertNotNull(removal);
+                keys.add(removal.key());
+            }
+            assertEquals(List.of(0, 1, 2, 3), keys);
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void listenerMayCallBackIntoCache() throws InterruptedException {
+        List<LRUCache<Integer, String>> holder = new ArrayList<>();
+        LRUCache<Integer, String> cache = LRUCache.<Integer, String>newBuilder()
+                .removalListener((key, value, cause) -> {
+                    // re-inserting from the listener must not deadlock on the cache lock
+                    if (cause == RemovalCause.EXPLICIT && key == 1) {
+                        holder.get(0).put(100, value);
+                    }
+                    removals.add(new Removal(key, value, cause));
+                }).build();
+        holder.add(cache);
+        try {
+            cache.put(1, "a");
+            cache.invalidate(1);
+            take(1);
+            assertEquals("a", cache.peek(100));
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void failingListenerDoesNotStopLaterNotifications() throws InterruptedException {
+        LRUCache<Integer, String> cache = LRUCache.<Integer, String>newBuilder()
+                .removalListener((key, value, cause) -> {
+                    if (key == 1) {
+                        throw new IllegalStateException("listener bug");
+                    }
+                    removals.add(new Removal(key, value, cause));
+                }).build();
+        try {
+            cache.put(1, "a");
+            cache.put(2, "b");
+            cache.invalidate(1);
+            cache.invalidate(2);
+            assertEquals(new Removal(2, "b", RemovalCause.EXPLICIT), take(1).get(0));
+        } finally {
+            cache.shutdown();
+        }
+    }
+}
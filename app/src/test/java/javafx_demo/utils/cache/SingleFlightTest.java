@@ -0,0 +1,146 @@
+package javafx_demo.utils.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrent misses on one key share a single load through {@code get(key, loader)} and
+ * {@code getAsync}, and a failure reaches every caller without being cached.
+ */
+class SingleFlightTest {
+
+    private static final int CALLERS = 16;
+
+    private final LRUCache<String, String> cache = LRUCache.<String, String>newBuilder().recordStats().build();
+    private final ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        cache.shutdown();
+    }
+
+    @Test
+    void concurrentMissesRunLoaderOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(pool.submit(() -> cache.get("k", key -> {
+                loads.incrementAndGet();
+                release.await();
+                return "v";
+            })));
+        }
+        // let every caller reach the cache before the load finishes
+        Thread.sleep(100);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("v", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals("v", cache.peek("k"));
+        assertEquals(1, cache.stats().loadSuccessCount());
+    }
+
+    @Test
+    void failureReachesEveryWaiterAndIsNotCached() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(pool.submit(() -> cache.get("k", key -> {
+                loads.incrementAndGet();
+                release.await();
+                throw new IOException("backend down");
+            })));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IOException, String.valueOf(e.getCause()));
+        }
+        assertEquals(1, loads.get());
+        assertNull(cache.peek("k"));
+        // the next caller loads again
+        assertEquals("v", cache.get("k", key -> "v"));
+    }
+
+    @Test
+    void asyncCallersShareOneLoadAndCannotCompleteEachOther() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<String> backend = new CompletableFuture<>();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(cache.getAsync("k", key -> {
+                loads.incrementAndGet();
+                return backend;
+            }));
+        }
+        // one caller giving up must not affect the others
+        results.get(0).cancel(true);
+        backend.complete("v");
+
+        for (int i = 1; i < CALLERS; i++) {
+            assertEquals("v", results.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals("v", cache.peek("k"));
+    }
+
+    @Test
+    void asyncFailureIsReportedAndNotCached() {
+        CompletableFuture<String> first = cache.getAsync("k",
+                key -> CompletableFuture.failedFuture(new IOException("backend down")));
+        CompletableFuture<String> second = cache.getAsync("k", key -> CompletableFuture.completedFuture("v"));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IOException);
+        assertEquals("v", second.join());
+        assertEquals(1, cache.stats().loadFailureCount());
+    }
+
+    @Test
+    void nullResultIsReturnedButNotCached() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        assertNull(cache.get("missing", key -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertNull(cache.getAsync("missing", key -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }).join());
+        assertEquals(2, loads.get());
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    void invalidateDuringLoadDiscardsResult() throws Exception {
+        CompletableFuture<String> backend = new CompletableFuture<>();
+        CompletableFuture<String> result = cache.getAsync("k", key -> backend);
+        cache.invalidate("k");
+        backend.complete("stale");
+
+        // the caller still gets what it asked for, but the cache does not keep it
+        assertEquals("stale", result.get(5, TimeUnit.SECONDS));
+        assertNull(cache.peek("k"));
+    }
+}
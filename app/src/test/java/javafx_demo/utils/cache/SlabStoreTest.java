@@ -0,0 +1,220 @@
+package javafx_demo.utils.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Chunk allocation, freeing and reuse in {@link SlabStore}, alone and behind an off-heap
+ * {@link LRUCache}.
+ */
+class SlabStoreTest {
+
+    private static final int SLAB = 2048;
+    private static final int MIN = SlabStore.MIN_CHUNK;
+
+    private static ByteBuffer payload(int length, int seed) {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (int i = 0; i < length; i++) {
+            buffer.put(i, (byte) (seed + i));
+        }
+        return buffer;
+    }
+
+    private static void assertPayload(int length, int seed, ByteBuffer view) {
+        assertEquals(length, view.remaining());
+        for (int i = 0; i < length; i++) {
+            assertEquals((byte) (seed + i), view.get(view.position() + i), "byte " + i);
+        }
+    }
+
+    @Test
+    void rejectsSlabSizesThatAreNotPowersOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new SlabStore(SLAB, 3000));
+        assertThrows(IllegalArgumentException.class, () -> new SlabStore(SLAB, 256));
+        assertThrows(IllegalArgumentException.class, () -> new SlabStore(SLAB - 1, SLAB));
+    }
+
+    @Test
+    void storeCopiesRemainingBytesIntoReadOnlyView() {
+        SlabStore store = new SlabStore(SLAB, SLAB);
+        ByteBuffer source = payload(300, 7);
+        source.position(100);
+
+        ByteBuffer view = store.store(source);
+        assertTrue(view.isReadOnly());
+        assertTrue(view.isDirect());
+        assertEquals(100, source.position());
+        assertPayload(200, 107, view);
+        // a copy, not a window onto the caller's buffer
+        source.put(150, (byte) 0);
+        assertEquals((byte) 157, view.get(50));
+
+        assertEquals(SLAB, store.reservedBytes());
+        assertEquals(200, store.usedBytes());
+    }
+
+    @Test
+    void freedChunkIsReusedBeforeReservingMore() {
+        SlabStore store = new SlabStore(SLAB, SLAB);
+        List<ByteBuffer> views = new ArrayList<>();
+        for (int i = 0; i < SLAB / MIN; i++) {
+            views.add(store.store(payload(MIN, i)));
+        }
+        assertNull(store.store(payload(1, 0)), "slab full and no room for another");
+
+        store.free(views.remove(1));
+        ByteBuffer reused = store.store(payload(10, 99));
+        assertNotNull(reused);
+        assertPayload(10, 99, reused);
+        assertEquals(SLAB, store.reservedBytes());
+        // the neighbours are untouched by the reuse
+        assertPayload(MIN, 0, views.get(0));
+        assertPayload(MIN, 2, views.get(1));
+    }
+
+    @Test
+    void partlyUsedSlabStaysWithItsSizeClass() {
+        SlabStore store = new SlabStore(SLAB, SLAB);
+        ByteBuffer small = store.store(payload(100, 0));
+        ByteBuffer other = store.store(payload(100, 1));
+
+        assertNull(store.store(payload(SLAB, 0)), "the only slab is carved into 512 byte chunks");
+        store.free(small);
+        assertNull(store.store(payload(SLAB, 0)));
+        store.free(other);
+
+        // wholly free, so it went back to the pool and can take any class
+        ByteBuffer large = store.store(payload(SLAB, 3));
+        assertNotNull(large);
+        assertPayload(SLAB, 3, large);
+        assertEquals(SLAB, store.reservedBytes());
+    }
+
+    @Test
+    void payloadsTakeSmallestClassThatFits() {
+        SlabStore store = new SlabStore(SLAB, SLAB);
+        // 513..1024 share a class, so two fill a slab
+        assertNotNull(store.store(payload(MIN + 1, 0)));
+        assertNotNull(store.store(payload(2 * MIN, 0)));
+        assertNull(store.store(payload(MIN + 1, 0)));
+        assertEquals(3 * MIN + 1, store.usedBytes());
+    }
+
+    @Test
+    void oversizedPayloadIsRefused() {
+        SlabStore store = new SlabStore(4 * SLAB, SLAB);
+        assertFalse(store.fits(SLAB + 1));
+        assertNull(store.store(payload(SLAB + 1, 0)));
+        assertEquals(0, store.reservedBytes());
+    }
+
+    @Test
+    void unknownAndRepeatedFreesAreIgnored() {
+        SlabStore store = new SlabStore(SLAB, SLAB);
+        ByteBuffer view = store.store(payload(100, 0));
+        store.free(ByteBuffer.allocateDirect(100));
+        store.free(view);
+        store.free(view);
+
+        assertEquals(0, store.usedBytes());
+        for (int i = 0; i < SLAB / MIN; i++) {
+            assertNotNull(store.store(payload(MIN, i)));
+        }
+        assertNull(store.store(payload(MIN, 0)), "a double free must not hand out a chunk twice");
+    }
+
+    @Test
+    void clearReleasesEverySlab() {
+        SlabStore store = new SlabStore(2 * SLAB, SLAB);
+        store.store(payload(SLAB, 0));
+        store.store(payload(SLAB, 0));
+        store.clear();
+
+        assertEquals(0, store.reservedBytes());
+        assertEquals(0, store.usedBytes());
+        assertNotNull(store.store(payload(SLAB, 0)));
+    }
+
+    @Test
+    void concurrentStoreAndFreeKeepPayloadsIntact() throws Exception {
+        SlabStore store = new SlabStore(64 * SLAB, SLAB);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                workers.add(pool.submit(() -> {
+                    List<ByteBuffer> held = new ArrayList<>();
+                    List<int[]> shapes = new ArrayList<>();
+                    for (int i = 0; i < 5_000; i++) {
+                        int length = 1 + (i * 37 + thread * 101) % SLAB;
+                        int seed = thread * 1_000 + i;
+                        ByteBuffer view = store.store(payload(length, seed));
+                        if (view != null) {
+                            held.add(view);
+                            shapes.add(new int[]{length, seed});
+                        }
+                        if (held.size() > 8 || (view == null && !held.isEmpty())) {
+                            int[] shape = shapes.remove(0);
+                            ByteBuffer oldest = held.remove(0);
+                            assertPayload(shape[0], shape[1], oldest);
+                            store.free(oldest);
+                        }
+                    }
+                    for (ByteBuffer view : held) {
+                        store.free(view);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(0, store.usedBytes());
+        assertTrue(store.reservedBytes() <= 64 * SLAB);
+    }
+
+    @Test
+    void offHeapCacheEvictsToMakeRoomAndFreesOnRemoval() {
+        SlabStore store = new SlabStore(SLAB, SLAB);
+        LRUCache<Integer, ByteBuffer> cache = LRUCache.<Integer>newOffHeapBuilder(store).capacity(100).build();
+        try {
+            for (int i = 0; i < SLAB / MIN; i++) {
+                cache.put(i, payload(MIN, i));
+            }
+            // the store is full, so the least recently used entry makes way
+            cache.put(100, payload(MIN, 100));
+            assertNull(cache.peek(0));
+            assertEquals(SLAB / MIN, cache.getMap().size());
+
+            ByteBuffer first = cache.get(100);
+            ByteBuffer second = cache.get(100);
+            first.position(10);
+            assertEquals(0, second.position(), "each read has its own position");
+            assertPayload(MIN, 100, second);
+
+            cache.invalidate(100);
+            assertEquals(3 * MIN, store.usedBytes());
+            // too large for any chunk: not cached, nothing evicted
+            cache.put(200, payload(SLAB + 1, 0));
+            assertNull(cache.peek(200));
+            assertEquals(3, cache.getMap().size());
+
+            cache.shutdown();
+            assertEquals(0, store.usedBytes());
+        } finally {
+            cache.shutdown();
+        }
+    }
+}
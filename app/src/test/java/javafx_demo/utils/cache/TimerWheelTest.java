@@ -0,0 +1,149 @@
+package javafx_demo.utils.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The wheel driven with explicit timestamps, plus expiry as seen through {@link LRUCache}.
+ */
+class TimerWheelTest {
+
+    private static final long START = 1_700_000_000_000L;
+    // a level-0 bucket is 1024 ms wide and is only swept once the wheel has moved past it
+    private static final long GRANULARITY = 2 * 1024;
+
+    @Test
+    void expiresEveryEntryWithinOneTickOfItsDeadline() {
+        Random random = new Random(42);
+        TimerWheel<Integer, Integer> wheel = new TimerWheel<>(START);
+        List<CacheEntry<Integer, Integer>> entries = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            // spread over every level: seconds, minutes, hours and days
+            long delay = (long) Math.pow(10, 2 + random.nextDouble() * 6.5);
+            entries.add(schedule(wheel, i, START + delay));
+        }
+
+        Set<Integer> expired = new HashSet<>();
+        long now = START;
+        while (expired.size() < entries.size()) {
+            // mostly small steps, with the occasional jump over many buckets
+            now += random.nextInt(10) == 0 ? random.nextInt(10_000_000) : random.nextInt(3_000);
+            long at = now;
+            wheel.advance(now, e -> {
+                assertTrue(e.expireTime <= at, "expired early: " + e);
+                assertTrue(expired.add(e.key), "expired twice: " + e);
+            });
+            for (CacheEntry<Integer, Integer> e : entries) {
+                if (e.expireTime + GRANULARITY <= now && !expired.contains(e.key)) {
+                    fail("missed " + e + " at " + now);
+                }
+            }
+        }
+    }
+
+    @Test
+    void descheduledEntryNeverExpires() {
+        TimerWheel<Integer, Integer> wheel = new TimerWheel<>(START);
+        CacheEntry<Integer, Integer> kept = schedule(wheel, 1, START + 5_000);
+        CacheEntry<Integer, Integer> cancelled = schedule(wheel, 2, START + 5_000);
+        wheel.deschedule(cancelled);
+
+        List<Integer> expired = new ArrayList<>();
+        wheel.advance(START + 10_000, e -> expired.add(e.key));
+
+        assertEquals(List.of(1), expired);
+        assertNull(kept.timerNext);
+    }
+
+    @Test
+    void rescheduleMovesDeadline() {
+        TimerWheel<Integer, Integer> wheel = new TimerWheel<>(START);
+        CacheEntry<Integer, Integer> e = schedule(wheel, 1, START + 5_000);
+        e.expireTime = START + 120_000;
+        wheel.reschedule(e);
+
+        List<Integer> expired = new ArrayList<>();
+        wheel.advance(START + 10_000, x -> expired.add(x.key));
+        assertTrue(expired.isEmpty());
+        wheel.advance(START + 125_000, x -> expired.add(x.key));
+        assertEquals(List.of(1), expired);
+    }
+
+    @Test
+    void expireAfterWriteIgnoresReads() throws InterruptedException {
+        LRUCache<String, String> cache = LRUCache.<String, String>newBuilder().expireAfterWrite(300).build();
+        try {
+            cache.put("k", "v");
+            for (int i = 0; i < 4; i++) {
+                Thread.sleep(100);
+                cache.get("k");
+            }
+            // 400 ms after the write, reads notwithstanding
+            assertNull(cache.get("k"));
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void expireAfterAccessExtendsOnRead() throws InterruptedException {
+        LRUCache<String, String> cache = LRUCache.<String, String>newBuilder().expireAfterAccess(300).build();
+        try {
+            cache.put("k", "v");
+            for (int i = 0; i < 6; i++) {
+                Thread.sleep(100);
+                assertEquals("v", cache.get("k"), "read " + i);
+            }
+            Thread.sleep(450);
+            assertNull(cache.get("k"));
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void perEntryTtlOverridesCacheDefault() throws InterruptedException {
+        LRUCache<String, String> cache = LRUCache.<String, String>newBuilder().expireAfterWrite(60_000).build();
+        try {
+            cache.put("short", "a", 100);
+            cache.put("default", "b");
+            Thread.sleep(200);
+            assertNull(cache.peek("short"));
+            assertEquals("b", cache.peek("default"));
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void maintenanceTickRemovesExpiredEntriesWithoutReads() throws InterruptedException {
+        LRUCache<Integer, Integer> cache = LRUCache.<Integer, Integer>newBuilder().expireAfterWrite(100).build();
+        try {
+            for (int i = 0; i < 100; i++) {
+                cache.put(i, i);
+            }
+            // the shared maintenance thread ticks once a second
+            for (int i = 0; i < 50 && !cache.isEmpty(); i++) {
+                Thread.sleep(100);
+            }
+            assertTrue(cache.isEmpty(), "left " + cache.getMap().size());
+            assertEquals(0, cache.weightedSize());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    private static CacheEntry<Integer, Integer> schedule(TimerWheel<Integer, Integer> wheel, int key, long expireTime) {
+        CacheEntry<Integer, Integer> e = new CacheEntry<>(key, key, 0);
+        e.expireTime = expireTime;
+        wheel.schedule(e);
+        return e;
+    }
+}
@@ -0,0 +1,122 @@
+package javafx_demo.utils.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Weight bounds on a single cache and the budget {@link CacheHandler} shares across caches.
+ */
+class WeigherTest {
+
+    private static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    private final CacheHandler handler = new CacheHandler();
+
+    @AfterEach
+    void tearDown() {
+        handler.shutdown();
+    }
+
+    @Test
+    void evictsByWeightBeforeCapacity() {
+        LRUCache<String, String> cache = LRUCache.<String, String>newBuilder()
+                .capacity(100).expireAfterAccess(ONE_HOUR)
+                .weigher((key, value) -> value.length()).maximumWeight(10).build();
+        try {
+            cache.put("a", "xxxx");
+            cache.put("b", "xxxx");
+            assertEquals(8, cache.weightedSize());
+            cache.put("c", "xxxx");
+
+            // 12 > 10, so the least recently used entry goes even though only 3 of 100 slots are used
+            assertNull(cache.peek("a"));
+            assertEquals(8, cache.weightedSize());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void replacingValueReweighs() {
+        LRUCache<String, String> cache = LRUCache.<String, String>newBuilder()
+                .weigher((key, value) -> value.length()).maximumWeight(100).build();
+        try {
+            cache.put("a", "xxxxxxxxxx");
+            cache.put("a", "xx");
+            assertEquals(2, cache.weightedSize());
+            cache.invalidate("a");
+            assertEquals(0, cache.weightedSize());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void singleEntryHeavierThanMaximumIsNotKept() {
+        LRUCache<String, String> cache = LRUCache.<String, String>newBuilder()
+                .weigher((key, value) -> value.length()).maximumWeight(5).build();
+        try {
+            cache.put("small", "xx");
+            cache.put("huge", "xxxxxxxxxx");
+            assertNull(cache.peek("huge"));
+            assertTrue(cache.weightedSize() <= 5);
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void negativeWeightIsRejected() {
+        LRUCache<String, String> cache = LRUCache.<String, String>newBuilder().weigher((key, value) -> -1).build();
+        try {
+            assertThrows(IllegalArgumentException.class, () -> cache.put("a", "b"));
+            assertTrue(cache.isEmpty());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void budgetEvictsGloballyLeastRecentlyUsed() throws InterruptedException {
+        LRUCache<String, String> images = handler.getCache("images", LRUCache.<String, String>newBuilder()
+                .capacity(100).expireAfterAccess(ONE_HOUR).weigher((key, value) -> value.length()));
+        LRUCache<String, String> orders = handler.getCache("orders", LRUCache.<String, String>newBuilder()
+                .capacity(100).expireAfterAccess(ONE_HOUR).weigher((key, value) -> value.length()));
+        handler.setMemoryBudget(20);
+
+        images.put("i1", "xxxxxx");
+        Thread.sleep(5);
+        orders.put("o1", "xxxxxx");
+        Thread.sleep(5);
+        images.put("i2", "xxxxxx");
+        Thread.sleep(5);
+        // touching i1 makes o1 the eldest entry across both caches
+        images.get("i1");
+        Thread.sleep(5);
+        orders.put("o2", "xxxxxx");
+
+        assertTrue(handler.totalWeight() <= 20, "total " + handler.totalWeight());
+        assertNull(orders.peek("o1"));
+        assertEquals("xxxxxx", images.peek("i1"));
+        assertEquals("xxxxxx", images.peek("i2"));
+        assertEquals("xxxxxx", orders.peek("o2"));
+    }
+
+    @Test
+    void loweringBudgetShrinksImmediately() {
+        LRUCache<Integer, String> cache = handler.getCache("c", LRUCache.<Integer, String>newBuilder()
+                .capacity(100).weigher((key, value) -> 10));
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "v");
+        }
+        assertEquals(100, handler.totalWeight());
+
+        handler.setMemoryBudget(35);
+        assertEquals(30, handler.totalWeight());
+        handler.setMemoryBudget(0);
+        cache.put(100, "v");
+        assertEquals(40, handler.totalWeight());
+    }
+}